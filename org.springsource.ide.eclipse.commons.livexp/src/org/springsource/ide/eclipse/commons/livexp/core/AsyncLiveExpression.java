@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.livexp.core;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * A live expression whose value is computed in the background, for expressions that are
+ * expensive to compute (e.g. because they look at the file system or the network).
+ * <p>
+ * A refresh doesn't compute anything, it just schedules a Job that will, after a short delay.
+ * More refreshes during the delay only push the computation back, so a burst of input changes
+ * (e.g. typing in a text field) leads to a single computation. A refresh while the Job is
+ * computing cancels it. Only the result of the computation started after the latest refresh
+ * is published, from the Job's thread.
+ * <p>
+ * While a computation is scheduled or running the expression is 'pending', see {@link #getPending()}.
+ * In the meantime its value is the last published one.
+ */
+public abstract class AsyncLiveExpression<V> extends LiveExpression<V> {
+
+	/**
+	 * Default delay between a refresh and the start of the computation, in milliseconds.
+	 */
+	public static final long DEFAULT_DELAY = 200;
+
+	private final long delay;
+
+	/**
+	 * Incremented on every refresh. Results of computations started before the latest refresh
+	 * are dropped.
+	 */
+	private long generation = 0;
+
+	/**
+	 * The generation of the latest computation that finished.
+	 */
+	private long finished = 0;
+
+	/**
+	 * Computed from the generations, under a lock, so that its value is right whatever order
+	 * the refreshes and computations happen in.
+	 */
+	private final class Pending extends LiveExpression<Boolean> {
+		Pending() {
+			super(false);
+		}
+
+		@Override
+		protected Boolean compute() {
+			synchronized (AsyncLiveExpression.this) {
+				return finished!=generation;
+			}
+		}
+
+		@Override
+		public void refresh() {
+			boolean changed;
+			synchronized (this) {
+				Boolean newValue = compute();
+				changed = !newValue.equals(value);
+				value = newValue;
+			}
+			if (changed) {
+				changed();
+			}
+		}
+	}
+
+	private final Pending pending = new Pending();
+
+	private final Job job;
+
+	public AsyncLiveExpression(V initialValue) {
+		this(initialValue, "Refresh live expression", DEFAULT_DELAY);
+	}
+
+	/**
+	 * @param jobName Name of the Job computing the value.
+	 * @param delay Milliseconds to wait for more changes after a refresh, before computing.
+	 */
+	public AsyncLiveExpression(V initialValue, String jobName, long delay) {
+		super(initialValue);
+		this.delay = delay;
+		this.job = new Job(jobName) {
+			@Override
+			protected IStatus run(IProgressMonitor mon) {
+				long gen = getGeneration();
+				V newValue;
+				try {
+					newValue = compute(mon);
+				} catch (RuntimeException e) {
+					//Let the Job framework log it, but don't stay pending forever.
+					finished(gen);
+					throw e;
+				}
+				if (mon.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				publish(gen, newValue);
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.SHORT);
+	}
+
+	private synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Schedule a computation of the value. Returns right away.
+	 */
+	@Override
+	public void refresh() {
+		synchronized (this) {
+			generation++;
+			//A computation that is running now is stale. The Job runs again once it stops.
+			job.cancel();
+			job.schedule(delay);
+		}
+		pending.refresh();
+	}
+
+	private void publish(long gen, V newValue) {
+		boolean changed;
+		synchronized (this) {
+			if (gen!=generation) {
+				return;
+			}
+			changed = !equals(newValue, value);
+			value = newValue;
+		}
+		if (changed) {
+			changed();
+		}
+		finished(gen);
+	}
+
+	private void finished(long gen) {
+		synchronized (this) {
+			finished = Math.max(finished, gen);
+		}
+		pending.refresh();
+	}
+
+	/**
+	 * True while a computation is scheduled or running.
+	 */
+	public LiveExpression<Boolean> getPending() {
+		return pending;
+	}
+
+	/**
+	 * Compute the value. Called from a background Job.
+	 *
+	 * @param mon Canceled when the computation is stale. Implementations that take a while
+	 *        should check it and stop early. Whatever they return then is dropped.
+	 */
+	protected abstract V compute(IProgressMonitor mon);
+
+	@Override
+	protected final V compute() {
+		return compute(new NullProgressMonitor());
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		job.cancel();
+		pending.dispose();
+	}
+
+}
@@ -10,31 +10,74 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.livexp.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import org.eclipse.core.runtime.ListenerList;
+import org.springsource.ide.eclipse.commons.livexp.ui.Disposable;
 
 /**
  * A 'live' expression is something that conceptually one would like to think of as an expression
  * that returns a value. However, this expression provides a listener-style interface so that
  * interested parties can subscribe to be notified when the value of the expression changes.
+ * <p>
+ * Expressions computed from other expressions declare so with {@link #dependsOn(LiveExpression)}.
+ * When an expression changes, the expressions depending on it are refreshed in order of their
+ * height in the dependency graph, each one at most once per change, see {@link Propagator}.
+ * An expression keeps the expressions depending on it alive, so a derived expression only
+ * observed through its listeners keeps working. Derived expressions that are no longer needed
+ * should be disposed, which disconnects them from their inputs.
  */
-public abstract class LiveExpression<V> {
+public abstract class LiveExpression<V> implements Disposable {
+
+	/**
+	 * In debug mode every expression is tracked, so that {@link #getListenerCounts()} can
+	 * report on them. Meant to help catch leaks in tests.
+	 */
+	private static volatile boolean debug = Boolean.getBoolean("org.springsource.ide.eclipse.commons.livexp.debug");
+
+	private static final Map<LiveExpression<?>, Boolean> tracked = Collections.synchronizedMap(new WeakHashMap<LiveExpression<?>, Boolean>());
 
 	public static final LiveExpression<Boolean> TRUE = constant(true);
 	public static final LiveExpression<Boolean> FALSE = constant(false);
 
 	private ListenerList fListeners = new ListenerList();
 
+	/**
+	 * The expressions that declared they depend on this one.
+	 */
+	private ListenerList fDependents = new ListenerList(ListenerList.IDENTITY);
+
+	/**
+	 * The expressions this one declared it depends on. Guarded by 'this'.
+	 */
+	private List<LiveExpression<?>> fDependencies = null;
+
+	/**
+	 * Length of the longest chain of dependencies below this expression. Expressions that don't
+	 * depend on anything have height 0.
+	 */
+	private volatile int height = 0;
+
 	/**
 	 * The last computed value of the expression.
 	 */
 	protected V value;
 
 	public LiveExpression(V initialValue) {
+		this();
 		this.value = initialValue;
 	}
 
 	public LiveExpression() {
-		// TODO Auto-generated constructor stub
+		if (debug) {
+			tracked.put(this, Boolean.TRUE);
+		}
 	}
 
 	/**
@@ -52,7 +95,7 @@ public abstract class LiveExpression<V> {
 	/**
 	 * Implementation of value equals that works if either one of the values is null.
 	 */
-	private static <V> boolean equals(V a, V b) {
+	static <V> boolean equals(V a, V b) {
 		if (a==null||b==null) {
 			return a==b;
 		} else {
@@ -65,18 +108,121 @@ public abstract class LiveExpression<V> {
 	 * that this expression will be refreshed if the value of the other expression changes.
 	 */
 	public <O> LiveExpression<V> dependsOn(LiveExpression<O> other) {
-		other.addListener(new ValueListener<O>() {
-			public void gotValue(LiveExpression<O> exp, O value) {
-				refresh();
+		synchronized (this) {
+			if (fDependencies==null) {
+				fDependencies = new ArrayList<LiveExpression<?>>(2);
 			}
-		});
+			fDependencies.add(other);
+		}
+		other.addDependent(this);
+		raiseHeight(other.getHeight()+1, Collections.newSetFromMap(new IdentityHashMap<LiveExpression<?>, Boolean>()));
+		refresh();
 		return this;
 	};
 
+	void addDependent(LiveExpression<?> dependent) {
+		fDependents.add(dependent);
+	}
+
+	private void removeDependent(LiveExpression<?> dependent) {
+		fDependents.remove(dependent);
+	}
+
+	LiveExpression<?>[] getDependents() {
+		Object[] dependents = fDependents.getListeners();
+		LiveExpression<?>[] result = new LiveExpression<?>[dependents.length];
+		System.arraycopy(dependents, 0, result, 0, dependents.length);
+		return result;
+	}
+
+	/**
+	 * Disconnect this expression from the expressions it depends on, and drop its listeners
+	 * and dependents. It won't be refreshed anymore, unless explicitly.
+	 */
+	public void dispose() {
+		List<LiveExpression<?>> dependencies;
+		synchronized (this) {
+			dependencies = fDependencies;
+			fDependencies = null;
+		}
+		if (dependencies!=null) {
+			for (LiveExpression<?> d : dependencies) {
+				d.removeDependent(this);
+			}
+		}
+		fListeners.clear();
+		fDependents.clear();
+	}
+
+	/**
+	 * @return The number of listeners and dependents this expression notifies of changes.
+	 */
+	public int getListenerCount() {
+		return fListeners.size() + fDependents.size();
+	}
+
+	/**
+	 * Turn debug mode on or off. Only expressions created while it is on are tracked. Debug mode
+	 * can also be turned on with the system property 'org.springsource.ide.eclipse.commons.livexp.debug'.
+	 */
+	public static void setDebug(boolean enable) {
+		debug = enable;
+	}
+
+	/**
+	 * Report on the expressions created in debug mode that haven't been garbage collected and
+	 * still have listeners or dependents. An expression that should be gone but still shows up
+	 * here is leaking.
+	 *
+	 * @return For each such expression, its number of listeners and dependents.
+	 */
+	public static Map<LiveExpression<?>, Integer> getListenerCounts() {
+		LiveExpression<?>[] all;
+		synchronized (tracked) {
+			all = tracked.keySet().toArray(new LiveExpression<?>[tracked.size()]);
+		}
+		Map<LiveExpression<?>, Integer> counts = new IdentityHashMap<LiveExpression<?>, Integer>();
+		for (LiveExpression<?> e : all) {
+			int count = e.getListenerCount();
+			if (count>0) {
+				counts.put(e, count);
+			}
+		}
+		return counts;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Make sure this expression is higher than a given height, and its dependents higher still.
+	 *
+	 * @param path Expressions whose height is being raised. Protects against dependency cycles.
+	 */
+	private void raiseHeight(int h, Set<LiveExpression<?>> path) {
+		if (h<=height || !path.add(this)) {
+			return;
+		}
+		height = h;
+		for (LiveExpression<?> d : getDependents()) {
+			d.raiseHeight(h+1, path);
+		}
+		path.remove(this);
+	}
+
 
 	protected abstract V compute();
 
 	protected void changed() {
+		if (Propagator.defer(this)) {
+			return;
+		}
+		notifyListeners();
+		Propagator.propagate(this);
+	}
+
+	void notifyListeners() {
 		Object[] listeners = fListeners.getListeners();
 		for (Object _l : listeners) {
 			@SuppressWarnings("unchecked")
@@ -85,6 +231,48 @@ public abstract class LiveExpression<V> {
 		}
 	}
 
+	/**
+	 * Start a batch of changes made by the current thread. Until the batch is committed, changed
+	 * expressions don't notify their listeners and the expressions depending on them aren't
+	 * refreshed. Batches may be nested, only committing the outermost one has any effect.
+	 * <p>
+	 * Callers must make sure the batch is committed, even if the changes fail:
+	 * <pre>
+	 * LiveExpression.beginBatch();
+	 * try {
+	 *    ...
+	 * } finally {
+	 *    LiveExpression.commitBatch();
+	 * }
+	 * </pre>
+	 * Note that while a batch is open, the values of expressions depending on the changed ones
+	 * are out-of-date.
+	 */
+	public static void beginBatch() {
+		Propagator.beginBatch();
+	}
+
+	/**
+	 * Commit the batch started by the last {@link #beginBatch()} call on this thread. If it is
+	 * the outermost batch, every expression changed during the batch notifies its listeners,
+	 * once, of its current value, and everything depending on them is refreshed, once.
+	 */
+	public static void commitBatch() {
+		Propagator.commitBatch();
+	}
+
+	/**
+	 * Make some changes as a single batch, see {@link #beginBatch()}.
+	 */
+	public static void batch(Runnable changes) {
+		beginBatch();
+		try {
+			changes.run();
+		} finally {
+			commitBatch();
+		}
+	}
+
 	/**
 	 * Retrieves the current (cached) value of the expression.
 	 */
@@ -122,6 +310,10 @@ public abstract class LiveExpression<V> {
 				//Ignore all listeners we will never notify anyone since
 				//constants can't change
 			}
+			@Override
+			void addDependent(LiveExpression<?> dependent) {
+				//Likewise, nothing will ever have to be refreshed because of a constant.
+			}
 
 			/* (non-Javadoc)
 			 * @see org.springsource.ide.eclipse.gradle.core.util.expression.LiveExpression#refresh()
@@ -122,7 +122,8 @@ public class LiveSet<T> extends LiveExpression<Set<T>> {
 
 	/**
 	 * Batch-add a number of elements to the set. Only at most one change event will
-	 * be fired no matter how many elements where actually added.
+	 * be fired no matter how many elements where actually added. To batch changes
+	 * to several expressions, see {@link LiveExpression#beginBatch()}.
 	 */
 	public void addAll(T[] elements) {
 		synchronized (this) {
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.livexp.core;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Propagates a change of a live expression to the expressions that depend on it.
+ * <p>
+ * Rather than refreshing dependent expressions right away, which in a diamond shaped graph
+ * refreshes the shared descendants once for each path and lets them compute values from a mix
+ * of old and new inputs, dependents are marked dirty and refreshed in order of their height
+ * in the dependency graph. That way every expression is refreshed at most once per change
+ * (a 'wave'), after all of its inputs are up-to-date.
+ * <p>
+ * A wave belongs to the thread that started it. Changes made by listeners while a wave is
+ * running join that wave.
+ * <p>
+ * While a batch is open on a thread, expressions changed on that thread don't notify anyone.
+ * When the outermost batch is committed, each of them notifies its listeners once and a single
+ * wave refreshes everything that depends on any of them.
+ */
+final class Propagator {
+
+	private static final ThreadLocal<Propagator> CURRENT = new ThreadLocal<Propagator>();
+
+	private static final class Dirty implements Comparable<Dirty> {
+		final LiveExpression<?> exp;
+		final int height;
+		final long seq;
+
+		Dirty(LiveExpression<?> exp, long seq) {
+			this.exp = exp;
+			this.height = exp.getHeight();
+			this.seq = seq;
+		}
+
+		public int compareTo(Dirty other) {
+			if (height!=other.height) {
+				return height<other.height ? -1 : 1;
+			}
+			//Same height: first come first served.
+			return seq<other.seq ? -1 : seq==other.seq ? 0 : 1;
+		}
+	}
+
+	private final PriorityQueue<Dirty> queue = new PriorityQueue<Dirty>();
+	private final Set<LiveExpression<?>> queued = Collections.newSetFromMap(new IdentityHashMap<LiveExpression<?>, Boolean>());
+	private long seq = 0;
+
+	private boolean running = false;
+	private int batchDepth = 0;
+
+	/**
+	 * Expressions changed while a batch is open, in the order they first changed.
+	 */
+	private final Set<LiveExpression<?>> deferred = new LinkedHashSet<LiveExpression<?>>();
+
+	private Propagator() {
+	}
+
+	private static Propagator current() {
+		Propagator p = CURRENT.get();
+		if (p==null) {
+			p = new Propagator();
+			CURRENT.set(p);
+		}
+		return p;
+	}
+
+	private void release() {
+		if (!running && batchDepth==0) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Called when an expression changed.
+	 *
+	 * @return true if a batch is open, in which case the change is handled when it is committed.
+	 */
+	static boolean defer(LiveExpression<?> changed) {
+		Propagator p = CURRENT.get();
+		if (p==null || p.batchDepth==0) {
+			return false;
+		}
+		p.deferred.add(changed);
+		return true;
+	}
+
+	/**
+	 * Mark the dependents of a changed expression dirty, and refresh them unless a wave is
+	 * already running on this thread, in which case that wave will.
+	 */
+	static void propagate(LiveExpression<?> changed) {
+		LiveExpression<?>[] dependents = changed.getDependents();
+		if (dependents.length==0) {
+			return;
+		}
+		Propagator p = current();
+		p.markDirty(dependents);
+		if (!p.running && p.batchDepth==0) {
+			p.run();
+		}
+	}
+
+	static void beginBatch() {
+		current().batchDepth++;
+	}
+
+	static void commitBatch() {
+		Propagator p = CURRENT.get();
+		if (p==null || p.batchDepth==0) {
+			throw new IllegalStateException("No batch to commit");
+		}
+		if (--p.batchDepth==0) {
+			p.commit();
+		}
+	}
+
+	private void commit() {
+		boolean wasRunning = running;
+		//Not refreshing anything until all the changes are accounted for.
+		running = true;
+		try {
+			LiveExpression<?>[] changed = deferred.toArray(new LiveExpression<?>[deferred.size()]);
+			deferred.clear();
+			for (LiveExpression<?> e : changed) {
+				markDirty(e.getDependents());
+			}
+			for (LiveExpression<?> e : changed) {
+				e.notifyListeners();
+			}
+		} finally {
+			running = wasRunning;
+		}
+		if (!wasRunning) {
+			run();
+		}
+	}
+
+	private void markDirty(LiveExpression<?>[] dependents) {
+		for (LiveExpression<?> exp : dependents) {
+			if (queued.add(exp)) {
+				queue.add(new Dirty(exp, seq++));
+			}
+		}
+	}
+
+	private void run() {
+		running = true;
+		try {
+			Dirty next;
+			while ((next = queue.poll())!=null) {
+				queued.remove(next.exp);
+				//Refreshing may mark more expressions dirty. Those are higher up, unless a
+				//listener changed some unrelated expression, in which case they are next.
+				next.exp.refresh();
+			}
+		} finally {
+			running = false;
+			if (!queue.isEmpty()) {
+				//A refresh failed. Don't leave the rest for some unrelated future change.
+				queue.clear();
+				queued.clear();
+			}
+			release();
+		}
+	}
+
+}
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.livexp.core;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.eclipse.swt.widgets.Display;
 
 /**
@@ -17,13 +20,41 @@ import org.eclipse.swt.widgets.Display;
  * wants to execute upon receiving a 'gotValue' event is required 
  * to run in the UIThread (i.e. typically this is code that needs to
  * update or read widgets in the UI).
+ * <p>
+ * By default the thread changing the expression waits until the UI thread has handled the
+ * change. In asynchronous mode it doesn't wait. Instead, changes are posted to the UI thread,
+ * and all the changes that arrive before the UI thread gets to them are handled at once: only
+ * the latest value of each expression is passed on. Use this mode for expressions that change
+ * often on background threads.
  */
 public abstract class UIValueListener<T> implements ValueListener<T> {
-	
+
+	private final boolean async;
+
+	/**
+	 * Values not yet passed on to the UI thread, in asynchronous mode. Guarded by 'this'.
+	 */
+	private Map<LiveExpression<T>, T> pending = null;
+
+	public UIValueListener() {
+		this(false);
+	}
+
+	/**
+	 * @param async Whether to post changes to the UI thread rather than waiting for it.
+	 */
+	public UIValueListener(boolean async) {
+		this.async = async;
+	}
+
 	/**
 	 * This method is final. Implement 'uiGotValue' instead.
 	 */
 	public final void gotValue(final LiveExpression<T> exp, final T value) {
+		if (async) {
+			post(exp, value);
+			return;
+		}
 		getDisplay().syncExec(new Runnable() {
 			public void run() {
 				uiGotValue(exp, value);				
@@ -31,6 +62,45 @@ public abstract class UIValueListener<T> implements ValueListener<T> {
 		});
 	}
 
+	private void post(LiveExpression<T> exp, T value) {
+		Display display = getDisplay();
+		if (display.isDisposed()) {
+			return;
+		}
+		synchronized (this) {
+			if (pending!=null) {
+				//A runnable is already on its way. It'll pick up this value.
+				pending.put(exp, value);
+				return;
+			}
+			pending = new LinkedHashMap<LiveExpression<T>, T>();
+			pending.put(exp, value);
+		}
+		boolean posted = false;
+		try {
+			display.asyncExec(new Runnable() {
+				public void run() {
+					Map<LiveExpression<T>, T> values;
+					synchronized (UIValueListener.this) {
+						values = pending;
+						pending = null;
+					}
+					for (Map.Entry<LiveExpression<T>, T> e : values.entrySet()) {
+						uiGotValue(e.getKey(), e.getValue());
+					}
+				}
+			});
+			posted = true;
+		} finally {
+			if (!posted) {
+				//E.g. the display got disposed in the meantime. Don't wait for a runnable that won't come.
+				synchronized (this) {
+					pending = null;
+				}
+			}
+		}
+	}
+
 	protected Display getDisplay() {
 		return Display.getDefault();
 	}
@@ -18,33 +18,52 @@ import java.io.File;
 import java.io.FilenameFilter;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.springsource.ide.eclipse.commons.livexp.core.AsyncLiveExpression;
 import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
 import org.springsource.ide.eclipse.commons.livexp.core.ValidationResult;
 import org.springsource.ide.eclipse.commons.livexp.core.Validator;
-import org.springsource.ide.eclipse.commons.livexp.core.ValueListener;
 
 /**
  * Validation logic for functionality that expects a new directory. 
  * The validator accepts paths that either do not exist or that point to an
  * empty directory.
+ * <p>
+ * Looking at the directory is done in the background, as the file system may be slow (e.g.
+ * a network drive) and the path changes on every keystroke. Until that check is done the
+ * validator isn't OK, so the outcome for an older path can't be used to finish a wizard.
  * 
  * @author Kris De Volder
  */
-public class NewProjectLocationValidator extends Validator implements ValueListener<String> {
+public class NewProjectLocationValidator extends Validator {
 	
 	private String elementName;
 	private LiveExpression<String> pathExp;
 	private LiveExpression<String> projectNameExp;
 
+	/**
+	 * The checks that look at the file system.
+	 */
+	private AsyncLiveExpression<ValidationResult> directoryCheck;
+
 	public NewProjectLocationValidator(String elementName, LiveExpression<String> path, LiveExpression<String> projectName) {
 		Assert.isNotNull(path);
 		Assert.isNotNull(projectName);
 		this.elementName = elementName;
 		this.pathExp = path;
 		this.projectNameExp = projectName;
-		path.addListener(this);
-		projectName.addListener(this);
+		this.directoryCheck = new AsyncLiveExpression<ValidationResult>(ValidationResult.OK, "Check "+elementName, AsyncLiveExpression.DEFAULT_DELAY) {
+			@Override
+			protected ValidationResult compute(IProgressMonitor mon) {
+				return checkDirectory(pathExp.getValue());
+			}
+		};
+		directoryCheck.dependsOn(path);
+		dependsOn(path);
+		dependsOn(projectName);
+		dependsOn(directoryCheck);
+		dependsOn(directoryCheck.getPending());
 	}
 
 	/**
@@ -61,6 +80,23 @@ public class NewProjectLocationValidator extends Validator implements ValueListe
 		return file.listFiles(IGNORE_SCM_META_DATA);
 	}
 	
+	/**
+	 * Refreshed both from the thread changing the path and from the one checking the directory.
+	 * Computed under a lock, so that a refresh can't overwrite a newer value with an older one.
+	 */
+	@Override
+	public void refresh() {
+		boolean changed;
+		synchronized (this) {
+			ValidationResult newValue = compute();
+			changed = !newValue.equals(value);
+			value = newValue;
+		}
+		if (changed) {
+			changed();
+		}
+	}
+
 	@Override
 	protected ValidationResult compute() {
 		String path = pathExp.getValue();
@@ -72,6 +108,17 @@ public class NewProjectLocationValidator extends Validator implements ValueListe
 		if (projectName!=null && lastSegment!=null && !lastSegment.equals(projectName)) {
 			return error(elementName+": last segment of path should be '"+projectName+"'");
 		}
+		if (directoryCheck.getPending().getValue()) {
+			//No message, it would only flicker while typing.
+			return ValidationResult.info(null);
+		}
+		return directoryCheck.getValue();
+	}
+
+	private ValidationResult checkDirectory(String path) {
+		if (path==null || "".equals(path)) {
+			return ValidationResult.OK;
+		}
 		File file = new File(path);
 		if (file.exists()) {
 			if (file.isDirectory()) {
@@ -85,6 +132,12 @@ public class NewProjectLocationValidator extends Validator implements ValueListe
 		return ValidationResult.OK;
 	}
 
+	@Override
+	public void dispose() {
+		super.dispose();
+		directoryCheck.dispose();
+	}
+
 	private boolean isEmptyDirectory(File file) {
 		File[] files = listFiles(file);
 		if (files!=null) {
@@ -93,14 +146,4 @@ public class NewProjectLocationValidator extends Validator implements ValueListe
 		return false;
 	}
 
-	/**
-	 * Called when the path being validated changes.
-	 */
-	public void gotValue(LiveExpression<String> exp, String path) {
-//		if (DEBUG) {
-//			System.out.println(elementName + " = " + "'"+path+"'");
-//		}
-		refresh();
-	}
-
 }
@@ -14,24 +14,22 @@ import static org.springsource.ide.eclipse.commons.livexp.core.ValidationResult.
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.Assert;
 import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
 import org.springsource.ide.eclipse.commons.livexp.core.ValidationResult;
 import org.springsource.ide.eclipse.commons.livexp.core.Validator;
-import org.springsource.ide.eclipse.commons.livexp.core.ValueListener;
 
 /**
  * A reusable validator that checks project names for a typical new project wizard.
  * 
  * @author Kris De Volder
  */
-public class NewProjectNameValidator extends Validator implements ValueListener<String> {
+public class NewProjectNameValidator extends Validator {
 	
 	private final LiveExpression<String> projectNameField;
 
 	public NewProjectNameValidator(LiveExpression<String> projectNameField) {
 		this.projectNameField = projectNameField;
-		projectNameField.addListener(this);
+		dependsOn(projectNameField);
 	}
 
 	private boolean isAllowedChar(char c) {
@@ -71,12 +69,4 @@ public class NewProjectNameValidator extends Validator implements ValueListener<
 		return false;
 	}
 
-	/**
-	 * Called when the projectName is changed.
-	 */
-	public void gotValue(LiveExpression<String> exp, String value) {
-		Assert.isLegal(exp==projectNameField);
-		refresh();
-	}
-
 }
@@ -149,13 +149,20 @@ public abstract class DialogWithSections
 		scheduleUpdateJob();
 	}
 
+	/**
+	 * Called from whatever thread changed the validator, e.g. the Job of an asynchronous
+	 * validator. So widgets are only touched from the update job.
+	 */
 	private synchronized void scheduleUpdateJob() {
-		Shell shell = getShell();
-		if (shell!=null) {
+		if (getShell()!=null) {
 			if (this.updateJob==null) {
 				this.updateJob = new UIJob("Update Wizard message") {
 					@Override
 					public IStatus runInUIThread(IProgressMonitor monitor) {
+						Shell shell = getShell();
+						if (shell==null || shell.isDisposed()) {
+							return Status.OK_STATUS;
+						}
 						updateStatus(validator.getValue());
 //						IStatus status = toStatus(validator.getValue());
 //						updateStatus(status);
@@ -186,6 +193,10 @@ public abstract class DialogWithSections
 		for (WizardPageSection s : sections) {
 			s.dispose();
 		}
+		if (validator!=null) {
+			//Disconnects it from section validators that outlive this page.
+			validator.dispose();
+		}
 	}
 
 	@Override
@@ -120,6 +120,7 @@ public class GroupSection extends WizardPageSection {
 		for (WizardPageSection s : sections) {
 			s.dispose();
 		}
+		validator.dispose();
 		super.dispose();
 	}
 
@@ -20,6 +20,7 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.IWorkbench;
@@ -40,6 +41,12 @@ public abstract class PreferencePageWithSections extends PreferencePage implemen
 
 	private List<PrefsPageSection> sections = null;
 
+	/**
+	 * Composite of the sections' validators. Disposed with the page, so the validators
+	 * it depends on stop refreshing it.
+	 */
+	private CompositeValidator validator;
+
 	public PreferencePageWithSections() {
 	}
 
@@ -58,7 +65,7 @@ public abstract class PreferencePageWithSections extends PreferencePage implemen
         layout.marginHeight = 1;
         layout.marginWidth = 1;
         page.setLayout(layout);
-        CompositeValidator validator = new CompositeValidator();
+        validator = new CompositeValidator();
         for (PrefsPageSection section : getSections()) {
 			section.createContents(page);
 			validator.addChild(section.getValidator());
@@ -109,7 +116,27 @@ public abstract class PreferencePageWithSections extends PreferencePage implemen
 		}
 	}
 
+	/**
+	 * Called from whatever thread changed the validator, e.g. the Job of an asynchronous
+	 * validator. The message is always shown from the UI thread.
+	 */
 	public void gotValue(LiveExpression<ValidationResult> exp, ValidationResult status) {
+		if (Display.getCurrent()!=null) {
+			showStatus(status);
+		} else {
+			Display.getDefault().asyncExec(new Runnable() {
+				public void run() {
+					Control control = getControl();
+					if (control!=null && !control.isDisposed()) {
+						//The latest value, other updates may have been posted after this one.
+						showStatus(validator.getValue());
+					}
+				}
+			});
+		}
+	}
+
+	private void showStatus(ValidationResult status) {
 		setErrorMessage(null);
 		setMessage(null);
 		if (status.isOk()) {
@@ -124,6 +151,21 @@ public abstract class PreferencePageWithSections extends PreferencePage implemen
 		}
 	}
 
+	@Override
+	public void dispose() {
+		super.dispose();
+		if (validator!=null) {
+			validator.dispose();
+		}
+		if (sections!=null) {
+			for (PrefsPageSection s : sections) {
+				if (s instanceof Disposable) {
+					((Disposable) s).dispose();
+				}
+			}
+		}
+	}
+
 	public IRunnableContext getRunnableContext() {
 		//TODO: can we do something more specific for preferences page?
 		return PlatformUI.getWorkbench().getProgressService();
@@ -32,7 +32,7 @@ import org.springsource.ide.eclipse.commons.livexp.core.ValueListener;
  * 
  * @author Kris De Volder
  */
-public class PrefsGroupSection extends PrefsPageSection {
+public class PrefsGroupSection extends PrefsPageSection implements Disposable {
 
 	/**
 	 * Sections inside the group element.
@@ -93,6 +93,15 @@ public class PrefsGroupSection extends PrefsPageSection {
 		});
 	}
 	
+	public void dispose() {
+		for (PrefsPageSection s : sections) {
+			if (s instanceof Disposable) {
+				((Disposable) s).dispose();
+			}
+		}
+		validator.dispose();
+	}
+
 	@Override
 	public boolean performOK() {
 		for (PrefsPageSection s : sections) {
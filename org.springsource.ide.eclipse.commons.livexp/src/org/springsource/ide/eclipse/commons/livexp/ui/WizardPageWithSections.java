@@ -29,8 +29,8 @@ import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.progress.UIJob;
 import org.springsource.ide.eclipse.commons.livexp.core.CompositeValidator;
 import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
@@ -117,13 +117,20 @@ public abstract class WizardPageWithSections extends WizardPage implements IPage
 		scheduleUpdateJob();
 	}
 
+	/**
+	 * Called from whatever thread changed the validator, e.g. the Job of an asynchronous
+	 * validator. So widgets are only touched from the update job.
+	 */
 	private synchronized void scheduleUpdateJob() {
-		Shell shell = getShell();
-		if (shell!=null) {
+		if (getControl()!=null) {
 			if (this.updateJob==null) {
 				this.updateJob = new UIJob("Update Wizard message") {
 					@Override
 					public IStatus runInUIThread(IProgressMonitor monitor) {
+						Control control = getControl();
+						if (control==null || control.isDisposed()) {
+							return Status.OK_STATUS;
+						}
 						ValidationResult status = validator.getValue();
 						setErrorMessage(null);
 						setMessage(null);
@@ -151,6 +158,10 @@ public abstract class WizardPageWithSections extends WizardPage implements IPage
 		for (WizardPageSection s : sections) {
 			s.dispose();
 		}
+		if (validator!=null) {
+			//Disconnects it from section validators that outlive this page.
+			validator.dispose();
+		}
 	}
 
 	@Override
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic text files and directory trees to run the benchmarks on.
+ * <p>
+ * Generation is driven by a fixed seed so that every run, on every commit, sees exactly
+ * the same corpus. That is what makes benchmark results comparable across commits.
+ */
+public class Corpus {
+
+	private static final long SEED = 0x5EA2C4L;
+
+	public enum Kind {
+		/**
+		 * Java-like source code. Short, indented lines with LF line ends.
+		 */
+		SOURCE,
+		/**
+		 * Minified javascript. A few enormous lines.
+		 */
+		MINIFIED_JS,
+		/**
+		 * Text with lines of a few thousand chars (e.g. generated xml or logs).
+		 */
+		LONG_LINES,
+		/**
+		 * Like SOURCE, but with a mix of CRLF, LF and lone CR line ends.
+		 */
+		CRLF_MIX
+	}
+
+	private static final String[] WORDS = {
+		"public", "private", "static", "final", "class", "void", "return", "if", "else", "for",
+		"while", "new", "this", "null", "true", "false", "int", "String", "List", "Map",
+		"result", "value", "index", "count", "buffer", "resource", "project", "query", "search",
+		"priority", "walker", "line", "offset", "length", "file", "folder", "path", "segment",
+		"getName", "getFullPath", "matchItem", "readLine", "QuickTextQuery", "ResourceWalker",
+		"IOException", "CoreException", "IProgressMonitor", "ArrayList", "HashMap", "toString"
+	};
+
+	private static final String[] EXTENSIONS = {
+		".java", ".java", ".java", ".xml", ".js", ".properties", ".txt", ".class", ".png"
+	};
+
+	private final Random random = new Random(SEED);
+
+	/**
+	 * Generate (approximately) the given number of chars of text of some kind.
+	 */
+	public String text(Kind kind, int size) {
+		StringBuilder out = new StringBuilder(size+200);
+		switch (kind) {
+		case SOURCE:
+		case CRLF_MIX:
+			int indent = 0;
+			while (out.length()<size) {
+				sourceLine(out, indent);
+				out.append(kind==Kind.SOURCE ? "\n" : lineEnd());
+				indent = Math.max(0, Math.min(4, indent + random.nextInt(3) - 1));
+			}
+			break;
+		case MINIFIED_JS:
+			while (out.length()<size) {
+				int end = Math.min(size, out.length() + 50000 + random.nextInt(50000));
+				while (out.length()<end) {
+					out.append("var ").append(word()).append("=function(").append(word()).append("){return ")
+						.append(word()).append('.').append(word()).append('+').append(random.nextInt(100)).append("};");
+				}
+				out.append('\n');
+			}
+			break;
+		case LONG_LINES:
+			while (out.length()<size) {
+				int end = Math.min(size, out.length() + 1000 + random.nextInt(4000));
+				while (out.length()<end) {
+					out.append(word()).append(' ');
+				}
+				out.append('\n');
+			}
+			break;
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Generate lines of text of some kind, as they would be seen by a searcher.
+	 */
+	public List<String> lines(Kind kind, int size) {
+		List<String> lines = new ArrayList<String>();
+		for (String line : text(kind, size).split("\r\n|\r|\n")) {
+			lines.add(line);
+		}
+		return lines;
+	}
+
+	/**
+	 * Write a file of some kind.
+	 */
+	public File file(File dir, String name, Kind kind, int size) throws IOException {
+		File f = new File(dir, name);
+		write(f, text(kind, size));
+		return f;
+	}
+
+	/**
+	 * Create a directory tree of the given depth. Every directory has 'fanout' subdirectories
+	 * and 'files' files. File names have a mix of extensions, some of which are ignored by the
+	 * default priority function. Each tree also gets some 'bin' and '.git' folders, which are
+	 * ignored as well.
+	 *
+	 * @return The number of files created.
+	 */
+	public int tree(File dir, int depth, int fanout, int files, int fileSize) throws IOException {
+		dir.mkdirs();
+		int count = 0;
+		for (int i = 0; i < files; i++) {
+			String ext = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+			Kind kind = ext.equals(".js") && random.nextInt(4)==0 ? Kind.MINIFIED_JS : Kind.SOURCE;
+			file(dir, word()+i+ext, kind, fileSize/2 + random.nextInt(fileSize));
+			count++;
+		}
+		if (depth>0) {
+			for (int i = 0; i < fanout; i++) {
+				count += tree(new File(dir, word().toLowerCase()+i), depth-1, fanout, files, fileSize);
+			}
+			if (depth==1) {
+				count += tree(new File(dir, "bin"), 0, 0, files, fileSize);
+				count += tree(new File(dir, ".git"), 0, 0, files, fileSize);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A random word from a fixed vocabulary of identifiers and keywords.
+	 */
+	public String word() {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	private void sourceLine(StringBuilder out, int indent) {
+		for (int i = 0; i < indent; i++) {
+			out.append('\t');
+		}
+		int kind = random.nextInt(10);
+		if (kind==0) {
+			out.append("//");
+		} else if (kind==1) {
+			return; //empty line
+		}
+		int words = 2 + random.nextInt(8);
+		for (int i = 0; i < words; i++) {
+			out.append(word());
+			out.append(i==words-1 ? ";" : random.nextInt(3)==0 ? "(" : " ");
+		}
+	}
+
+	private String lineEnd() {
+		int r = random.nextInt(10);
+		return r<5 ? "\r\n" : r<9 ? "\n" : "\r";
+	}
+
+	private static void write(File f, String text) throws IOException {
+		OutputStream out = new FileOutputStream(f);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Delete a directory tree created for a benchmark.
+	 */
+	public static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children!=null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springsource.ide.eclipse.commons.quicksearch.benchmarks.Corpus.Kind;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.LineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.MappedFileLineReader;
+
+/**
+ * Throughput of reading a whole file line by line, the way the searcher does it.
+ * <p>
+ * Files with lines longer than the maximum line length are abandoned by the readers as soon
+ * as the long line is found. For those the benchmark measures how quickly that happens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LineReaderBenchmark {
+
+	@Param({"SOURCE", "MINIFIED_JS", "LONG_LINES", "CRLF_MIX"})
+	public Kind kind;
+
+	@Param({"100000", "4000000"})
+	public int size;
+
+	@Param({"1000", "100000"})
+	public int maxLineLength;
+
+	private File dir;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = File.createTempFile("qsb", "");
+		dir.delete();
+		dir.mkdirs();
+		file = new Corpus().file(dir, "corpus.txt", kind, size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Corpus.delete(dir);
+	}
+
+	@Benchmark
+	public int lineReader() throws IOException {
+		return readAll(new LineReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), maxLineLength));
+	}
+
+	@Benchmark
+	public int mappedFileLineReader() throws IOException {
+		return readAll(new MappedFileLineReader(file, "UTF-8", maxLineLength));
+	}
+
+	/**
+	 * @return Sum of the line lengths, to keep the JIT from optimising the reading away.
+	 */
+	private int readAll(ILineReader reader) {
+		int chars = 0;
+		try {
+			while (reader.nextLine()) {
+				chars += reader.getLineLength();
+			}
+		} catch (IOException e) {
+			//Line too long. The searcher gives up on the file at this point.
+		} finally {
+			reader.close();
+		}
+		return chars;
+	}
+
+}
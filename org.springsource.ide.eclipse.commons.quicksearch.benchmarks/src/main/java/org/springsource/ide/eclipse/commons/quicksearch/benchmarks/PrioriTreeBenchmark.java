@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PrioriTree;
+
+/**
+ * Cost of {@link PrioriTree#priority(IResource)} lookups, for trees with few and many
+ * prioritised paths (e.g. the paths of open editors and recent searches). Each invocation
+ * looks up a fixed set of paths, some of which are in the tree and some not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PrioriTreeBenchmark {
+
+	private static final int LOOKUPS = 1000;
+
+	@Param({"10", "1000"})
+	public int paths;
+
+	@Param({"3", "10"})
+	public int depth;
+
+	private PrioriTree tree;
+	private IResource[] resources;
+
+	@Setup
+	public void setup() {
+		Corpus corpus = new Corpus();
+		Random random = new Random(paths*31+depth);
+		tree = PrioriTree.create();
+		IPath[] set = new IPath[paths];
+		for (int i = 0; i < paths; i++) {
+			set[i] = randomPath(corpus, depth);
+			tree.setPriority(set[i], 1+random.nextInt(100));
+		}
+		SyntheticResources workspace = new SyntheticResources();
+		resources = new IResource[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			IPath path;
+			if (i%2==0) {
+				//A prioritised path, or a child or ancestor of one
+				path = set[random.nextInt(paths)];
+				int extra = random.nextInt(3) - 1;
+				path = extra<0 ? path.removeLastSegments(1) : extra>0 ? path.append(corpus.word()) : path;
+			} else {
+				path = randomPath(corpus, depth);
+			}
+			resources[i] = workspace.resource(path);
+		}
+	}
+
+	private IPath randomPath(Corpus corpus, int depth) {
+		IPath path = Path.ROOT;
+		for (int i = 0; i < depth; i++) {
+			path = path.append(corpus.word()+(i%3));
+		}
+		return path.addFileExtension("java");
+	}
+
+	@Benchmark
+	public double priority() {
+		double sum = 0;
+		for (IResource r : resources) {
+			sum += tree.priority(r);
+		}
+		return sum;
+	}
+
+}
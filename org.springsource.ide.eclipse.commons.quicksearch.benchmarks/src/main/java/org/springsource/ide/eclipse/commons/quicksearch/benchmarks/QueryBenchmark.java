@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springsource.ide.eclipse.commons.quicksearch.benchmarks.Corpus.Kind;
+import org.springsource.ide.eclipse.commons.quicksearch.core.LineItem;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
+
+/**
+ * Cost of testing lines against a query with {@link QuickTextQuery#matchItem(LineItem)}, for
+ * queries that are plain literals and queries that use wildcards. Each invocation tests
+ * every line of a fixed set of source lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+	@Param({"result", "getFullPath", "Res*Walker", "re?ult*ind", "noSuchThing"})
+	public String pattern;
+
+	@Param({"false", "true"})
+	public boolean caseSensitive;
+
+	private QuickTextQuery query;
+	private LineItem[] items;
+	private char[][] chars;
+
+	@Setup
+	public void setup() {
+		query = new QuickTextQuery(pattern, caseSensitive);
+		List<String> lines = new Corpus().lines(Kind.SOURCE, 200000);
+		items = new LineItem[lines.size()];
+		chars = new char[lines.size()][];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = new LineItem(null, lines.get(i), i+1, 0);
+			chars[i] = lines.get(i).toCharArray();
+		}
+	}
+
+	@Benchmark
+	public int matchItem() {
+		int found = 0;
+		for (LineItem item : items) {
+			if (query.matchItem(item)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The garbage free variant used by the searcher on the reader's line buffer.
+	 */
+	@Benchmark
+	public int matchBuffer() {
+		int found = 0;
+		for (char[] line : chars) {
+			if (query.matchItem(line, 0, line.length)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.eclipse.core.resources.FileInfoMatcherDescription;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceFilterDescription;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * A project or folder of a {@link SyntheticResources} tree. Its members are the files and
+ * directories in the directory on disk, in alphabetical order. Virtual containers are empty.
+ */
+abstract class SyntheticContainer extends SyntheticResource implements IContainer {
+
+	SyntheticContainer(SyntheticResources tree, File file, IPath fullPath) {
+		super(tree, file, fullPath);
+	}
+
+	public IResource[] members() throws CoreException {
+		File[] children = file==null ? null : file.listFiles();
+		if (children==null) {
+			return new IResource[0];
+		}
+		Arrays.sort(children);
+		IResource[] members = new IResource[children.length];
+		for (int i = 0; i < children.length; i++) {
+			members[i] = tree.resource(children[i], fullPath.append(children[i].getName()));
+		}
+		return members;
+	}
+
+	public IResource[] members(boolean includePhantoms) throws CoreException {
+		return members();
+	}
+
+	public IResource[] members(int memberFlags) throws CoreException {
+		return members();
+	}
+
+	public IResource findMember(String path) {
+		return findMember(new Path(path));
+	}
+
+	public IResource findMember(String path, boolean includePhantoms) {
+		return findMember(path);
+	}
+
+	public IResource findMember(IPath path) {
+		if (path.isEmpty()) {
+			return this;
+		}
+		IResource member = tree.resource(fullPath.append(path));
+		return member.exists() ? member : null;
+	}
+
+	public IResource findMember(IPath path, boolean includePhantoms) {
+		return findMember(path);
+	}
+
+	public boolean exists(IPath path) {
+		return findMember(path)!=null;
+	}
+
+	public IFile getFile(IPath path) {
+		return tree.file(fullPath.append(path));
+	}
+
+	public IFolder getFolder(IPath path) {
+		return tree.folder(fullPath.append(path));
+	}
+
+	public IFile getFile(String name) {
+		return getFile(new Path(name));
+	}
+
+	public IFolder getFolder(String name) {
+		return getFolder(new Path(name));
+	}
+
+	public String getDefaultCharset() throws CoreException {
+		return SyntheticResources.CHARSET;
+	}
+
+	public String getDefaultCharset(boolean checkImplicit) throws CoreException {
+		return SyntheticResources.CHARSET;
+	}
+
+	public IResourceFilterDescription[] getFilters() throws CoreException {
+		return new IResourceFilterDescription[0];
+	}
+
+	public IFile[] findDeletedMembersWithHistory(int depth, IProgressMonitor monitor) throws CoreException {
+		return new IFile[0];
+	}
+
+	public IResourceFilterDescription createFilter(int type, FileInfoMatcherDescription matcherDescription, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDefaultCharset(String charset) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDefaultCharset(String charset, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFileState;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.content.IContentDescription;
+
+/**
+ * A file of a {@link SyntheticResources} tree. All files are UTF-8 and have no content type.
+ * Virtual files are empty.
+ */
+class SyntheticFile extends SyntheticResource implements IFile {
+
+	SyntheticFile(SyntheticResources tree, File file, IPath fullPath) {
+		super(tree, file, fullPath);
+	}
+
+	public int getType() {
+		return FILE;
+	}
+
+	public InputStream getContents() throws CoreException {
+		return getContents(false);
+	}
+
+	public InputStream getContents(boolean force) throws CoreException {
+		if (file==null) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		try {
+			return new FileInputStream(file);
+		} catch (IOException e) {
+			throw unsupported("Can't read "+fullPath+": "+e.getMessage());
+		}
+	}
+
+	public String getCharset() throws CoreException {
+		return SyntheticResources.CHARSET;
+	}
+
+	public String getCharset(boolean checkImplicit) throws CoreException {
+		return SyntheticResources.CHARSET;
+	}
+
+	public String getCharsetFor(Reader reader) throws CoreException {
+		return SyntheticResources.CHARSET;
+	}
+
+	public IContentDescription getContentDescription() throws CoreException {
+		return null;
+	}
+
+	@Deprecated
+	public int getEncoding() throws CoreException {
+		return ENCODING_UNKNOWN;
+	}
+
+	public IFileState[] getHistory(IProgressMonitor monitor) throws CoreException {
+		return new IFileState[0];
+	}
+
+	public void create(InputStream source, boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void create(InputStream source, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void appendContents(InputStream source, boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void appendContents(InputStream source, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setContents(InputStream source, boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setContents(InputStream source, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setContents(IFileState source, boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setContents(IFileState source, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setCharset(String newCharset) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setCharset(String newCharset, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+}
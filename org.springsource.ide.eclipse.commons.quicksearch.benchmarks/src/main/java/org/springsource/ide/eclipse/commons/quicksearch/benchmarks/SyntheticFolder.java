@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A folder of a {@link SyntheticResources} tree.
+ */
+class SyntheticFolder extends SyntheticContainer implements IFolder {
+
+	SyntheticFolder(SyntheticResources tree, File file, IPath fullPath) {
+		super(tree, file, fullPath);
+	}
+
+	public int getType() {
+		return FOLDER;
+	}
+
+	public void create(boolean force, boolean local, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void create(int updateFlags, boolean local, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+}
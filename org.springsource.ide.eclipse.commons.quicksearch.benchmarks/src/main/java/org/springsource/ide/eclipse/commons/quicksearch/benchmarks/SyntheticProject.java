@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Map;
+
+import org.eclipse.core.resources.IBuildConfiguration;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IProjectNature;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IPluginDescriptor;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.content.IContentTypeMatcher;
+
+/**
+ * A project of a {@link SyntheticResources} tree. Projects are always open, and have no
+ * description, natures, references or build configurations.
+ */
+@SuppressWarnings("deprecation")
+class SyntheticProject extends SyntheticContainer implements IProject {
+
+	SyntheticProject(SyntheticResources tree, File file, IPath fullPath) {
+		super(tree, file, fullPath);
+	}
+
+	public int getType() {
+		return PROJECT;
+	}
+
+	public boolean isOpen() {
+		return exists();
+	}
+
+	public void open(IProgressMonitor monitor) throws CoreException {
+		//Always open.
+	}
+
+	public void open(int updateFlags, IProgressMonitor monitor) throws CoreException {
+		//Always open.
+	}
+
+	public boolean hasNature(String natureId) throws CoreException {
+		return false;
+	}
+
+	public boolean isNatureEnabled(String natureId) throws CoreException {
+		return false;
+	}
+
+	public IProjectNature getNature(String natureId) throws CoreException {
+		return null;
+	}
+
+	public IProject[] getReferencedProjects() throws CoreException {
+		return new IProject[0];
+	}
+
+	public IProject[] getReferencingProjects() {
+		return new IProject[0];
+	}
+
+	public void clearCachedDynamicReferences() {
+		//There are none.
+	}
+
+	public boolean hasBuildConfig(String configName) throws CoreException {
+		return false;
+	}
+
+	public IBuildConfiguration[] getBuildConfigs() throws CoreException {
+		return new IBuildConfiguration[0];
+	}
+
+	public IBuildConfiguration getActiveBuildConfig() throws CoreException {
+		throw unsupported("Synthetic projects have no build configurations");
+	}
+
+	public IBuildConfiguration getBuildConfig(String configName) throws CoreException {
+		throw unsupported("Synthetic projects have no build configurations");
+	}
+
+	public IBuildConfiguration[] getReferencedBuildConfigs(String configName, boolean includeMissing) throws CoreException {
+		throw unsupported("Synthetic projects have no build configurations");
+	}
+
+	public IProjectDescription getDescription() throws CoreException {
+		throw unsupported("Synthetic projects have no description");
+	}
+
+	public IContentTypeMatcher getContentTypeMatcher() throws CoreException {
+		throw unsupported("Synthetic projects have no content types");
+	}
+
+	/**
+	 * Null, there is no workspace to keep plugin state in.
+	 */
+	public IPath getWorkingLocation(String id) {
+		return null;
+	}
+
+	/**
+	 * Null, there is no workspace to keep plugin state in.
+	 */
+	public IPath getPluginWorkingLocation(IPluginDescriptor plugin) {
+		return null;
+	}
+
+	public void build(int kind, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void build(int kind, String builderName, Map<String, String> args, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void build(IBuildConfiguration config, int kind, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void close(IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void create(IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void create(IProjectDescription description, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void create(IProjectDescription description, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IProjectDescription description, boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDescription(IProjectDescription description, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDescription(IProjectDescription description, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void loadSnapshot(int options, URI snapshotLocation, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void saveSnapshot(int options, URI snapshotLocation, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+}
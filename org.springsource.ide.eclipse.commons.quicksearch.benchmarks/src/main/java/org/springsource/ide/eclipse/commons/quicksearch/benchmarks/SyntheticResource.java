@@ -0,0 +1,424 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IPathVariableManager;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourceAttributes;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.QualifiedName;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * A resource of a {@link SyntheticResources} tree. Everything that can be asked about a
+ * resource is answered from the file system (or, for virtual resources, from the path alone).
+ * There are no markers, properties, natures or build configurations. Anything that would
+ * change the workspace fails with a CoreException.
+ */
+abstract class SyntheticResource implements IResource {
+
+	private static final String PLUGIN_ID = "org.springsource.ide.eclipse.commons.quicksearch.benchmarks";
+
+	protected final SyntheticResources tree;
+
+	/**
+	 * The file or directory on disk. Null for virtual resources.
+	 */
+	protected final File file;
+
+	protected final IPath fullPath;
+
+	SyntheticResource(SyntheticResources tree, File file, IPath fullPath) {
+		this.tree = tree;
+		this.file = file;
+		this.fullPath = fullPath;
+	}
+
+	protected CoreException readOnly() {
+		return unsupported("Synthetic resources can't be changed: "+fullPath);
+	}
+
+	protected static CoreException unsupported(String message) {
+		return new CoreException(new Status(IStatus.ERROR, PLUGIN_ID, message));
+	}
+
+	public boolean exists() {
+		return file==null || file.exists();
+	}
+
+	public boolean isAccessible() {
+		return exists();
+	}
+
+	public String getName() {
+		return fullPath.lastSegment();
+	}
+
+	public IPath getFullPath() {
+		return fullPath;
+	}
+
+	public String getFileExtension() {
+		return fullPath.getFileExtension();
+	}
+
+	public IPath getProjectRelativePath() {
+		return fullPath.removeFirstSegments(1);
+	}
+
+	public IPath getLocation() {
+		return file==null ? null : new Path(file.getAbsolutePath());
+	}
+
+	public URI getLocationURI() {
+		return file==null ? null : file.toURI();
+	}
+
+	public IPath getRawLocation() {
+		return getLocation();
+	}
+
+	public URI getRawLocationURI() {
+		return getLocationURI();
+	}
+
+	public IContainer getParent() {
+		//The workspace root isn't part of the tree.
+		return fullPath.segmentCount()>1 ? tree.container(fullPath.removeLastSegments(1)) : null;
+	}
+
+	public IProject getProject() {
+		return (IProject) tree.container(fullPath.uptoSegment(1));
+	}
+
+	/**
+	 * Null, there is no workspace.
+	 */
+	public IWorkspace getWorkspace() {
+		return null;
+	}
+
+	public long getModificationStamp() {
+		if (file==null) {
+			return 0;
+		}
+		return file.exists() ? file.lastModified() : NULL_STAMP;
+	}
+
+	public long getLocalTimeStamp() {
+		return getModificationStamp();
+	}
+
+	public ResourceAttributes getResourceAttributes() {
+		if (!exists()) {
+			return null;
+		}
+		ResourceAttributes attributes = new ResourceAttributes();
+		attributes.setReadOnly(isReadOnly());
+		return attributes;
+	}
+
+	public boolean isReadOnly() {
+		return file!=null && file.exists() && !file.canWrite();
+	}
+
+	public boolean isDerived() {
+		return false;
+	}
+
+	public boolean isDerived(int options) {
+		return false;
+	}
+
+	public boolean isHidden() {
+		return false;
+	}
+
+	public boolean isHidden(int options) {
+		return false;
+	}
+
+	public boolean isLinked() {
+		return false;
+	}
+
+	public boolean isLinked(int options) {
+		return false;
+	}
+
+	public boolean isVirtual() {
+		return false;
+	}
+
+	public boolean isPhantom() {
+		return false;
+	}
+
+	public boolean isTeamPrivateMember() {
+		return false;
+	}
+
+	public boolean isTeamPrivateMember(int options) {
+		return false;
+	}
+
+	public boolean isLocal(int depth) {
+		return exists();
+	}
+
+	public boolean isSynchronized(int depth) {
+		return true;
+	}
+
+	public <T> T getAdapter(Class<T> adapter) {
+		return null;
+	}
+
+	public boolean contains(ISchedulingRule rule) {
+		return rule instanceof IResource && fullPath.isPrefixOf(((IResource) rule).getFullPath());
+	}
+
+	public boolean isConflicting(ISchedulingRule rule) {
+		if (rule instanceof IResource) {
+			IPath other = ((IResource) rule).getFullPath();
+			return fullPath.isPrefixOf(other) || other.isPrefixOf(fullPath);
+		}
+		return false;
+	}
+
+	public void accept(IResourceVisitor visitor) throws CoreException {
+		accept(visitor, DEPTH_INFINITE, NONE);
+	}
+
+	public void accept(IResourceVisitor visitor, int depth, boolean includePhantoms) throws CoreException {
+		accept(visitor, depth, NONE);
+	}
+
+	public void accept(IResourceVisitor visitor, int depth, int memberFlags) throws CoreException {
+		if (visitor.visit(this) && depth!=DEPTH_ZERO && this instanceof IContainer) {
+			for (IResource child : ((IContainer) this).members()) {
+				child.accept(visitor, depth==DEPTH_ONE ? DEPTH_ZERO : DEPTH_INFINITE, memberFlags);
+			}
+		}
+	}
+
+	public void accept(IResourceProxyVisitor visitor, int memberFlags) throws CoreException {
+		throw unsupported("Synthetic resources have no proxies");
+	}
+
+	public void accept(IResourceProxyVisitor visitor, int depth, int memberFlags) throws CoreException {
+		throw unsupported("Synthetic resources have no proxies");
+	}
+
+	/**
+	 * Null, there are no proxies.
+	 */
+	public IResourceProxy createProxy() {
+		return null;
+	}
+
+	/**
+	 * Null, there are no path variables.
+	 */
+	public IPathVariableManager getPathVariableManager() {
+		return null;
+	}
+
+	public IMarker getMarker(long id) {
+		return null;
+	}
+
+	public IMarker findMarker(long id) throws CoreException {
+		return null;
+	}
+
+	public IMarker[] findMarkers(String type, boolean includeSubtypes, int depth) throws CoreException {
+		return new IMarker[0];
+	}
+
+	public int findMaxProblemSeverity(String type, boolean includeSubtypes, int depth) throws CoreException {
+		return -1;
+	}
+
+	public Map<QualifiedName, String> getPersistentProperties() throws CoreException {
+		return Collections.emptyMap();
+	}
+
+	public String getPersistentProperty(QualifiedName key) throws CoreException {
+		return null;
+	}
+
+	public Map<QualifiedName, Object> getSessionProperties() throws CoreException {
+		return Collections.emptyMap();
+	}
+
+	public Object getSessionProperty(QualifiedName key) throws CoreException {
+		return null;
+	}
+
+	public void refreshLocal(int depth, IProgressMonitor monitor) throws CoreException {
+		//Nothing to do, everything is read from the file system when asked for.
+	}
+
+	public void setReadOnly(boolean readOnly) {
+		//Ignored, like for resources that don't exist.
+	}
+
+	public IMarker createMarker(String type) throws CoreException {
+		throw readOnly();
+	}
+
+	public void deleteMarkers(String type, boolean includeSubtypes, int depth) throws CoreException {
+		throw readOnly();
+	}
+
+	public void clearHistory(IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void copy(IPath destination, boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void copy(IPath destination, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void copy(IProjectDescription description, boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void copy(IProjectDescription description, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IPath destination, boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IPath destination, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IPath destination, boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IProjectDescription description, boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void move(IProjectDescription description, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void delete(boolean force, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void delete(int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void delete(boolean force, boolean keepHistory, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void createLink(IPath localLocation, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void createLink(URI location, int updateFlags, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void revertModificationStamp(long value) throws CoreException {
+		throw readOnly();
+	}
+
+	public long setLocalTimeStamp(long value) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDerived(boolean isDerived) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setDerived(boolean isDerived, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setHidden(boolean isHidden) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setLocal(boolean flag, int depth, IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setPersistentProperty(QualifiedName key, String value) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setSessionProperty(QualifiedName key, Object value) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setResourceAttributes(ResourceAttributes attributes) throws CoreException {
+		throw readOnly();
+	}
+
+	public void setTeamPrivateMember(boolean isTeamPrivate) throws CoreException {
+		throw readOnly();
+	}
+
+	public void touch(IProgressMonitor monitor) throws CoreException {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof IResource) {
+			IResource other = (IResource) obj;
+			return getType()==other.getType() && fullPath.equals(other.getFullPath());
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return fullPath.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return fullPath.toString();
+	}
+
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Presents a directory tree on disk as workspace resources, without needing a running workspace.
+ * The top level directories become projects, the others folders.
+ * <p>
+ * The resources can be asked anything a search would ask, see {@link SyntheticResource}.
+ * They can't be changed.
+ */
+public class SyntheticResources {
+
+	/**
+	 * The charset of all files.
+	 */
+	static final String CHARSET = "UTF-8";
+
+	private final File base;
+
+	/**
+	 * Resources for the directory tree at the given location.
+	 */
+	public SyntheticResources(File base) {
+		this.base = base;
+	}
+
+	/**
+	 * Resources that aren't backed by anything on disk. Every such resource exists, paths with a
+	 * file extension are files and the others are empty folders.
+	 */
+	public SyntheticResources() {
+		this(null);
+	}
+
+	/**
+	 * @return The projects, i.e. the top level directories of the tree.
+	 */
+	public IResource[] projects() {
+		File[] dirs = base.listFiles();
+		Arrays.sort(dirs);
+		IResource[] projects = new IResource[dirs.length];
+		for (int i = 0; i < dirs.length; i++) {
+			projects[i] = resource(dirs[i], new Path("/"+dirs[i].getName()));
+		}
+		return projects;
+	}
+
+	/**
+	 * @return The resource for a workspace path. The resource need not exist.
+	 */
+	public IResource resource(IPath fullPath) {
+		return resource(location(fullPath), fullPath.makeAbsolute());
+	}
+
+	IResource resource(File file, IPath fullPath) {
+		boolean isDirectory = file==null ? fullPath.getFileExtension()==null : file.isDirectory();
+		if (!isDirectory) {
+			return new SyntheticFile(this, file, fullPath);
+		} else if (fullPath.segmentCount()==1) {
+			return new SyntheticProject(this, file, fullPath);
+		}
+		return new SyntheticFolder(this, file, fullPath);
+	}
+
+	/**
+	 * @return The project or folder at a path, whether or not it looks like one.
+	 */
+	IContainer container(IPath fullPath) {
+		fullPath = fullPath.makeAbsolute();
+		if (fullPath.segmentCount()==1) {
+			return new SyntheticProject(this, location(fullPath), fullPath);
+		}
+		return folder(fullPath);
+	}
+
+	IFile file(IPath fullPath) {
+		return new SyntheticFile(this, location(fullPath), fullPath.makeAbsolute());
+	}
+
+	IFolder folder(IPath fullPath) {
+		return new SyntheticFolder(this, location(fullPath), fullPath.makeAbsolute());
+	}
+
+	private File location(IPath fullPath) {
+		return base==null ? null : new File(base, fullPath.toString());
+	}
+
+}
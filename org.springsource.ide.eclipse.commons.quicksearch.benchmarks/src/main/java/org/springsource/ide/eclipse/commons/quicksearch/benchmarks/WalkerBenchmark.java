@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
+import org.springsource.ide.eclipse.commons.quicksearch.core.ResourceWalker;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.LineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.MappedFileLineReader;
+
+/**
+ * End-to-end cost of a search: a {@link ResourceWalker} traverses a synthetic tree of projects
+ * in priority order, and every file it visits is read and its lines matched against a query.
+ * The tree lives on disk, so after the first iteration this measures a search with a warm
+ * OS file cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WalkerBenchmark {
+
+	@Param({"1", "4"})
+	public int workers;
+
+	@Param({"getFullPath", "Res*Walker"})
+	public String pattern;
+
+	private File dir;
+	private IResource[] projects;
+	private QuickTextQuery query;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = File.createTempFile("qsb", "");
+		dir.delete();
+		Corpus corpus = new Corpus();
+		for (int i = 0; i < 4; i++) {
+			corpus.tree(new File(dir, "project"+i), 3, 4, 8, 8000);
+		}
+		projects = new SyntheticResources(dir).projects();
+		query = new QuickTextQuery(pattern, false);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Corpus.delete(dir);
+	}
+
+	@Benchmark
+	public int walk() {
+		SearchingWalker walker = new SearchingWalker(query, projects);
+		walker.setWorkers(workers);
+		walker.run(new NullProgressMonitor());
+		return walker.matches.get();
+	}
+
+	private static class SearchingWalker extends ResourceWalker {
+
+		private final QuickTextQuery query;
+		final AtomicInteger matches = new AtomicInteger();
+
+		SearchingWalker(QuickTextQuery query, IResource[] roots) {
+			super(roots);
+			this.query = query;
+		}
+
+		@Override
+		protected void visit(IFile f, IProgressMonitor m) {
+			try {
+				ILineReader lines = new MappedFileLineReader(f.getLocation().toFile(), f.getCharset(), LineReader.DEFAULT_MAX_LINE_LENGTH);
+				try {
+					while (lines.nextLine()) {
+						int start = lines.getLineStart();
+						if (query.matchItem(lines.getLineBuffer(), start, start+lines.getLineLength())) {
+							matches.incrementAndGet();
+						}
+					}
+				} finally {
+					lines.close();
+				}
+			} catch (Exception e) {
+				//Line too long, the searcher skips the rest of the file.
+			}
+		}
+	}
+
+}
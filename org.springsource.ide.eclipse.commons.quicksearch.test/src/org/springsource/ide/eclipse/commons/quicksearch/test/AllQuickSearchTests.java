@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+/**
+ * Runs all automated tests for QuickSearch.
+ */
+@RunWith(Suite.class)
+@SuiteClasses({
+	PrioriTreeTest.class,
+	IgnorePatternsTest.class,
+	UsageHistoryTest.class,
+	RegexTest.class,
+	ResultBatcherTest.class,
+	MappedFileLineReaderTest.class,
+	QuickTextQueryTest.class
+})
+public class AllQuickSearchTests {
+
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import static org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnorePatterns.IGNORED;
+import static org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnorePatterns.INCLUDED;
+import static org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnorePatterns.NO_MATCH;
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.Path;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnorePatterns;
+
+public class IgnorePatternsTest extends TestCase {
+
+	public void testNames() {
+		assertMatch(IGNORED, "node_modules", "/node_modules", true);
+		assertMatch(IGNORED, "node_modules", "/a/b/node_modules", true);
+		assertMatch(IGNORED, "*.min.js", "/js/jquery.min.js", false);
+		assertMatch(NO_MATCH, "*.min.js", "/js/jquery.js", false);
+		assertMatch(IGNORED, "f[a-c]o?", "/fbox", false);
+		assertMatch(NO_MATCH, "f[!a-c]o", "/fbo", false);
+	}
+
+	public void testDirectoryOnly() {
+		assertMatch(IGNORED, "dist/", "/dist", true);
+		assertMatch(NO_MATCH, "dist/", "/dist", false);
+	}
+
+	public void testAnchored() {
+		assertMatch(IGNORED, "/dist", "/dist", true);
+		assertMatch(NO_MATCH, "/dist", "/web/dist", true);
+		assertMatch(IGNORED, "docs/*.html", "/docs/index.html", false);
+		assertMatch(NO_MATCH, "docs/*.html", "/docs/api/index.html", false);
+	}
+
+	public void testDoubleStar() {
+		assertMatch(IGNORED, "**/generated", "/generated", true);
+		assertMatch(IGNORED, "**/generated", "/src/main/generated", true);
+		assertMatch(IGNORED, "src/**/gen", "/src/gen", true);
+		assertMatch(IGNORED, "src/**/gen", "/src/a/b/gen", true);
+		assertMatch(NO_MATCH, "build/**", "/build", true);
+		assertMatch(IGNORED, "build/**", "/build/classes", true);
+	}
+
+	public void testNegationAndComments() {
+		String[] patterns = { "# logs", "*.log", "!keep.log" };
+		assertEquals(IGNORED, IgnorePatterns.compile(patterns).match(new Path("/p/x.log"), 1, false));
+		assertEquals(INCLUDED, IgnorePatterns.compile(patterns).match(new Path("/p/keep.log"), 1, false));
+		assertEquals(NO_MATCH, IgnorePatterns.compile(patterns).match(new Path("/p/# logs"), 1, false));
+	}
+
+	private void assertMatch(int expected, String pattern, String path, boolean isDirectory) {
+		assertEquals(pattern+" : "+path,
+				expected, IgnorePatterns.compile(new String[] { pattern }).match(new Path(path), 0, isDirectory));
+	}
+
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.springsource.ide.eclipse.commons.quicksearch.util.ByteOrderMark;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.LineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.MappedFileLineReader;
+
+public class MappedFileLineReaderTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("quicksearch", ".txt");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	/**
+	 * Lines and offsets should be the same as LineReader's, whether the fast path applies or not and
+	 * whether the file is memory mapped or not.
+	 */
+	public void testSameAsLineReader() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			text.append("line ").append(i);
+			if (i%7==0) {
+				text.append(" caf\u00e9 \u20ac \ud83d\ude00");
+			}
+			text.append(i%3==0 ? "\r\n" : "\n");
+		}
+		for (String charset : new String[] { "UTF-8", "US-ASCII", "ISO-8859-1", "windows-1252", "UTF-16BE" }) {
+			byte[] bytes = text.toString().getBytes(charset);
+			write(bytes);
+			assertEquals(charset, read(new LineReader(new InputStreamReader(new ByteArrayInputStream(bytes), charset), 1000)),
+					read(new MappedFileLineReader(file, charset, 1000)));
+		}
+	}
+
+	public void testMalformed() throws Exception {
+		byte[] bytes = { 'a', (byte) 0xC3, 'b', '\n', (byte) 0xE2, (byte) 0x82, '\n', (byte) 0xF0, (byte) 0x9F };
+		write(bytes);
+		assertEquals(read(new LineReader(new InputStreamReader(new ByteArrayInputStream(bytes), "UTF-8"), 1000)),
+				read(new MappedFileLineReader(file, "UTF-8", 1000)));
+	}
+
+	/**
+	 * An incomplete char at the end of a file, well past the first window of bytes, is read as
+	 * a replacement char, like LineReader does.
+	 */
+	public void testTruncatedAtEnd() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			text.append("line \u00e9").append(i).append('\n');
+		}
+		text.append("last \u20ac");
+		for (String charset : new String[] { "UTF-8", "UTF-16BE" }) {
+			byte[] full = text.toString().getBytes(charset);
+			byte[] bytes = new byte[full.length-1];
+			System.arraycopy(full, 0, bytes, 0, bytes.length);
+			write(bytes);
+			List<String> lines = read(new MappedFileLineReader(file, charset, 1000));
+			assertEquals(charset, read(new LineReader(new InputStreamReader(new ByteArrayInputStream(bytes), charset), 1000)), lines);
+			assertEquals(charset, "last \ufffd", lines.get(lines.size()-1).substring(lines.get(lines.size()-1).indexOf(':')+1));
+		}
+	}
+
+	public void testBinary() throws Exception {
+		write(new byte[] { 'a', 'b', 0, 'c', '\n', 'd' });
+		MappedFileLineReader reader = new MappedFileLineReader(file, "UTF-8", 1000);
+		assertTrue(reader.isBinary());
+		assertFalse(reader.nextLine());
+	}
+
+	public void testByteOrderMark() throws Exception {
+		byte[] bytes = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', (byte) 0xC3, (byte) 0xA9 };
+		write(bytes);
+		assertEquals("[0:\ufeffa\u00e9]", read(new MappedFileLineReader(file, "ISO-8859-1", 1000)).toString());
+	}
+
+	/**
+	 * Readers over a stream should pick the same charset from the byte order mark.
+	 */
+	public void testByteOrderMarkStream() throws Exception {
+		byte[] bytes = "\ufeffab\u00e9\nc".getBytes("UTF-16LE");
+		write(bytes);
+		assertEquals(read(new MappedFileLineReader(file, "UTF-8", 1000)),
+				read(new LineReader(ByteOrderMark.newReader(new ByteArrayInputStream(bytes), "UTF-8"), 1000)));
+		assertEquals("[0:\ufeffab\u00e9, 5:c]", read(new MappedFileLineReader(file, "UTF-8", 1000)).toString());
+	}
+
+	private void write(byte[] bytes) throws Exception {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static List<String> read(ILineReader reader) throws Exception {
+		List<String> lines = new ArrayList<String>();
+		try {
+			while (reader.nextLine()) {
+				lines.add(reader.getLastLineOffset()+":"+reader.getLineString());
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+}
@@ -141,6 +141,32 @@ public class PrioriTreeTest extends TestCase {
 		checkPriority(PRIORITY_IGNORE,  "/promoted/other/big.zip");
 	}
 	
+	/**
+	 * Paths that share only part of a longer path already in the tree.
+	 */
+	public void testPartlyOverlappingPaths() {
+		setPriority("/a/b/c/d", 50.0);
+		setPriority("/a/b/x", 100.0);
+		setPriority("/a/b/c/d/e/f", 10.0);
+		
+		checkPriority(100.0, "/a");
+		checkPriority(100.0, "/a/b");
+		checkPriority(50.0, "/a/b/c");
+		checkPriority(50.0, "/a/b/c/d");
+		checkPriority(50.0, "/a/b/c/d/e/f");
+		checkPriority(100.0, "/a/b/x");
+		checkPriority(100.0, "/a/b/x/y");
+		checkPriority(PRIORITY_DEFAULT, "/a/b/c/other");
+		checkPriority(PRIORITY_DEFAULT, "/a/other");
+		
+		//Raising the shared parent raises everything below it.
+		setPriority("/a", 200.0);
+		checkPriority(200.0, "/a/b/c/d/e/f");
+		checkPriority(200.0, "/a/b/x");
+		checkPriority(200.0, "/a/other");
+		checkPriority(PRIORITY_DEFAULT, "/other");
+	}
+	
 	private void setPriority(String pathStr, double pri) {
 		tree.setPriority(new Path(pathStr), pri);
 	}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import junit.framework.TestCase;
+
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
+
+public class QuickTextQueryTest extends TestCase {
+
+	public void testLiteralMatch() {
+		assertMatch(true, "foo", true, "some foo here");
+		assertMatch(false, "foo", true, "some Foo here");
+		assertMatch(true, "foo", false, "some FoO here");
+		assertMatch(false, "foo", false, "some fo o here");
+		assertMatch(true, "foo", true, "foo");
+		assertMatch(false, "foo", true, "fo");
+	}
+
+	public void testWildcards() {
+		assertMatch(true, "f?o", true, "xfzox");
+		assertMatch(false, "f?o", true, "fo");
+		assertMatch(true, "foo*bar", true, "foo and bar");
+		assertMatch(true, "foo*bar", true, "foobar");
+		assertMatch(false, "foo*bar", true, "bar and foo");
+		assertMatch(true, "a?c*a?c", false, "ABC ... aXc");
+		assertMatch(false, "a?c*a?c", false, "abcac");
+		assertMatch(true, "*", true, "");
+		assertMatch(true, "??", true, "ab");
+		assertMatch(false, "??", true, "a");
+	}
+
+	/**
+	 * The regexp based and garbage free matchers should agree with each other, and matching
+	 * should only look at the given region of a char buffer.
+	 */
+	public void testMatchCharBuffer() {
+		QuickTextQuery q = new QuickTextQuery("b?d", true);
+		char[] buf = "abcdefg".toCharArray();
+		assertTrue(q.matchItem(buf, 0, buf.length));
+		assertTrue(q.matchItem(buf, 1, 4));
+		assertFalse(q.matchItem(buf, 2, buf.length));
+		assertFalse(q.matchItem(buf, 0, 3));
+	}
+
+	public void testSubFilter() {
+		assertSubFilter(true, "foo", true, "xfooy", true);
+		assertSubFilter(true, "foo*bar", true, "xfoo*bary", true);
+		assertSubFilter(true, "foo*bar", true, "foo*bbar", true);
+		assertSubFilter(true, "foo*bar", true, "foobar", true);
+		assertSubFilter(true, "f?o", true, "foo", true);
+		assertSubFilter(true, "a*b", true, "xa*b?b", true);
+		assertSubFilter(true, "foo", false, "FOO", true);
+		assertSubFilter(true, "foo", false, "xFoO", false);
+
+		assertSubFilter(false, "foo", true, "foo", false);
+		assertSubFilter(false, "foo", true, "FOO", true);
+		assertSubFilter(false, "foo", true, "f?o", true);
+		assertSubFilter(false, "foo*bar", true, "foo*ba", true);
+		assertSubFilter(false, "foobar", true, "foo*bar", true);
+		assertSubFilter(false, "foo*bar", true, "bar*foo", true);
+		assertSubFilter(false, "", true, "foo", true);
+	}
+
+	private void assertSubFilter(boolean expected, String pattern, boolean caseSensitive, String otherPattern, boolean otherCaseSensitive) {
+		QuickTextQuery q = new QuickTextQuery(pattern, caseSensitive);
+		QuickTextQuery other = new QuickTextQuery(otherPattern, otherCaseSensitive);
+		assertEquals(q+" / "+other, expected, q.isSubFilter(other));
+	}
+
+	private void assertMatch(boolean expected, String pattern, boolean caseSensitive, String text) {
+		QuickTextQuery q = new QuickTextQuery(pattern, caseSensitive);
+		assertEquals(q+" / "+text, expected, q.matchItem(text));
+		char[] buf = ("<<"+text+">>").toCharArray();
+		assertEquals(q+" / "+text, expected, q.matchItem(buf, 2, 2+text.length()));
+		//Also compare with regexp based highlighting logic.
+		assertEquals(q+" / "+text, expected, pattern.length()==0 || !q.findAll(text).isEmpty());
+	}
+
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery.Mode;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery.TextRange;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.Regex;
+
+public class RegexTest extends TestCase {
+
+	private static final String[] PATTERNS = {
+		"foo", "f.o", "fo+", "fo*?o", "a|b|cd", "(ab)+c", "(?:x|y){2,3}z", "[a-c]+\\d", "[^a-z ]+",
+		"\\bfoo\\b", "\\Bo", "^foo", "bar$", "^$", "x?", "\\w+\\s*=\\s*\\w+", "(a|ab)(c|bcd)",
+		"\\Q*.\\E", "\\x41\\u0042", "[\\w.]+@[\\w.]+", "a{2}", "a{2,}", "a{0,2}?b", "(?<name>ab)c",
+		"[\\-\\]x]", "\\t|\\n"
+	};
+
+	private static final String[] TEXTS = {
+		"", "foo", "xfoo bar", "FOO=Bar", "afoob", "fooo", "abcd", "ababc", "xyz yyxz xyxyxyz",
+		"b2 c3 AB1", "key = value", "mail: a.b@c.d", "aab aaab b", "*.x", "AB", "-]x", "a\tb"
+	};
+
+	/**
+	 * Matches should be the same as java.util.regex's, case sensitive or not.
+	 */
+	public void testSameAsPattern() {
+		for (String p : PATTERNS) {
+			for (boolean caseSensitive : new boolean[] { true, false }) {
+				Regex regex = Regex.compile(p, caseSensitive);
+				assertNotNull(p, regex);
+				Pattern pattern = Pattern.compile(p, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+				for (String text : TEXTS) {
+					String msg = p+" / "+text+" / "+caseSensitive;
+					assertEquals(msg, pattern.matcher(text).find(), regex.find(text));
+					assertEquals(msg, pattern.matcher(text).find(), regex.find(("<"+text+">").toCharArray(), 1, text.length()+1));
+					assertEquals(msg, javaMatches(pattern, text), matches(p, caseSensitive, text));
+				}
+			}
+		}
+	}
+
+	public void testUnsupported() {
+		assertNull(Regex.compile("(a)\\1", true));
+		assertNull(Regex.compile("a(?=b)", true));
+		assertNull(Regex.compile("a++", true));
+		//Still matched, with java.util.regex.
+		assertEquals(Arrays.asList("0:2"), matches("(a)\\1", true, "aab"));
+	}
+
+	public void testInvalid() {
+		QuickTextQuery q = new QuickTextQuery("a(b", true, Mode.REGEX);
+		assertNotNull(q.getError());
+		assertTrue(q.isTrivial());
+		assertFalse(q.matchItem("a(b"));
+	}
+
+	public void testWholeWord() {
+		assertWholeWord(true, "foo", "a foo b");
+		assertWholeWord(true, "foo", "foo");
+		assertWholeWord(false, "foo", "foobar");
+		assertWholeWord(false, "foo", "_foo");
+		assertWholeWord(true, "foo", "foo_x foo.");
+		assertWholeWord(true, "f?o", "(fxo)");
+		assertWholeWord(true, "get*Name", "getFullName()");
+		assertEquals(Arrays.asList("2:5"), matches(new QuickTextQuery("foo", true, Mode.WHOLE_WORD), "a foo b"));
+	}
+
+	public void testLiterals() {
+		assertEquals(Arrays.asList("foo", "bar"), new QuickTextQuery("foo.*bar", true, Mode.REGEX).getLiteralSegments());
+		assertEquals(Arrays.asList("xa", "ab"), new QuickTextQuery("xa+b", true, Mode.REGEX).getLiteralSegments());
+		assertEquals(Arrays.asList("*.x"), new QuickTextQuery("\\Q*.x\\E", true, Mode.REGEX).getLiteralSegments());
+		assertEquals(Arrays.asList(), new QuickTextQuery("foo|bar", true, Mode.REGEX).getLiteralSegments());
+		assertEquals("foo", Regex.compile("foo\\d+bar", true).getLiteralPrefix());
+	}
+
+	/**
+	 * Patterns that make a backtracking matcher take exponential time don't bother an automaton.
+	 */
+	public void testPathological() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			text.append('a');
+		}
+		long start = System.currentTimeMillis();
+		assertFalse(new QuickTextQuery("(a|aa)*b", true, Mode.REGEX).matchItem(text.toString()));
+		//Back references need backtracking: gives up instead.
+		assertFalse(new QuickTextQuery("(a|aa)*\\1b", true, Mode.REGEX).matchItem(text.substring(0, 40)));
+		assertTrue(System.currentTimeMillis()-start < 10000);
+	}
+
+	private void assertWholeWord(boolean expected, String pattern, String text) {
+		QuickTextQuery q = new QuickTextQuery(pattern, true, Mode.WHOLE_WORD);
+		assertEquals(pattern+" / "+text, expected, q.matchItem(text));
+		char[] buf = text.toCharArray();
+		assertEquals(pattern+" / "+text, expected, q.matchItem(buf, 0, buf.length));
+	}
+
+	private static List<String> matches(String regex, boolean caseSensitive, String text) {
+		return matches(new QuickTextQuery(regex, caseSensitive, Mode.REGEX), text);
+	}
+
+	private static List<String> matches(QuickTextQuery q, String text) {
+		List<String> result = new ArrayList<String>();
+		for (TextRange r : q.findAll(text)) {
+			result.add(r.start+":"+(r.start+r.len));
+		}
+		return result;
+	}
+
+	private static List<String> javaMatches(Pattern pattern, String text) {
+		List<String> result = new ArrayList<String>();
+		Matcher m = pattern.matcher(text);
+		while (m.find()) {
+			result.add(m.start()+":"+m.end());
+		}
+		return result;
+	}
+
+}
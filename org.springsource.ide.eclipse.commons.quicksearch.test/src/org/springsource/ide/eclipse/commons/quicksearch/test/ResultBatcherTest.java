@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.springsource.ide.eclipse.commons.quicksearch.core.LineItem;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextSearchRequestor;
+import org.springsource.ide.eclipse.commons.quicksearch.core.ResultBatcher;
+
+public class ResultBatcherTest extends TestCase {
+
+	/**
+	 * Records the calls it gets.
+	 */
+	private static class Recorder extends QuickTextSearchRequestor {
+		final List<String> calls = new ArrayList<String>();
+
+		@Override
+		public void add(LineItem match) {
+			calls.add("add "+match.getLineNumber());
+		}
+		@Override
+		public void update(LineItem match) {
+			calls.add("update "+match.getLineNumber());
+		}
+		@Override
+		public void revoke(LineItem line) {
+			calls.add("revoke "+line.getLineNumber());
+		}
+		@Override
+		public void clear() {
+			calls.add("clear");
+		}
+	}
+
+	private int notifications = 0;
+
+	private ResultBatcher createBatcher(int capacity) {
+		return new ResultBatcher(capacity, new Runnable() {
+			public void run() {
+				notifications++;
+			}
+		});
+	}
+
+	private static LineItem line(int n) {
+		return new LineItem(null, "line "+n, n, 0);
+	}
+
+	public void testChunksAndNotifications() {
+		ResultBatcher batcher = createBatcher(100);
+		for (int i = 1; i <= 5; i++) {
+			batcher.add(line(i));
+		}
+		assertEquals(1, notifications);
+		Recorder r = new Recorder();
+		assertTrue(batcher.flush(r, 3));
+		assertEquals("[add 1, add 2, add 3]", r.calls.toString());
+		assertFalse(batcher.flush(r, 3));
+		assertEquals("[add 1, add 2, add 3, add 4, add 5]", r.calls.toString());
+		//Drained: the next result notifies again.
+		batcher.add(line(6));
+		assertEquals(2, notifications);
+	}
+
+	public void testCoalesce() {
+		ResultBatcher batcher = createBatcher(100);
+		Recorder r = new Recorder();
+		batcher.add(line(1));
+		batcher.add(line(2));
+		batcher.flush(r, 100);
+		r.calls.clear();
+
+		batcher.add(line(3));
+		batcher.update(line(3));
+		batcher.revoke(line(3));
+		batcher.update(line(1));
+		batcher.update(line(1));
+		batcher.revoke(line(2));
+		batcher.flush(r, 100);
+		assertEquals("[update 1, revoke 2]", r.calls.toString());
+		r.calls.clear();
+
+		batcher.add(line(4));
+		batcher.clear();
+		batcher.add(line(5));
+		batcher.flush(r, 100);
+		assertEquals("[clear, add 5]", r.calls.toString());
+	}
+
+	public void testBackpressure() throws Exception {
+		final ResultBatcher batcher = createBatcher(2);
+		final int[] added = { 0 };
+		Thread producer = new Thread() {
+			public void run() {
+				for (int i = 1; i <= 4; i++) {
+					batcher.add(line(i));
+					synchronized (added) {
+						added[0] = i;
+					}
+				}
+			}
+		};
+		producer.start();
+		Thread.sleep(200);
+		synchronized (added) {
+			assertEquals(2, added[0]);
+		}
+		Recorder r = new Recorder();
+		batcher.flush(r, 100);
+		producer.join(5000);
+		synchronized (added) {
+			assertEquals(4, added[0]);
+		}
+		batcher.flush(r, 100);
+		assertEquals("[add 1, add 2, add 3, add 4]", r.calls.toString());
+	}
+
+	public void testDisposeReleasesProducer() throws Exception {
+		final ResultBatcher batcher = createBatcher(1);
+		batcher.add(line(1));
+		Thread producer = new Thread() {
+			public void run() {
+				batcher.add(line(2));
+			}
+		};
+		producer.start();
+		batcher.dispose();
+		producer.join(5000);
+		assertFalse(producer.isAlive());
+	}
+
+}
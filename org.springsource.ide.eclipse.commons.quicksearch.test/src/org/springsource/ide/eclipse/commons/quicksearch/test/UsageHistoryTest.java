@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.test;
+
+import static org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction.PRIORITY_DEFAULT;
+import static org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction.PRIORITY_INTERESTING;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.Path;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PrioriTree;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.UsageHistory;
+
+public class UsageHistoryTest extends TestCase {
+
+	private static final long NOW = 1000L * UsageHistory.HALF_LIFE;
+
+	public void testDecay() {
+		UsageHistory history = new UsageHistory(null);
+		history.record(new Path("/p/src/A.java"), NOW);
+		history.record(new Path("/p/src/A.java"), NOW);
+		assertEquals(2.0, history.getScore(new Path("/p/src/A.java"), NOW), 1e-9);
+		assertEquals(1.0, history.getScore(new Path("/p/src/A.java"), NOW + UsageHistory.HALF_LIFE), 1e-9);
+		//The folder counts the opens of all the files in it.
+		history.record(new Path("/p/src/B.java"), NOW);
+		assertEquals(3.0, history.getScore(new Path("/p/src"), NOW), 1e-9);
+		assertEquals(0.0, history.getScore(new Path("/p/other"), NOW), 0.0);
+	}
+
+	public void testSizeCap() {
+		UsageHistory history = new UsageHistory(null);
+		history.record(new Path("/p/Often.java"), NOW);
+		history.record(new Path("/p/Often.java"), NOW);
+		for (int i = 0; i < UsageHistory.MAX_ENTRIES; i++) {
+			history.record(new Path("/p/F"+i+".java"), NOW);
+		}
+		assertEquals(2.0, history.getScore(new Path("/p/Often.java"), NOW), 1e-9);
+		int kept = 0;
+		for (int i = 0; i < UsageHistory.MAX_ENTRIES; i++) {
+			if (history.getScore(new Path("/p/F"+i+".java"), NOW)>0) {
+				kept++;
+			}
+		}
+		//The folder and 'Often.java' score higher than any of the others.
+		assertEquals(UsageHistory.MAX_ENTRIES-2, kept);
+	}
+
+	public void testPersistence() throws Exception {
+		File file = File.createTempFile("usage", ".history");
+		try {
+			file.delete();
+			UsageHistory history = new UsageHistory(file);
+			history.record(new Path("/p/src/A.java"), NOW);
+			//Written later, in the background.
+			assertFalse(file.isFile());
+			history.flush();
+			assertTrue(file.isFile());
+
+			UsageHistory loaded = new UsageHistory(file);
+			assertEquals(1.0, loaded.getScore(new Path("/p/src/A.java"), NOW), 1e-9);
+			assertEquals(1.0, loaded.getScore(new Path("/p/src"), NOW), 1e-9);
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testApplyTo() {
+		UsageHistory history = new UsageHistory(null);
+		history.record(new Path("/p/src/A.java"), NOW);
+		history.record(new Path("/p/src/A.java"), NOW);
+		history.record(new Path("/q/B.java"), NOW - 5 * UsageHistory.HALF_LIFE);
+		PrioriTree tree = PrioriTree.create();
+		history.applyTo(tree, NOW);
+
+		double a = tree.priority(new MockResource("/p/src/A.java"));
+		double sibling = tree.priority(new MockResource("/p/src/C.java"));
+		double b = tree.priority(new MockResource("/q/B.java"));
+		assertTrue(a > sibling);
+		assertTrue(sibling > b);
+		assertTrue(b > PRIORITY_DEFAULT);
+		assertTrue(a < PRIORITY_INTERESTING);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * Remembers which files were searched completely without finding a match. A file without matches
+ * for some query also has no matches for any refinement of that query (see
+ * {@link QuickTextQuery#isSubFilter(QuickTextQuery)}), so such files can be skipped when the search
+ * is restarted with a query that is a refinement of one the file was searched with.
+ * <p>
+ * Files are grouped by the query they were searched for. When the query changes, groups
+ * for queries that the new query doesn't refine are dropped. Each file's modification stamp
+ * is kept as well, so that files changed since they were searched are searched again.
+ * <p>
+ * This class is thread safe.
+ */
+class KnownNoMatches {
+
+	/**
+	 * Limits the number of groups. When exceeded the oldest (i.e. most general) groups are dropped.
+	 */
+	private static final int MAX_GROUPS = 8;
+
+	private static class Group {
+		final QuickTextQuery query;
+		final Map<IFile, Long> files = new HashMap<IFile, Long>();
+		Group(QuickTextQuery query) {
+			this.query = query;
+		}
+	}
+
+	/**
+	 * Groups, oldest first. The last group is for the current query.
+	 */
+	private final List<Group> groups = new ArrayList<Group>();
+
+	public KnownNoMatches(QuickTextQuery query) {
+		groups.add(new Group(query));
+	}
+
+	/**
+	 * Change the current query. Knowledge that doesn't apply to the new query is discarded.
+	 */
+	public synchronized void setQuery(QuickTextQuery query) {
+		Iterator<Group> iter = groups.iterator();
+		while (iter.hasNext()) {
+			QuickTextQuery q = iter.next().query;
+			if (!q.equalsFilter(query) && !q.isSubFilter(query)) {
+				iter.remove();
+			}
+		}
+		groups.add(new Group(query));
+		while (groups.size()>MAX_GROUPS) {
+			groups.remove(0);
+		}
+	}
+
+	/**
+	 * Record that a file was searched completely for the current query, without finding a match.
+	 *
+	 * @param stamp The modification stamp of the file at the time it was searched.
+	 */
+	public synchronized void add(IFile f, long stamp) {
+		groups.get(groups.size()-1).files.put(f, stamp);
+	}
+
+	/**
+	 * @return true if the file is known to have no matches for the current query.
+	 */
+	public synchronized boolean contains(IFile f) {
+		long stamp = f.getModificationStamp();
+		for (Group g : groups) {
+			Long known = g.files.get(f);
+			if (known!=null && known==stamp) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -10,8 +10,12 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core;
 
+import java.util.List;
+
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.search.internal.ui.text.FileMatch;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery.TextRange;
 
 @SuppressWarnings("restriction")
 public class LineItem {
@@ -21,6 +25,62 @@ public class LineItem {
 	int lineNumber;
 	int lineOffset;
 
+	/**
+	 * Matches in the line's text, computed by the searcher so that the UI doesn't have to.
+	 */
+	private volatile Highlights highlights;
+
+	/**
+	 * Lines of text around this line, for showing the match in context. May be null.
+	 */
+	private volatile Context context;
+
+	private static final class Highlights {
+		final QuickTextQuery query;
+		final List<TextRange> ranges;
+		Highlights(QuickTextQuery query, List<TextRange> ranges) {
+			this.query = query;
+			this.ranges = ranges;
+		}
+	}
+
+	/**
+	 * A number of consecutive lines from the file, as they were when it was searched.
+	 */
+	public static final class Context {
+		private final int firstLine;
+		private final String[] lines;
+		private final boolean endOfFile;
+		private final long stamp;
+		public Context(int firstLine, String[] lines, boolean endOfFile, long stamp) {
+			this.firstLine = firstLine;
+			this.lines = lines;
+			this.endOfFile = endOfFile;
+			this.stamp = stamp;
+		}
+		/**
+		 * @return Line number (1 based) of the first line.
+		 */
+		public int getFirstLine() {
+			return firstLine;
+		}
+		public String[] getLines() {
+			return lines;
+		}
+		/**
+		 * @return Whether the last line is the last line of the file.
+		 */
+		public boolean isEndOfFile() {
+			return endOfFile;
+		}
+		/**
+		 * @return Modification stamp of the file when the lines were read.
+		 */
+		public long getStamp() {
+			return stamp;
+		}
+	}
+
 	public LineItem(IFile f, String line, int lineNumber, int lineOffset) {
 		this.f = f;
 		this.line = line;
@@ -37,7 +97,7 @@ public class LineItem {
 
 	@Override
 	public String toString() {
-		return lineNumber + ": " + line + "  (" +f.getProjectRelativePath() + ")";
+		return lineNumber + ": " + line + "  (" + (f==null ? null : f.getProjectRelativePath()) + ")";
 	}
 
 	public String getText() {
@@ -48,10 +108,21 @@ public class LineItem {
 		return lineNumber;
 	}
 
+	/**
+	 * @return The file containing the line. May be null for lines that are not in a workspace file.
+	 */
 	public IFile getFile() {
 		return this.f;
 	}
 
+	/**
+	 * @return A path identifying where the line is, suitable to show to the user. Null if
+	 *     the line is not in a workspace file and the subclass doesn't say where it is.
+	 */
+	public IPath getPath() {
+		return f==null ? null : f.getFullPath();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -84,6 +155,35 @@ public class LineItem {
 		return lineOffset;
 	}
 
+	/**
+	 * Compute and remember the matches of a query in this line. Meant to be called by
+	 * the searcher, in the background.
+	 */
+	public void computeHighlights(QuickTextQuery query) {
+		highlights = new Highlights(query, query.findAll(line));
+	}
+
+	/**
+	 * Get the matches of a query in this line. If they were not computed ahead of time for
+	 * this query, they are computed now.
+	 */
+	public List<TextRange> getHighlights(QuickTextQuery query) {
+		Highlights h = highlights;
+		if (h==null || !h.query.equalsFilter(query)) {
+			h = new Highlights(query, query.findAll(line));
+			highlights = h;
+		}
+		return h.ranges;
+	}
+
+	public Context getContext() {
+		return context;
+	}
+
+	public void setContext(Context context) {
+		this.context = context;
+	}
+
 	
 	
 }
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+import java.io.File;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.CharsetCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.FileContentCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.index.TrigramIndexer;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ByteOrderMark;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.LineReader;
+
+/**
+ * Reads the highest priority files in the workspace ahead of the first search, so that the
+ * search finds file system metadata, charsets and file contents already warmed up. The contents
+ * are added to the {@link FileContentCache} and the trigram index, if those are enabled.
+ * <p>
+ * Runs as a low priority system Job that walks the workspace in the same order a search would.
+ * It reads at most a given number of bytes, no faster than a given rate, and waits while a
+ * search is running so that it never competes with one. Only files on the local file system
+ * are read.
+ */
+public class Prewarmer extends ResourceWalker {
+
+	/**
+	 * Default number of bytes to read.
+	 */
+	public static final long DEFAULT_BUDGET = 64L*1024*1024;
+
+	/**
+	 * Default maximum reading rate, in bytes per second.
+	 */
+	public static final long DEFAULT_RATE = 4L*1024*1024;
+
+	/**
+	 * How long to wait before checking again whether searches are still running, in milliseconds.
+	 */
+	private static final long YIELD_DELAY = 250;
+
+	private final FileContentCache cache;
+	private final CharsetCache charsets;
+	private final TrigramIndexer indexer;
+	private final int maxLineLength;
+	private final long budget;
+	private final long bytesPerSecond;
+
+	//Only accessed by the walker's single worker thread.
+	private long bytesRead = 0;
+	private long startTime = -1;
+
+	/**
+	 * @param cache Cache to add the contents read to. May be null.
+	 * @param charsets Cache of the charsets files are decoded with. May be null.
+	 * @param indexer Indexer to index the files read with. May be null.
+	 * @param budget Stop after reading this many bytes.
+	 * @param bytesPerSecond Maximum average rate at which files are read.
+	 */
+	public Prewarmer(PriorityFunction priorities, FileContentCache cache, CharsetCache charsets,
+			TrigramIndexer indexer, int maxLineLength, long budget, long bytesPerSecond) {
+		this.cache = cache;
+		this.charsets = charsets;
+		this.indexer = indexer;
+		this.maxLineLength = maxLineLength;
+		this.budget = budget;
+		this.bytesPerSecond = Math.max(1, bytesPerSecond);
+		setName("QuickSearch Prewarming");
+		setPriorityFun(priorities);
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	@Override
+	protected boolean shouldVisit(IFile f) {
+		return bytesRead<budget;
+	}
+
+	@Override
+	protected void visit(IFile f, IProgressMonitor mon) {
+		if (!waitForSearches(mon)) {
+			return;
+		}
+		IPath location = f.getLocation();
+		File file = location==null ? null : location.toFile();
+		if (file==null || !file.isFile()) {
+			return;
+		}
+		if (startTime<0) {
+			startTime = System.currentTimeMillis();
+		}
+		boolean read = false;
+		try {
+			long stamp = f.getModificationStamp();
+			//Also finds out the charset, which the search would otherwise do first.
+			String charset = charsets==null ? f.getCharset() : charsets.getCharset(f);
+			if (cache==null || cache.get(f, charset, maxLineLength)==null) {
+				//Read like any other resource. Speed doesn't matter here, reading is throttled anyway.
+				ILineReader lr = new LineReader(ByteOrderMark.newReader(f.getContents(true), charset), maxLineLength);
+				if (cache!=null) {
+					lr = cache.record(f, stamp, charset, lr);
+				}
+				try {
+					while (lr.nextLine()) {
+						//Just read it.
+					}
+				} finally {
+					lr.close();
+				}
+				read = true;
+			}
+			if (indexer!=null) {
+				read |= indexer.indexFile(f);
+			}
+		} catch (Exception e) {
+			//Lines too long, file changed or not readable... The search will sort it out.
+		}
+		if (read) {
+			bytesRead += file.length();
+			if (bytesRead>=budget) {
+				cancel();
+			} else {
+				throttle(mon);
+			}
+		}
+	}
+
+	/**
+	 * Wait until no searches are running. The time spent waiting doesn't count towards the
+	 * reading rate, so reading doesn't speed up to catch up afterwards.
+	 *
+	 * @return false if the walker was canceled while waiting.
+	 */
+	private boolean waitForSearches(IProgressMonitor mon) {
+		long start = System.currentTimeMillis();
+		while (Job.getJobManager().find(QuickTextSearcher.JOB_FAMILY).length>0) {
+			if (!sleep(YIELD_DELAY, mon)) {
+				return false;
+			}
+		}
+		if (startTime>=0) {
+			startTime += System.currentTimeMillis()-start;
+		}
+		return !mon.isCanceled();
+	}
+
+	/**
+	 * Sleep as long as it takes to bring the average reading rate down to the maximum.
+	 */
+	private void throttle(IProgressMonitor mon) {
+		long ahead = bytesRead*1000/bytesPerSecond - (System.currentTimeMillis()-startTime);
+		if (ahead>0) {
+			sleep(ahead, mon);
+		}
+	}
+
+	/**
+	 * @return false if the walker was canceled or interrupted while sleeping.
+	 */
+	private static boolean sleep(long millis, IProgressMonitor mon) {
+		long end = System.currentTimeMillis()+millis;
+		long left;
+		while ((left = end-System.currentTimeMillis())>0) {
+			if (mon.isCanceled()) {
+				return false;
+			}
+			try {
+				Thread.sleep(Math.min(left, YIELD_DELAY));
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return !mon.isCanceled();
+	}
+
+}
@@ -10,13 +10,16 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jface.text.IRegion;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.Regex;
 
 
 /**
@@ -43,11 +46,55 @@ public class QuickTextQuery {
 		}
 	}
 
+	/**
+	 * How the pattern is interpreted.
+	 */
+	public static enum Mode {
+		/**
+		 * '*' matches any string and '?' any char. The rest is literal text.
+		 */
+		WILDCARD,
+		/**
+		 * Like {@link #WILDCARD}, but the match must not be preceded or followed by a word char.
+		 */
+		WHOLE_WORD,
+		/**
+		 * A {@link Pattern} regular expression.
+		 */
+		REGEX
+	}
+
+	/**
+	 * Budget of chars a {@link Pattern} that can't be turned into a {@link Regex} may look at to match
+	 * a line, on top of {@link #FALLBACK_BUDGET_PER_CHAR} for each char of the line. Patterns that
+	 * backtrack a lot give up on lines they exhaust the budget on, instead of freezing the search.
+	 */
+	private static final int FALLBACK_BUDGET = 10000;
+	private static final int FALLBACK_BUDGET_PER_CHAR = 50;
+
 	private boolean caseSensitive;
+	private Mode mode;
 	private String orgPattern; //Original pattern case preserved even if search is case insensitive.
 	private Matcher matcher;
 	private Pattern pattern;
 
+	/**
+	 * Fast, garbage-free matcher used for line matching. May be null, in which case
+	 * the (slower) regexp based pattern is used instead.
+	 */
+	private WildcardMatcher wildcardMatcher;
+
+	/**
+	 * Automaton based matcher for the {@link Mode#WHOLE_WORD} and {@link Mode#REGEX} modes. May be
+	 * null, in which case 'pattern' is used, with a budget.
+	 */
+	private Regex regex;
+
+	/**
+	 * Why the pattern is not valid, or null if it is.
+	 */
+	private String error;
+
 	/**
 	 * A query that matches anything.
 	 */
@@ -56,9 +103,27 @@ public class QuickTextQuery {
 	}
 	
 	public QuickTextQuery(String substring, boolean caseSensitive) {
-		this.orgPattern = substring;
+		this(substring, caseSensitive, Mode.WILDCARD);
+	}
+
+	public QuickTextQuery(String pattern, boolean caseSensitive, Mode mode) {
+		this.orgPattern = pattern;
 		this.caseSensitive = caseSensitive;
-		createMatcher(substring, caseSensitive);
+		this.mode = mode;
+		if (mode==Mode.REGEX) {
+			createRegex(pattern, caseSensitive);
+		} else {
+			createMatcher(pattern, caseSensitive);
+		}
+	}
+
+	private void createRegex(String patString, boolean caseSensitive) {
+		try {
+			this.regex = Regex.compile(patString, caseSensitive);
+			this.pattern = Pattern.compile(patString, caseSensitive?0:Pattern.CASE_INSENSITIVE);
+		} catch (PatternSyntaxException e) {
+			this.error = e.getDescription();
+		}
 	}
 
 	/**
@@ -83,8 +148,8 @@ public class QuickTextQuery {
 				break;
 // For now not supporting escapes with '\'.
 // If this code is enabled. Should also add special case code to deal with it
-// in isSubFilter method. The naive 'contains' test will be subtly broken for
-// patterns that end with '\' and '\*'  (one searches for a '\' and the other does not!).
+// in isSubFilter method. Its analysis treats every '*' and '?' as a wildcard, which would be
+// subtly broken for patterns that end with '\' and '\*'  (one searches for a '\' and the other does not!).
 //			case '\\': 
 //				if (pos+1<=len) {
 //					char nextChar = patString.charAt(pos+1);
@@ -103,6 +168,13 @@ public class QuickTextQuery {
 		//Don't forget to process that last segment.
 		appendSegment(segment, regexp);
 		
+		if (mode==Mode.WHOLE_WORD) {
+			//Same notion of word chars as the Regex's.
+			regexp.insert(0, "(?<![\\p{L}\\p{Nd}_])").append("(?![\\p{L}\\p{Nd}_])");
+			this.regex = Regex.wholeWord(patString, caseSensitive);
+		} else {
+			this.wildcardMatcher = new WildcardMatcher(patString, caseSensitive);
+		}
 		this.pattern = Pattern.compile(regexp.toString(), caseSensitive?0:Pattern.CASE_INSENSITIVE);
 		this.matcher = pattern.matcher("");
 	}
@@ -124,7 +196,7 @@ public class QuickTextQuery {
 	public boolean equalsFilter(QuickTextQuery o) {
 		//TODO: actually for case insensitive matches we could relax this and treat patterns that
 		// differ only in case as the same.
-		return this.caseSensitive == o.caseSensitive && this.orgPattern.equals(o.orgPattern);
+		return this.caseSensitive == o.caseSensitive && this.mode == o.mode && this.orgPattern.equals(o.orgPattern);
 	}
 
 	/**
@@ -135,19 +207,87 @@ public class QuickTextQuery {
 	 * If it is hard or impossible to decide whether other query is a specialisation of this query then this
 	 * method is allowed to 'punt' and just return false. However, the consequence of this is that the query 
 	 * will be re-run instead of incrementally updated.
+	 * <p>
+	 * A pattern 'P1*P2*...*Pn' matches a line if its parts occur in the line, in that order. So the other query
+	 * is a specialisation if each of our parts can be placed, in order and without overlap, within
+	 * the other query's parts, where a '?' in our part may cover any character but a '?' in the other query's
+	 * part can only be covered by a '?'. For example 'foo' is refined by 'xfoo', 'f?o' by 'foo' and
+	 * 'a*b' by 'xa*b?b'.
+	 * <p>
+	 * A whole word query only matches where the same wildcard query does, so it can refine a wildcard query
+	 * as well. Other combinations of modes are not analysed.
 	 */
 	public boolean isSubFilter(QuickTextQuery other) {
-		if (this.isTrivial()) {
+		if (this.isTrivial() || other.isTrivial()) {
 			return false;
 		}
-		if (this.caseSensitive==other.caseSensitive) {
-			if (this.caseSensitive) {
-				return other.orgPattern.contains(this.orgPattern);
-			} else {
-				return other.orgPattern.toLowerCase().contains(this.orgPattern.toLowerCase());
+		if (this.mode!=Mode.WILDCARD || other.mode==Mode.REGEX) {
+			return false;
+		}
+		if (this.caseSensitive && !other.caseSensitive) {
+			//Other query also matches lines we don't match because they differ in case.
+			return false;
+		}
+		//If we are case insensitive then so is the comparison. A case sensitive 'other' only
+		// matches a subset of what the case insensitive version of it matches.
+		String[] parts = this.orgPattern.split("\\*");
+		String[] otherParts = other.orgPattern.split("\\*");
+		int o = 0; //Index of the other part we are currently placing parts in.
+		int from = 0; //Position in that part from where parts can still be placed.
+		for (String part : parts) {
+			if (part.length()>0) {
+				int found = -1;
+				while (o<otherParts.length && (found = covers(part, otherParts[o], from))<0) {
+					o++;
+					from = 0;
+				}
+				if (found<0) {
+					return false;
+				}
+				from = found + part.length();
 			}
 		}
-		return false;
+		return true;
+	}
+
+	/**
+	 * Find the first position, at or after from, where part can be placed in a part of another pattern
+	 * so that any text matching the other part at that position also matches part.
+	 *
+	 * @return The position, or -1 if there is no such position.
+	 */
+	private int covers(String part, String otherPart, int from) {
+		int last = otherPart.length() - part.length();
+		for (int i = from; i <= last; i++) {
+			int j = 0;
+			while (j<part.length() && covers(part.charAt(j), otherPart.charAt(i+j))) {
+				j++;
+			}
+			if (j==part.length()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean covers(char c, char otherChar) {
+		if (c=='?') {
+			return true;
+		} else if (otherChar=='?') {
+			return false;
+		} else if (caseSensitive) {
+			return c==otherChar;
+		} else {
+			//Same (US-ASCII only) case folding as the matchers use.
+			return foldCase(c)==foldCase(otherChar);
+		}
+	}
+
+	private static char foldCase(char c) {
+		if (c>='A' && c<='Z') {
+			return (char) (c + ('a'-'A'));
+		}
+		return c;
 	}
 
 	/**
@@ -173,10 +313,88 @@ public class QuickTextQuery {
 	 * LineItem instances for non-matching lines.
 	 */
 	public boolean matchItem(String item) {
+		if (wildcardMatcher!=null) {
+			return wildcardMatcher.find(item);
+		}
+		if (regex!=null) {
+			return regex.find(item);
+		}
 		//Alternate implementation. This is thread safe without synchronized,
 		// but it creates some garbage.
-		Matcher matcher = pattern.matcher(item); //Creating garbage here
-		return matcher.find();
+		return fallbackFind(item);
+	}
+
+	/**
+	 * Same as matchItem but operates on a range of characters in a buffer. This allows
+	 * the searcher to test a line of text without first turning it into a String.
+	 * This method is thread safe and creates no garbage.
+	 *
+	 * @param start Start of the line in the buffer (inclusive)
+	 * @param end End of the line in the buffer (exclusive)
+	 */
+	public boolean matchItem(char[] buf, int start, int end) {
+		if (wildcardMatcher!=null) {
+			return wildcardMatcher.find(buf, start, end);
+		}
+		if (regex!=null) {
+			return regex.find(buf, start, end);
+		}
+		return fallbackFind(CharBuffer.wrap(buf, start, end-start));
+	}
+
+	private boolean fallbackFind(CharSequence text) {
+		if (pattern==null) {
+			return false;
+		}
+		try {
+			return pattern.matcher(new BudgetedText(text)).find();
+		} catch (BudgetExhausted e) {
+			return false;
+		}
+	}
+
+	private static final class BudgetExhausted extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	private static final BudgetExhausted BUDGET_EXHAUSTED = new BudgetExhausted();
+
+	/**
+	 * Text that throws {@link #BUDGET_EXHAUSTED} once a matcher has looked at too many of its chars.
+	 */
+	private static final class BudgetedText implements CharSequence {
+		private final CharSequence text;
+		private int budget;
+
+		BudgetedText(CharSequence text) {
+			this.text = text;
+			this.budget = FALLBACK_BUDGET + FALLBACK_BUDGET_PER_CHAR*text.length();
+		}
+
+		public char charAt(int index) {
+			if (--budget<0) {
+				throw BUDGET_EXHAUSTED;
+			}
+			return text.charAt(index);
+		}
+
+		public int length() {
+			return text.length();
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			return text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
 	}
 
 	/**
@@ -187,12 +405,23 @@ public class QuickTextQuery {
 	 * of the search.
 	 */
 	public boolean isTrivial() {
-		return "".equals(this.orgPattern);
+		return "".equals(this.orgPattern) || error!=null;
+	}
+
+	/**
+	 * @return Why the pattern is not a valid regular expression, or null if it is valid.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public Mode getMode() {
+		return mode;
 	}
 
 	@Override
 	public String toString() {
-		return "QTQuery("+orgPattern+", "+(caseSensitive?"caseSens":"caseInSens")+")";
+		return "QTQuery("+orgPattern+", "+(caseSensitive?"caseSens":"caseInSens")+", "+mode+")";
 	}
 
 //	public synchronized List<TextRange> findAll(String text) {
@@ -216,11 +445,25 @@ public class QuickTextQuery {
 			return Arrays.asList();
 		} else {
 			List<TextRange> ranges = new ArrayList<QuickTextQuery.TextRange>();
-			Matcher matcher = pattern.matcher(text);
-			while (matcher.find()) {
-				int start = matcher.start();
-				int end = matcher.end();
-				ranges.add(new TextRange(start, end-start));
+			if (regex!=null) {
+				int from = 0;
+				int[] match;
+				while (from<=text.length() && (match = regex.find(text, from))!=null) {
+					ranges.add(new TextRange(match[0], match[1]-match[0]));
+					//Like Matcher.find(), move on after an empty match.
+					from = match[1]>match[0] ? match[1] : match[1]+1;
+				}
+				return ranges;
+			}
+			Matcher matcher = pattern.matcher(mode==Mode.WILDCARD ? text : new BudgetedText(text));
+			try {
+				while (matcher.find()) {
+					int start = matcher.start();
+					int end = matcher.end();
+					ranges.add(new TextRange(start, end-start));
+				}
+			} catch (BudgetExhausted e) {
+				//Keep the matches found so far.
 			}
 			return ranges;
 		}
@@ -237,6 +480,40 @@ public class QuickTextQuery {
 		return null;
 	}
 	
+	/**
+	 * Splits the pattern into the literal pieces of text between its wildcards. Any line matching
+	 * the query must contain each of these literals (modulo case if the query is case insensitive).
+	 * This is useful to quickly discard files that can not possibly contain a match.
+	 * <p>
+	 * For regular expressions, these are the literals the automaton can't match without, if it is
+	 * supported. Otherwise there are none.
+	 */
+	public List<String> getLiteralSegments() {
+		if (mode==Mode.REGEX) {
+			if (regex==null) {
+				return new ArrayList<String>();
+			}
+			return new ArrayList<String>(regex.getLiteralSegments());
+		}
+		List<String> segments = new ArrayList<String>();
+		StringBuilder segment = new StringBuilder();
+		for (int i = 0; i < orgPattern.length(); i++) {
+			char c = orgPattern.charAt(i);
+			if (c=='*' || c=='?') {
+				if (segment.length()>0) {
+					segments.add(segment.toString());
+					segment.setLength(0);
+				}
+			} else {
+				segment.append(c);
+			}
+		}
+		if (segment.length()>0) {
+			segments.add(segment.toString());
+		}
+		return segments;
+	}
+
 	public String getPatternString() {
 		return orgPattern;
 	}
@@ -10,22 +10,52 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.CharsetCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.FileContentCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.index.TrigramIndex;
+import org.springsource.ide.eclipse.commons.quicksearch.core.jars.SourceAttachment;
+import org.springsource.ide.eclipse.commons.quicksearch.core.jars.ZipFilePool;
+import org.springsource.ide.eclipse.commons.quicksearch.core.index.TrigramIndex.Candidates;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ByteOrderMark;
 import org.springsource.ide.eclipse.commons.quicksearch.util.JobUtil;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
 import org.springsource.ide.eclipse.commons.quicksearch.util.LineReader;
+import org.springsource.ide.eclipse.commons.quicksearch.util.MappedFileLineReader;
 
 public class QuickTextSearcher {
+
+	/**
+	 * Family of the Jobs doing the work of a search. While any of them exist, a search is
+	 * running or about to.
+	 */
+	public static final Object JOB_FAMILY = QuickTextSearcher.class;
+
 	private final QuickTextSearchRequestor requestor;
 	private QuickTextQuery query;
 
@@ -53,10 +83,20 @@ public class QuickTextSearcher {
 	/**
 	 * If number of accumulated results reaches maxResults the search will be suspended.
 	 * <p>
-	 * Note that more results may still arrive beyond the limit since the searcher does not (yet) have the
-	 * capability to suspend/resume a search in the middle of a file.
+	 * A file with more matches than the limit allows is paused in the middle, and searched further
+	 * when more results are requested. Each worker may still add a few results beyond the limit.
 	 */
-	private int maxResults = 200;
+	private volatile int maxResults = 200;
+
+	/**
+	 * Number of lines before and after a match that are kept to show the match in context.
+	 */
+	private static final int CONTEXT_LINES = 25;
+
+	/**
+	 * Files with more matches than this only get context lines for their first matches.
+	 */
+	private static final int MAX_CONTEXTS_PER_FILE = 100;
 
 	/**
 	 * If a line of text is encountered longer than this, the searcher will stop searching
@@ -68,7 +108,53 @@ public class QuickTextSearcher {
 	 * While searching in a file, this field will be set. This can be used to show the name
 	 * of the 'current file' in the progress area of the quicksearch dialog.
 	 */
-	private IFile currentFile = null;
+	private volatile IFile currentFile = null;
+
+	/**
+	 * Optional index used to skip files that can not contain a match. May be null.
+	 */
+	private final TrigramIndex index;
+
+	/**
+	 * Optional cache of file contents shared with other searchers. May be null.
+	 */
+	private final FileContentCache cache;
+
+	/**
+	 * Optional cache of the charsets files are decoded with. May be null.
+	 */
+	private final CharsetCache charsets;
+
+	/**
+	 * Used to read source attachments of jars on the Java build path. Null if those
+	 * should not be searched.
+	 */
+	private final ZipFilePool sourceJars;
+
+	/**
+	 * Source attachments are searched after workspace files of default priority.
+	 */
+	private static final double SOURCE_JAR_PRIORITY = PriorityFunction.PRIORITY_DEFAULT - 1000;
+
+	/**
+	 * Searches paused in the middle of a source are continued before anything else.
+	 */
+	private static final double CONTINUATION_PRIORITY = Double.MAX_VALUE;
+
+	/**
+	 * Files already searched without finding a match. These are skipped when the search restarts
+	 * with a query for which they still can't match.
+	 */
+	private final KnownNoMatches noMatches;
+
+	/**
+	 * The part of the workspace that is searched.
+	 */
+	private final SearchScope scope;
+
+	public SearchScope getScope() {
+		return scope;
+	}
 
 	/**
 	 * Retrieves the current result limit.
@@ -82,59 +168,537 @@ public class QuickTextSearcher {
 	}
 
 	public QuickTextSearcher(QuickTextQuery query, PriorityFunction priorities, int maxLineLen, QuickTextSearchRequestor requestor) {
+		this(query, priorities, maxLineLen, null, null, null, 1, requestor);
+	}
+
+	/**
+	 * @param index Optional index used to skip files that can't match. May be null.
+	 * @param cache Optional cache of file contents to read from and add to. May be null.
+	 * @param sourceJars Pool used to read the source attachments of jars on the Java build path.
+	 *        If null, source attachments are not searched.
+	 * @param workers Number of threads used to search files concurrently.
+	 */
+	public QuickTextSearcher(QuickTextQuery query, PriorityFunction priorities, int maxLineLen, TrigramIndex index,
+			FileContentCache cache, ZipFilePool sourceJars, int workers, QuickTextSearchRequestor requestor) {
+		this(query, SearchScope.WORKSPACE, priorities, maxLineLen, index, cache, null, sourceJars, workers, requestor);
+	}
+
+	/**
+	 * @param scope The part of the workspace to search.
+	 * @param charsets Optional cache of the charsets files are decoded with. May be null.
+	 */
+	public QuickTextSearcher(QuickTextQuery query, SearchScope scope, PriorityFunction priorities, int maxLineLen,
+			TrigramIndex index, FileContentCache cache, CharsetCache charsets, ZipFilePool sourceJars, int workers,
+			QuickTextSearchRequestor requestor) {
 		this.requestor = requestor;
+		this.scope = scope;
 		this.query = query;
-		this.walker = createWalker(priorities);
+		this.index = index;
+		this.cache = cache;
+		this.charsets = charsets;
+		this.sourceJars = sourceJars;
+		this.noMatches = new KnownNoMatches(query);
 		this.MAX_LINE_LEN = maxLineLen;
+		this.walker = createWalker(priorities, workers);
 	}
 
-	private SearchInFilesWalker createWalker(PriorityFunction priorities) {
-		final SearchInFilesWalker job = new SearchInFilesWalker();
+	private SearchInFilesWalker createWalker(PriorityFunction priorities, int workers) {
+		final SearchInFilesWalker job = new SearchInFilesWalker(scope.getRoots());
 		job.setPriorityFun(priorities);
+		job.setWorkers(workers);
 		job.setRule(matchesRule);
 		job.schedule();
 		return job;
 	}
 
+	/**
+	 * Something to search: the text of a workspace file or of an entry in a source attachment.
+	 */
+	private abstract class Source {
+		/**
+		 * Identifies the version of the text that is searched, e.g. the file's modification stamp.
+		 */
+		final long stamp;
+
+		Source(long stamp) {
+			this.stamp = stamp;
+		}
+
+		abstract ILineReader open() throws Exception;
+
+		abstract LineItem createItem(String line, int lineNumber, int offset);
+
+		/**
+		 * Called when the source was searched completely without finding a match.
+		 */
+		void noMatches() {
+		}
+
+		/**
+		 * @return Whether the text hasn't changed since the stamp was taken.
+		 */
+		abstract boolean isUnchanged();
+	}
+
 	private final class SearchInFilesWalker extends ResourceWalker {
 
+		/**
+		 * Source attachments already added to the work queue. Several jars on the build path may
+		 * share the same source attachment, and the same jar may be on the build path of several projects.
+		 */
+		private Set<File> searchedArchives = new HashSet<File>();
+
+		/**
+		 * Searches paused in the middle of a source, waiting in the queue to continue.
+		 */
+		private Set<Continuation> continuations = new HashSet<Continuation>();
+
+		/**
+		 * Set once the searcher is canceled. No more searches are paused after that, since
+		 * nothing would resume or close them. Guarded by 'continuations'.
+		 */
+		private boolean closed = false;
+
+		/**
+		 * Candidate files according to the index, computed for 'candidatesQuery'.
+		 * Null if there is no index or the index can't narrow down the search for that query.
+		 */
+		private Candidates candidates = null;
+		private QuickTextQuery candidatesQuery = null;
+
+		SearchInFilesWalker(IResource[] roots) {
+			super(roots);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family==JOB_FAMILY;
+		}
+
+		@Override
+		protected boolean shouldVisit(IFile f) {
+			if (noMatches.contains(f)) {
+				return false;
+			}
+			if (index==null) {
+				return true;
+			}
+			Candidates c = getCandidates();
+			return c==null || c.mayMatch(f);
+		}
+
+		private synchronized Candidates getCandidates() {
+			QuickTextQuery q = query;
+			if (q!=candidatesQuery || (candidates!=null && !candidates.isCurrent())) {
+				candidates = index.getCandidates(q);
+				candidatesQuery = q;
+			}
+			return candidates;
+		}
 
 		@Override
-		protected void visit(IFile f, IProgressMonitor mon) {
+		protected void visit(final IFile f, IProgressMonitor mon) {
 			if (checkCanceled(mon)) {
 				return;
 			}
+			currentFile = f;
+			try {
+				search(new Source(f.getModificationStamp()) {
+					ILineReader open() throws Exception {
+						return openReader(f, stamp);
+					}
+					LineItem createItem(String line, int lineNumber, int offset) {
+						return new LineItem(f, line, lineNumber, offset);
+					}
+					void noMatches() {
+						noMatches.add(f, stamp);
+					}
+					boolean isUnchanged() {
+						return f.getModificationStamp()==stamp;
+					}
+				}, mon);
+			} finally {
+				currentFile = null;
+			}
+		}
+
+		@Override
+		protected void visitContainer(IContainer c, IProgressMonitor mon) {
+			if (sourceJars!=null && c.getType()==IResource.PROJECT) {
+				for (SourceAttachment sa : SourceAttachment.findAll((IProject) c)) {
+					boolean isNew;
+					synchronized (searchedArchives) {
+						isNew = searchedArchives.add(sa.getArchive());
+					}
+					if (isNew) {
+						enqueue(SOURCE_JAR_PRIORITY, new SearchSourceJar(sa));
+					}
+				}
+			}
+		}
 
+		@Override
+		protected void init() {
+			super.init();
+			//Note: init is also called by the super constructor, before our fields are initialized.
+			if (searchedArchives!=null) {
+				synchronized (searchedArchives) {
+					searchedArchives.clear();
+				}
+			}
+			closeContinuations();
+		}
 
-			LineReader lr = null;
-			currentFile = f;
+		/**
+		 * Close the readers of the searches paused in the middle of a source. The continuations
+		 * still in the queue do nothing when they run.
+		 */
+		void closeContinuations() {
+			//Note: also called by the super constructor through init().
+			if (continuations!=null) {
+				List<Continuation> closed;
+				synchronized (continuations) {
+					closed = new ArrayList<Continuation>(continuations);
+					continuations.clear();
+				}
+				for (Continuation c : closed) {
+					c.lr.close();
+				}
+			}
+		}
+
+		/**
+		 * Close the paused searches for good. Searches still running close their reader
+		 * instead of pausing.
+		 */
+		void close() {
+			synchronized (continuations) {
+				closed = true;
+			}
+			closeContinuations();
+		}
+
+		/**
+		 * Search a source and report the lines that match the query.
+		 */
+		private void search(Source src, IProgressMonitor mon) {
+			ILineReader lr;
 			try {
-				lr = new LineReader(new InputStreamReader(f.getContents(true), f.getCharset()), MAX_LINE_LEN);
-				String line = null;
-				int lineIndex = 1;
-				while ((line = lr.readLine()) != null) {
+				lr = src.open();
+			} catch (Exception e) {
+				return;
+			}
+			scan(src, lr, 1, false, mon);
+		}
+
+		/**
+		 * Read the lines of a source from a reader and report the lines that match the query,
+		 * as they are found. If the result limit is reached before the end of the source, the
+		 * scan is paused: the reader is kept open and a {@link Continuation} is added to the
+		 * queue to scan the rest.
+		 * <p>
+		 * Once a source is scanned completely in one go, the lines around its matches are read
+		 * for the matches already reported, see {@link #computeContexts(Source, List)}.
+		 *
+		 * @param lineIndex Number of the next line the reader returns.
+		 * @param hadMatches Whether earlier scans of the same source found matches.
+		 */
+		private void scan(Source src, ILineReader lr, int lineIndex, boolean hadMatches, IProgressMonitor mon) {
+			boolean fromStart = lineIndex==1;
+			//Matches that may get a context. Contexts of matches found after a pause are read by the UI as needed.
+			List<LineItem> found = null;
+			boolean complete = false;
+			boolean paused = false;
+			try {
+				while (lr.nextLine()) {
 					int offset = lr.getLastLineOffset();
 					if (checkCanceled(mon)) {
 						return;
 					}
 
-					boolean found = query.matchItem(line);
-					if (found) {
-						LineItem lineItem = new LineItem(f, line, lineIndex, offset);
+					//Only create a String for the line if it is a match.
+					int start = lr.getLineStart();
+					boolean matches = query.matchItem(lr.getLineBuffer(), start, start+lr.getLineLength());
+					if (matches) {
+						LineItem lineItem = src.createItem(lr.getLineString(), lineIndex, offset);
+						if (getMatchCount()>=maxResults) {
+							//Other sources filled up the results. Report this one when the search resumes.
+							paused = pause(new Continuation(src, lr, lineIndex+1, lineItem));
+							return;
+						}
+						lineItem.computeHighlights(query);
 						add(lineItem);
+						hadMatches = true;
+						if (fromStart) {
+							if (found==null) {
+								found = new ArrayList<LineItem>();
+							}
+							if (found.size()<MAX_CONTEXTS_PER_FILE) {
+								found.add(lineItem);
+							}
+						}
 					}
 
 					lineIndex++;
 				}
+				complete = true;
+				if (!hadMatches) {
+					src.noMatches();
+				}
 			} catch (Exception e) {
 			} finally {
-				currentFile = null;
-				if (lr != null) {
+				if (!paused) {
+					lr.close();
+				}
+			}
+			if (complete && found!=null && !checkCanceled(mon)) {
+				computeContexts(src, found);
+			}
+		}
+
+		/**
+		 * Queue the rest of a source, to be scanned when the search resumes.
+		 *
+		 * @return false if the searcher is closed, in which case the reader should be closed.
+		 */
+		private boolean pause(Continuation c) {
+			synchronized (continuations) {
+				if (closed) {
+					return false;
+				}
+				continuations.add(c);
+			}
+			enqueue(CONTINUATION_PRIORITY, c);
+			return true;
+		}
+
+		/**
+		 * The rest of a source whose search was paused because the result limit was reached.
+		 * Runs when the search resumes, i.e. when more results are requested.
+		 */
+		private class Continuation implements ExternalWork {
+			final Source src;
+			final ILineReader lr;
+			final int lineIndex;
+
+			/**
+			 * The match found when the result limit was already reached. May be null.
+			 */
+			final LineItem pending;
+
+			Continuation(Source src, ILineReader lr, int lineIndex, LineItem pending) {
+				this.src = src;
+				this.lr = lr;
+				this.lineIndex = lineIndex;
+				this.pending = pending;
+			}
+
+			public void run(IProgressMonitor mon) {
+				synchronized (continuations) {
+					if (!continuations.remove(this)) {
+						//Closed because the search restarted.
+						return;
+					}
+				}
+				if (checkCanceled(mon)) {
+					lr.close();
+					return;
+				}
+				if (!src.isUnchanged()) {
+					//Start over. The lines already reported are in 'matches', so they aren't reported twice.
 					lr.close();
+					search(src, mon);
+					return;
+				}
+				//The query may have been narrowed down in the meantime.
+				if (pending!=null && query.matchItem(pending)) {
+					pending.computeHighlights(query);
+					add(pending);
 				}
+				scan(src, lr, lineIndex, true, mon);
 			}
 		}
 
+		/**
+		 * Read the lines around the matches found in a source, so the UI can show them without
+		 * having to read the file itself.
+		 */
+		private void computeContexts(Source src, List<LineItem> found) {
+			int count = Math.min(found.size(), MAX_CONTEXTS_PER_FILE);
+			@SuppressWarnings("unchecked")
+			List<String>[] lines = new List[count];
+			ILineReader lr = null;
+			try {
+				if (!src.isUnchanged()) {
+					return;
+				}
+				lr = src.open();
+				int first = 0; //first item whose context isn't complete yet
+				int lineIndex = 1;
+				boolean more;
+				while ((more = lr.nextLine()) && first<count) {
+					String line = null;
+					for (int i = first; i < count; i++) {
+						int target = found.get(i).getLineNumber();
+						if (lineIndex < target-CONTEXT_LINES) {
+							break; //Lines come in order, so none of the next items need this line either.
+						}
+						if (lineIndex <= target+CONTEXT_LINES) {
+							if (line==null) {
+								line = lr.getLineString();
+							}
+							if (lines[i]==null) {
+								lines[i] = new ArrayList<String>(2*CONTEXT_LINES+1);
+							}
+							lines[i].add(line);
+						} else if (i==first) {
+							setContext(found.get(i), lines[i], false, src.stamp);
+							first++;
+						}
+					}
+					lineIndex++;
+				}
+				if (!more) {
+					for (int i = first; i < count; i++) {
+						setContext(found.get(i), lines[i], true, src.stamp);
+					}
+				}
+			} catch (Exception e) {
+				//Items without a context are fine, the UI will read the file instead.
+			} finally {
+				if (lr!=null) {
+					lr.close();
+				}
+			}
+		}
+
+		private void setContext(LineItem item, List<String> lines, boolean endOfFile, long stamp) {
+			if (lines!=null) {
+				int firstLine = Math.max(1, item.getLineNumber()-CONTEXT_LINES);
+				item.setContext(new LineItem.Context(firstLine, lines.toArray(new String[lines.size()]), endOfFile, stamp));
+			}
+		}
+
+		/**
+		 * Adds a work item for each java source file in a source attachment.
+		 */
+		private class SearchSourceJar implements ExternalWork {
+			private final SourceAttachment sa;
+
+			SearchSourceJar(SourceAttachment sa) {
+				this.sa = sa;
+			}
+
+			public void run(IProgressMonitor mon) {
+				ZipFile zip = null;
+				try {
+					zip = sourceJars.acquire(sa.getArchive());
+					Enumeration<? extends ZipEntry> entries = zip.entries();
+					while (entries.hasMoreElements() && !checkCanceled(mon)) {
+						ZipEntry entry = entries.nextElement();
+						String sourcePath = entry.isDirectory() ? null : sa.getSourcePath(entry.getName());
+						if (sourcePath!=null) {
+							enqueue(SOURCE_JAR_PRIORITY, new SearchSourceJarEntry(sa, entry.getName(), sourcePath));
+						}
+					}
+				} catch (IOException e) {
+					QuickSearchActivator.log(e);
+				} finally {
+					if (zip!=null) {
+						sourceJars.release(zip);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Searches a java source file in a source attachment. The entry is read straight
+		 * from the archive.
+		 */
+		private class SearchSourceJarEntry implements ExternalWork {
+			private final SourceAttachment sa;
+			private final String entryName;
+			private final String sourcePath;
+
+			SearchSourceJarEntry(SourceAttachment sa, String entryName, String sourcePath) {
+				this.sa = sa;
+				this.entryName = entryName;
+				this.sourcePath = sourcePath;
+			}
+
+			public void run(IProgressMonitor mon) {
+				if (checkCanceled(mon)) {
+					return;
+				}
+				final IPath archivePath = new Path(sa.getArchive().getAbsolutePath());
+				search(new Source(sa.getArchive().lastModified()) {
+					ILineReader open() throws Exception {
+						final ZipFile zip = sourceJars.acquire(sa.getArchive());
+						try {
+							ZipEntry entry = zip.getEntry(entryName);
+							if (entry==null) {
+								throw new IOException("Entry not found: "+entryName);
+							}
+							Reader reader = new InputStreamReader(zip.getInputStream(entry), sa.getCharset());
+							return new LineReader(reader, MAX_LINE_LEN) {
+								private boolean released = false;
+								@Override
+								public void close() {
+									super.close();
+									synchronized (this) {
+										if (released) {
+											return;
+										}
+										released = true;
+									}
+									sourceJars.release(zip);
+								}
+							};
+						} catch (IOException e) {
+							sourceJars.release(zip);
+							throw e;
+						}
+					}
+					LineItem createItem(String line, int lineNumber, int offset) {
+						return new SourceJarLineItem(sa.getPackageFragmentRoot(), archivePath, entryName, sourcePath,
+								line, lineNumber, offset);
+					}
+					boolean isUnchanged() {
+						return sa.getArchive().lastModified()==stamp;
+					}
+				}, mon);
+			}
+		}
+
+		/**
+		 * Files that are in the cache are read from there. Files that live on the local file
+		 * system are read in bulk through NIO. Anything else (e.g. linked resources on a remote
+		 * file system) is read through the resource's stream.
+		 *
+		 * @param stamp Modification stamp of the file, taken before opening it.
+		 */
+		private ILineReader openReader(IFile f, long stamp) throws Exception {
+			String charset = charsets==null ? f.getCharset() : charsets.getCharset(f);
+			if (cache!=null) {
+				ILineReader cached = cache.get(f, charset, MAX_LINE_LEN);
+				if (cached!=null) {
+					return cached;
+				}
+			}
+			ILineReader lr = null;
+			IPath location = f.getLocation();
+			if (location!=null) {
+				File file = location.toFile();
+				if (file.isFile()) {
+					lr = new MappedFileLineReader(file, charset, MAX_LINE_LEN);
+				}
+			}
+			if (lr==null) {
+				lr = new LineReader(ByteOrderMark.newReader(f.getContents(true), charset), MAX_LINE_LEN);
+			}
+			return cache==null ? lr : cache.record(f, stamp, charset, lr);
+		}
+
 //		@Override
 //		protected void visit(IFile f, IProgressMonitor mon) {
 //			if (checkCanceled(mon)) {
@@ -160,7 +724,7 @@ public class QuickTextSearcher {
 		@Override
 		public void resume() {
 			//Only resume if we don't already exceed the maxResult limit.
-			if (matches.size()<maxResults) {
+			if (getMatchCount()<maxResults) {
 				super.resume();
 			}
 		}
@@ -170,7 +734,7 @@ public class QuickTextSearcher {
 		}
 
 		public void requestMoreResults() {
-			int currentSize = matches.size();
+			int currentSize = getMatchCount();
 			maxResults = Math.max(maxResults, currentSize + currentSize/10);
 			resume();
 		}
@@ -193,11 +757,17 @@ public class QuickTextSearcher {
 			// there's a 'newQuery' set by the user/client.
 		}
 
+		@Override
+		public boolean belongsTo(Object family) {
+			return family==JOB_FAMILY;
+		}
+
 		@Override
 		protected IStatus run(IProgressMonitor monitor) {
 			QuickTextQuery nq = newQuery; //Copy into local variable to avoid
 										  // problems if another thread changes newQuery while we
 										  // are still mucking with it.
+			noMatches.setQuery(nq);
 			if (query.isSubFilter(nq)) {
 				query = nq;
 				performIncrementalUpdate(monitor);
@@ -215,6 +785,7 @@ public class QuickTextSearcher {
 				LineItem item = items.next();
 				if (query.matchItem(item)) {
 					//Match still valid but may need updating highlighted text in the UI:
+					item.computeHighlights(query);
 					requestor.update(item);
 				} else {
 					items.remove();
@@ -245,11 +816,23 @@ public class QuickTextSearcher {
 
 	}
 
+	/**
+	 * @return The number of matches found so far. Safe to call from the walker's threads.
+	 */
+	private int getMatchCount() {
+		synchronized (matches) {
+			return matches.size();
+		}
+	}
+
 	private void add(LineItem line) {
-		if (matches.add(line)) {
-			requestor.add(line);
-			if (matches.size() >= maxResults) {
-				walker.suspend();
+		//May be called from several walker threads at once.
+		synchronized (matches) {
+			if (matches.add(line)) {
+				requestor.add(line);
+				if (matches.size() >= maxResults) {
+					walker.suspend();
+				}
 			}
 		}
 	}
@@ -296,6 +879,7 @@ public class QuickTextSearcher {
 	public void cancel() {
 		if (walker!=null) {
 			walker.cancel();
+			walker.close();
 			walker = null;
 		}
 	}
@@ -10,7 +10,14 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -18,11 +25,14 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.DefaultPriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnoreFiles;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.IgnorePatterns;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction;
 import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
 
@@ -31,6 +41,14 @@ import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
  * to the resources to decide the ordering and completely ignore some resources.
  * <p>
  * The walker can also be paused and resumed.
+ * <p>
+ * Optionally, several worker threads can process the queue concurrently (see {@link #setWorkers(int)}).
+ * In that case subclasses must be prepared for {@link #visit(IFile, IProgressMonitor)} and
+ * {@link #shouldVisit(IFile)} to be called from several threads at once.
+ * <p>
+ * If the priority function asks for it (see {@link PriorityFunction#isUsingIgnoreFiles()}), the
+ * walker also reads the '.gitignore' and '.ignore' files in the containers it visits, and
+ * doesn't enqueue the resources they exclude.
  * 
  * @author Kris De Volder
  */
@@ -39,10 +57,21 @@ public abstract class ResourceWalker extends Job {
 	private class QItem implements Comparable<QItem> {
 		public final double priority;
 		public final IResource resource;
+		public final ExternalWork work;
+		public final IgnoreScope ignores;
 		
-		public QItem(double p, IResource r) {
+		public QItem(double p, IResource r, IgnoreScope ignores) {
 			this.priority = p;
 			this.resource = r;
+			this.work = null;
+			this.ignores = ignores;
+		}
+
+		public QItem(double p, ExternalWork w) {
+			this.priority = p;
+			this.resource = null;
+			this.work = w;
+			this.ignores = null;
 		}
 		
 		public int compareTo(QItem other) {
@@ -50,28 +79,123 @@ public abstract class ResourceWalker extends Job {
 		}
 	}
 
+	/**
+	 * The ignore patterns that apply to the members of a container: those of the container's own ignore
+	 * files, followed by those of its ancestors. This forms a stack, with a frame for each
+	 * container with ignore files on the path from the walk's root. Frames are shared by all
+	 * the containers below them.
+	 */
+	private static final class IgnoreScope {
+		final IgnorePatterns patterns;
+		/**
+		 * Number of segments in the path of the container whose ignore files these are.
+		 */
+		final int base;
+		final IgnoreScope parent;
+
+		IgnoreScope(IgnorePatterns patterns, int base, IgnoreScope parent) {
+			this.patterns = patterns;
+			this.base = base;
+			this.parent = parent;
+		}
+
+		/**
+		 * Like git, patterns in a deeper directory override those higher up.
+		 */
+		boolean isIgnored(IResource r) {
+			IPath path = r.getFullPath();
+			boolean isDirectory = r.getType()!=IResource.FILE;
+			for (IgnoreScope s = this; s!=null; s = s.parent) {
+				int m = s.patterns.match(path, s.base, isDirectory);
+				if (m!=IgnorePatterns.NO_MATCH) {
+					return m==IgnorePatterns.IGNORED;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A piece of work, other than visiting a workspace resource, that subclasses can add to
+	 * the queue (see {@link ResourceWalker#enqueue(double, ExternalWork)}). It is processed in
+	 * priority order together with the resources, and can itself add more work to the queue.
+	 */
+	protected interface ExternalWork {
+		void run(IProgressMonitor monitor);
+	}
+
 	public ResourceWalker() {
+		this((IResource[])null);
+	}
+
+	/**
+	 * Create a walker that starts walking from the given resources rather than from the
+	 * workspace root.
+	 */
+	protected ResourceWalker(IResource... roots) {
 		super("QuickSearch");
+		this.roots = roots;
 		init();
 	}
 
 	protected void init() {
-		queue = new PriorityQueue<ResourceWalker.QItem>();
-		queue.add(new QItem(0, ResourcesPlugin.getWorkspace().getRoot()));
+		synchronized (lock) {
+			queue = new PriorityQueue<ResourceWalker.QItem>();
+			if (roots==null) {
+				queue.add(new QItem(0, ResourcesPlugin.getWorkspace().getRoot(), null));
+			} else {
+				for (IResource r : roots) {
+					queue.add(new QItem(0, r, null));
+				}
+			}
+		}
 	}
 
+	/**
+	 * Resources the walk starts from. Null means the workspace root.
+	 */
+	private final IResource[] roots;
+
+	/**
+	 * Shared thread pool providing the helper threads for walkers that use more than one worker.
+	 */
+	private static final ExecutorService WORKER_POOL = Executors.newCachedThreadPool(new ThreadFactory() {
+		private int count = 0;
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "QuickSearch Worker "+(++count));
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/**
+	 * Guards the queue and the 'busy' count. Workers waiting for work to appear in the queue
+	 * wait on this lock.
+	 */
+	private final Object lock = new Object();
+
 	/**
 	 * Queue of work to do. When all work is done this will be set to null. So it
 	 * can also be used to determine 'done' status. 
 	 */
-	private PriorityQueue<QItem> queue = null;
+	private volatile PriorityQueue<QItem> queue = null;
+
+	/**
+	 * Number of workers currently processing an item taken from the queue.
+	 */
+	private int busy = 0;
+
+	/**
+	 * Number of threads processing the queue when the walker runs.
+	 */
+	private int workers = 1;
 	
 	/**
 	 * Setting this to true will cause the ResourceWalker to stop walking. If the walker is running
 	 * as a scheduled job, then this Job will terminate. However it is possible to 'resume' the
 	 * later since pending list of workitems will be retained. 
 	 */
-	private boolean suspend = false;
+	private volatile boolean suspend = false;
 
 	private PriorityFunction prioritFun = new DefaultPriorityFunction();
 	
@@ -120,32 +244,22 @@ public abstract class ResourceWalker extends Job {
 	
 	public IStatus run(IProgressMonitor monitor) {
 		//TODO: progress reporting?
-		while (!suspend && queue!=null) {
-			if (monitor.isCanceled()) {
-				queue = null;
-			} else {
-				IResource r = getWork();
-				if (r!=null) {
-					if (!ignore(r)) {
-						if (r instanceof IFile) {
-							IFile f = (IFile) r;
-							visit(f, monitor);
-						} else if (r instanceof IContainer) {
-							IContainer f = (IContainer) r;
-							if (f.isAccessible()) {
-    							try {
-    								for (IResource child : f.members()) {
-    									enqueue(child);
-    								}
-    							} catch (CoreException e) {
-    								QuickSearchActivator.log(e);
-    							}
-							}
-						}
-					}
-				} else {
-					queue = null;
-				}
+		int helpers = Math.max(0, workers-1);
+		List<Future<?>> running = new ArrayList<Future<?>>(helpers);
+		for (int i = 0; i < helpers; i++) {
+			running.add(WORKER_POOL.submit(new Worker(monitor)));
+		}
+		//The Job's own thread is also a worker.
+		new Worker(monitor).run();
+		//Don't return before all helpers are finished. While this Job is running it owns
+		//its scheduling rule, and the helpers' work should be covered by that rule as well.
+		for (Future<?> f : running) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				//Ignore: the helper will still stop because suspend or cancel state is set.
+			} catch (ExecutionException e) {
+				QuickSearchActivator.log(e.getCause());
 			}
 		}
 		if (monitor.isCanceled()) {
@@ -155,21 +269,113 @@ public abstract class ResourceWalker extends Job {
 		}
 	}
 
+	/**
+	 * Pulls work from the queue until the queue is exhausted, or the walker is suspended or canceled.
+	 * Several workers may be pulling from the same queue at the same time.
+	 */
+	private class Worker implements Runnable {
+		private final IProgressMonitor monitor;
+
+		public Worker(IProgressMonitor monitor) {
+			this.monitor = monitor;
+		}
+
+		public void run() {
+			QItem item;
+			while ((item = getWork(monitor))!=null) {
+				try {
+					if (item.work!=null) {
+						item.work.run(monitor);
+					} else {
+						process(item.resource, item.ignores);
+					}
+				} finally {
+					workDone();
+				}
+			}
+		}
+
+		private void process(IResource r, IgnoreScope ignores) {
+			if (!ignore(r)) {
+				if (r instanceof IFile) {
+					IFile f = (IFile) r;
+					if (shouldVisit(f)) {
+						visit(f, monitor);
+					}
+				} else if (r instanceof IContainer) {
+					IContainer f = (IContainer) r;
+					if (f.isAccessible()) {
+						visitContainer(f, monitor);
+						if (prioritFun.isUsingIgnoreFiles()) {
+							IgnorePatterns patterns = IgnoreFiles.read(f);
+							if (patterns!=null && !patterns.isEmpty()) {
+								ignores = new IgnoreScope(patterns, f.getFullPath().segmentCount(), ignores);
+							}
+						} else {
+							ignores = null;
+						}
+						try {
+							for (IResource child : f.members()) {
+								if (ignores==null || !ignores.isIgnored(child)) {
+									enqueue(child, ignores);
+								}
+							}
+						} catch (CoreException e) {
+							QuickSearchActivator.log(e);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Add a resource to the work queue taking account the priority of the resource.
 	 */
-	private void enqueue(IResource child) {
-		PriorityQueue<QItem> q = queue;
-		if (q!=null) {
-			double p = priority(child);
-			if (p==PriorityFunction.PRIORITY_IGNORE) {
-				return;
+	private void enqueue(IResource child, IgnoreScope ignores) {
+		double p = priority(child);
+		if (p==PriorityFunction.PRIORITY_IGNORE) {
+			return;
+		}
+		synchronized (lock) {
+			PriorityQueue<QItem> q = queue;
+			if (q!=null) {
+				q.add(new QItem(p, child, ignores));
+				lock.notify();
+			}
+		}
+	}
+
+	/**
+	 * Add some work that isn't a workspace resource to the work queue.
+	 */
+	protected void enqueue(double priority, ExternalWork work) {
+		synchronized (lock) {
+			PriorityQueue<QItem> q = queue;
+			if (q!=null) {
+				q.add(new QItem(priority, work));
+				lock.notify();
 			}
-			q.add(new QItem(p, child));
 		}
 	}
 
 	protected abstract void visit(IFile r, IProgressMonitor m);
+
+	/**
+	 * Called for each accessible container, before its members are added to the queue.
+	 * The default implementation does nothing.
+	 */
+	protected void visitContainer(IContainer c, IProgressMonitor m) {
+	}
+
+	/**
+	 * Called before visiting a file. Subclasses can override this to cheaply skip files
+	 * they know can't be of interest (e.g. based on an index) without having to read them.
+	 * The default implementation visits every file that isn't ignored.
+	 */
+	protected boolean shouldVisit(IFile f) {
+		return true;
+	}
 	
 	/**
 	 * Assigns a priority to a given resource. This priority will affect the order in which 
@@ -203,12 +409,62 @@ public abstract class ResourceWalker extends Job {
 		this.prioritFun = f;
 	}
 	
-	private IResource getWork() {
-		PriorityQueue<QItem> q = queue;
-		if (q!=null && !q.isEmpty()) {
-			return q.remove().resource;
+	/**
+	 * Fetch the highest priority work item from the queue. If the queue is empty but other
+	 * workers are still busy (and so may add more work to the queue) this waits for them.
+	 * <p>
+	 * Every non-null result must be followed by a call to {@link #workDone()}.
+	 *
+	 * @return An item to process or null if the worker calling this should stop.
+	 */
+	private QItem getWork(IProgressMonitor monitor) {
+		synchronized (lock) {
+			while (true) {
+				if (monitor.isCanceled()) {
+					queue = null;
+					lock.notifyAll();
+					return null;
+				}
+				PriorityQueue<QItem> q = queue;
+				if (suspend || q==null) {
+					return null;
+				}
+				if (!q.isEmpty()) {
+					busy++;
+					return q.remove();
+				}
+				if (busy==0) {
+					//Nothing in the queue and nobody else can add to it anymore.
+					queue = null;
+					lock.notifyAll();
+					return null;
+				}
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					return null;
+				}
+			}
 		}
-		return null;
+	}
+
+	private void workDone() {
+		synchronized (lock) {
+			busy--;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Set the number of threads used to process the work queue. Files are read and searched
+	 * concurrently by that many threads, with each of them always taking the highest priority
+	 * item from the shared queue.
+	 * <p>
+	 * The default is 1, i.e. resources are processed one at a time, strictly in priority order.
+	 * Changing this takes effect the next time the walker is started or resumed.
+	 */
+	public void setWorkers(int workers) {
+		this.workers = Math.max(1, workers);
 	}
 
 	
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A requestor that sits between a {@link QuickTextSearcher} and the requestor displaying
+ * the results. It collects the searcher's results and hands them on in chunks, when the consumer
+ * asks for them with {@link #flush(QuickTextSearchRequestor, int)}, e.g. once per UI frame.
+ * <p>
+ * Pending results are coalesced: a line added and revoked before it was handed on is dropped,
+ * updates to pending lines are merged, and a {@link #clear()} discards everything pending.
+ * <p>
+ * The number of pending added lines is bounded. When the bound is reached, {@link #add(LineItem)}
+ * blocks until the consumer catches up or the batcher is disposed, which slows the searcher down
+ * to the speed the results can be shown at.
+ * <p>
+ * This class is thread safe. There should be only one consumer.
+ */
+public class ResultBatcher extends QuickTextSearchRequestor {
+
+	public static final int DEFAULT_CAPACITY = 2000;
+
+	private static final int ADD = 0;
+	private static final int UPDATE = 1;
+	private static final int REVOKE = 2;
+
+	private final int capacity;
+
+	/**
+	 * Called when results become pending while none were, so that the consumer can
+	 * schedule a flush.
+	 */
+	private final Runnable onPending;
+
+	//Guarded by 'this'.
+	private boolean cleared = false;
+	private final Map<LineItem, Integer> pending = new LinkedHashMap<LineItem, Integer>();
+	private int pendingAdds = 0;
+	private boolean notified = false;
+	private boolean disposed = false;
+
+	/**
+	 * @param capacity Maximum number of pending added lines.
+	 * @param onPending Called, from the searcher's threads, when results become pending.
+	 */
+	public ResultBatcher(int capacity, Runnable onPending) {
+		this.capacity = capacity;
+		this.onPending = onPending;
+	}
+
+	@Override
+	public void add(LineItem match) {
+		boolean notify;
+		synchronized (this) {
+			while (pendingAdds>=capacity && !disposed) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (disposed) {
+				return;
+			}
+			Integer prev = pending.get(match);
+			if (prev==null) {
+				pending.put(match, ADD);
+				pendingAdds++;
+			} else if (prev==REVOKE) {
+				//The consumer still has it.
+				pending.put(match, UPDATE);
+			}
+			notify = needsNotify();
+		}
+		if (notify) {
+			onPending.run();
+		}
+	}
+
+	@Override
+	public void update(LineItem match) {
+		boolean notify;
+		synchronized (this) {
+			if (disposed || pending.containsKey(match)) {
+				//Handing on an added or updated line also shows its latest state.
+				return;
+			}
+			pending.put(match, UPDATE);
+			notify = needsNotify();
+		}
+		if (notify) {
+			onPending.run();
+		}
+	}
+
+	@Override
+	public void revoke(LineItem line) {
+		boolean notify;
+		synchronized (this) {
+			if (disposed) {
+				return;
+			}
+			Integer prev = pending.get(line);
+			if (prev!=null && prev==ADD) {
+				//Never handed on.
+				pending.remove(line);
+				pendingAdds--;
+				notifyAll();
+				return;
+			}
+			pending.put(line, REVOKE);
+			notify = needsNotify();
+		}
+		if (notify) {
+			onPending.run();
+		}
+	}
+
+	@Override
+	public void clear() {
+		boolean notify;
+		synchronized (this) {
+			if (disposed) {
+				return;
+			}
+			pending.clear();
+			pendingAdds = 0;
+			cleared = true;
+			notifyAll();
+			notify = needsNotify();
+		}
+		if (notify) {
+			onPending.run();
+		}
+	}
+
+	private boolean needsNotify() {
+		if (notified) {
+			return false;
+		}
+		notified = true;
+		return true;
+	}
+
+	/**
+	 * Hand on pending results to a requestor, in the order they arrived.
+	 *
+	 * @param max Maximum number of lines to hand on.
+	 * @return Whether results are still pending. If not, the consumer will be notified when
+	 *     there are more.
+	 */
+	public boolean flush(QuickTextSearchRequestor target, int max) {
+		boolean clear;
+		List<LineItem> items = new ArrayList<LineItem>(Math.min(max, 256));
+		List<Integer> kinds = new ArrayList<Integer>(Math.min(max, 256));
+		boolean more;
+		synchronized (this) {
+			clear = cleared;
+			cleared = false;
+			Iterator<Map.Entry<LineItem, Integer>> entries = pending.entrySet().iterator();
+			while (items.size()<max && entries.hasNext()) {
+				Map.Entry<LineItem, Integer> e = entries.next();
+				items.add(e.getKey());
+				kinds.add(e.getValue());
+				if (e.getValue()==ADD) {
+					pendingAdds--;
+				}
+				entries.remove();
+			}
+			more = !pending.isEmpty();
+			notified = more;
+			notifyAll();
+		}
+		if (clear) {
+			target.clear();
+		}
+		for (int i = 0; i < items.size(); i++) {
+			switch (kinds.get(i)) {
+			case ADD:
+				target.add(items.get(i));
+				break;
+			case UPDATE:
+				target.update(items.get(i));
+				break;
+			default:
+				target.revoke(items.get(i));
+				break;
+			}
+		}
+		return more;
+	}
+
+	/**
+	 * Drop all pending results and stop accepting new ones. Threads blocked in
+	 * {@link #add(LineItem)} return.
+	 */
+	public synchronized void dispose() {
+		disposed = true;
+		pending.clear();
+		pendingAdds = 0;
+		notifyAll();
+	}
+
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * The part of the workspace a {@link QuickTextSearcher} searches: the resources the walk starts
+ * from. Only those resources and their members are visited, so a search in a few projects
+ * doesn't pay for enumerating all the others.
+ * <p>
+ * Source attachments are searched for the Java projects in the scope only.
+ */
+public class SearchScope {
+
+	public static final SearchScope WORKSPACE = new SearchScope("Workspace", (IResource[])null);
+
+	private final String name;
+
+	/**
+	 * Null means the workspace root.
+	 */
+	private final IResource[] roots;
+
+	/**
+	 * @param name Describes the scope to users.
+	 * @param roots Resources to search. Roots inside other roots are dropped, so nothing is
+	 *        searched twice.
+	 */
+	public SearchScope(String name, IResource... roots) {
+		this.name = name;
+		this.roots = roots==null ? null : outermost(roots);
+	}
+
+	/**
+	 * The scope of some projects.
+	 */
+	public static SearchScope projects(String name, Collection<IProject> projects) {
+		return new SearchScope(name, projects.toArray(new IResource[projects.size()]));
+	}
+
+	/**
+	 * The scope of some projects and, transitively, the projects they require: the projects on
+	 * their Java build paths and their referenced projects.
+	 */
+	public static SearchScope requiredProjects(String name, Collection<IProject> projects) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Set<IProject> found = new LinkedHashSet<IProject>();
+		List<IProject> todo = new ArrayList<IProject>(projects);
+		while (!todo.isEmpty()) {
+			IProject p = todo.remove(todo.size()-1);
+			if (found.add(p) && p.isAccessible()) {
+				try {
+					for (IProject ref : p.getReferencedProjects()) {
+						todo.add(ref);
+					}
+					if (p.hasNature(JavaCore.NATURE_ID)) {
+						IJavaProject jp = JavaCore.create(p);
+						for (String required : jp.getRequiredProjectNames()) {
+							todo.add(root.getProject(required));
+						}
+					}
+				} catch (CoreException e) {
+					QuickSearchActivator.log(e);
+				}
+			}
+		}
+		return projects(name, found);
+	}
+
+	private static IResource[] outermost(IResource[] resources) {
+		List<IResource> result = new ArrayList<IResource>(resources.length);
+		for (int i = 0; i < resources.length; i++) {
+			if (!isInside(i, resources)) {
+				result.add(resources[i]);
+			}
+		}
+		return result.toArray(new IResource[result.size()]);
+	}
+
+	/**
+	 * @return Whether a resource is inside another one, or the same as one that comes before it.
+	 */
+	private static boolean isInside(int i, IResource[] resources) {
+		IPath path = resources[i].getFullPath();
+		for (int j = 0; j < resources.length; j++) {
+			IPath other = resources[j].getFullPath();
+			if (j!=i && other.isPrefixOf(path) && (j<i || !other.equals(path))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The resources to search, or null to search the whole workspace.
+	 */
+	public IResource[] getRoots() {
+		return roots==null ? null : roots.clone();
+	}
+
+	public boolean isWorkspace() {
+		return roots==null;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchScope("+name+")";
+	}
+
+}
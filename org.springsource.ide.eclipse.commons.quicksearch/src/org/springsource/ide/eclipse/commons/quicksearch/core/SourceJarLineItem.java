@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+/**
+ * A line found in a java source file inside the source attachment of a jar on
+ * the Java build path. Such a line can be shown by opening the class file editor
+ * for the corresponding class in the jar.
+ */
+public class SourceJarLineItem extends LineItem {
+
+	private final IPackageFragmentRoot root;
+	private final IPath archive;
+	private final String entryName;
+	private final String sourcePath;
+
+	/**
+	 * @param root The jar the source attachment belongs to.
+	 * @param archive Location of the source attachment in the file system.
+	 * @param entryName Name of the source file's entry in the source attachment.
+	 * @param sourcePath Path of the source file relative to the source attachment's root path
+	 *         (e.g. 'org/example/Foo.java').
+	 */
+	public SourceJarLineItem(IPackageFragmentRoot root, IPath archive, String entryName, String sourcePath,
+			String line, int lineNumber, int lineOffset) {
+		super(null, line, lineNumber, lineOffset);
+		this.root = root;
+		this.archive = archive;
+		this.entryName = entryName;
+		this.sourcePath = sourcePath;
+	}
+
+	public IPackageFragmentRoot getPackageFragmentRoot() {
+		return root;
+	}
+
+	/**
+	 * @return The class file whose source contains this line.
+	 */
+	public IClassFile getClassFile() {
+		IPath path = new Path(sourcePath);
+		String pkg = path.removeLastSegments(1).toString().replace('/', '.');
+		String typeName = path.removeFileExtension().lastSegment();
+		return root.getPackageFragment(pkg).getClassFile(typeName+".class");
+	}
+
+	@Override
+	public IPath getPath() {
+		return archive.append(entryName);
+	}
+
+	@Override
+	public String toString() {
+		return getLineNumber() + ": " + getText() + "  (" + getPath() + ")";
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * archive.hashCode() + entryName.hashCode()) + getLineNumber();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SourceJarLineItem other = (SourceJarLineItem) obj;
+		return archive.equals(other.archive) && entryName.equals(other.entryName)
+				&& getLineNumber()==other.getLineNumber();
+	}
+
+}
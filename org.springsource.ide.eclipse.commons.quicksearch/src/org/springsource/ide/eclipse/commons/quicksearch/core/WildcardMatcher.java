@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core;
+
+/**
+ * Matches QuickSearch patterns (literal text with '*' and '?' wildcards) directly against
+ * a region of a char[] without creating any garbage.
+ * <p>
+ * The pattern is split on '*' into parts. A line matches if each part can be found, in order
+ * and without overlapping, somewhere in the line. Each part is located using the
+ * Boyer-Moore-Horspool algorithm, extended so that '?' matches any single character.
+ * <p>
+ * Case insensitive matching only folds US-ASCII letters, which is the same as what
+ * {@link java.util.regex.Pattern#CASE_INSENSITIVE} does, so both implementations of
+ * QuickTextQuery matching agree with each other.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class WildcardMatcher {
+
+	private static final int TABLE_SIZE = 256;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+	private final boolean caseSensitive;
+	private final char[][] parts;
+	private final boolean[][] wild;
+	private final int[][] shifts;
+
+	public WildcardMatcher(String pattern, boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+		String[] pieces = pattern.split("\\*");
+		int count = 0;
+		for (String p : pieces) {
+			if (p.length()>0) {
+				count++;
+			}
+		}
+		parts = new char[count][];
+		wild = new boolean[count][];
+		shifts = new int[count][];
+		int i = 0;
+		for (String p : pieces) {
+			if (p.length()>0) {
+				char[] part = p.toCharArray();
+				boolean[] isWild = new boolean[part.length];
+				for (int j = 0; j < part.length; j++) {
+					isWild[j] = part[j]=='?';
+					part[j] = fold(part[j]);
+				}
+				parts[i] = part;
+				wild[i] = isWild;
+				shifts[i] = shiftTable(part, isWild);
+				i++;
+			}
+		}
+	}
+
+	private char fold(char c) {
+		if (!caseSensitive && c>='A' && c<='Z') {
+			return (char) (c + ('a'-'A'));
+		}
+		return c;
+	}
+
+	/**
+	 * Horspool 'bad character' table. Characters are hashed into the table by their low byte.
+	 * When two characters collide the smaller shift wins, which keeps the search correct.
+	 * A wildcard can match anything, so no shift may skip past the rightmost wildcard.
+	 */
+	private static int[] shiftTable(char[] part, boolean[] isWild) {
+		int m = part.length;
+		int maxShift = m;
+		for (int k = 0; k < m-1; k++) {
+			if (isWild[k]) {
+				maxShift = m-1-k;
+			}
+		}
+		int[] table = new int[TABLE_SIZE];
+		for (int c = 0; c < TABLE_SIZE; c++) {
+			table[c] = maxShift;
+		}
+		for (int k = 0; k < m-1; k++) {
+			if (!isWild[k]) {
+				int slot = part[k] & TABLE_MASK;
+				table[slot] = Math.min(table[slot], m-1-k);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return true if the pattern occurs in the text between start (inclusive) and end (exclusive).
+	 */
+	public boolean find(char[] text, int start, int end) {
+		int pos = start;
+		for (int i = 0; i < parts.length; i++) {
+			int found = indexOf(i, text, pos, end);
+			if (found<0) {
+				return false;
+			}
+			pos = found + parts[i].length;
+		}
+		return true;
+	}
+
+	public boolean find(String text) {
+		return find(text.toCharArray(), 0, text.length());
+	}
+
+	private int indexOf(int partIndex, char[] text, int from, int end) {
+		char[] part = parts[partIndex];
+		boolean[] isWild = wild[partIndex];
+		int[] shift = shifts[partIndex];
+		int m = part.length;
+		int last = m-1;
+		int i = from;
+		while (i+m <= end) {
+			int j = last;
+			while (j>=0 && (isWild[j] || part[j]==fold(text[i+j]))) {
+				j--;
+			}
+			if (j<0) {
+				return i;
+			}
+			i += shift[fold(text[i+last]) & TABLE_MASK];
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.core.runtime.content.IContentTypeManager.ContentTypeChangeEvent;
+import org.eclipse.core.runtime.content.IContentTypeManager.IContentTypeChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * Workspace wide cache of the charsets files are decoded with. {@link IFile#getCharset()}
+ * describes the contents of the file to find out its charset, which means opening and reading
+ * it, and then looks up encoding preferences. For most files the answer only depends on the
+ * folder the file is in and on its content type, so that is what this cache is keyed by.
+ * <p>
+ * Files with a charset set explicitly, and files whose content type can declare a charset in
+ * the contents (i.e. XML files), are still asked for their charset. Byte order marks are left
+ * to the readers to detect, see {@link org.springsource.ide.eclipse.commons.quicksearch.util.MappedFileLineReader}.
+ * <p>
+ * The cache is cleared whenever the encoding preferences of the workspace or a resource or
+ * the default charset of a content type change.
+ * <p>
+ * This class is thread safe.
+ */
+public class CharsetCache implements IResourceChangeListener, IPreferenceChangeListener, IContentTypeChangeListener {
+
+	private static final String CT_XML = "org.eclipse.core.runtime.xml"; //$NON-NLS-1$
+
+	private final ConcurrentHashMap<String, String> charsets = new ConcurrentHashMap<String, String>();
+
+	private final IContentTypeManager contentTypes;
+
+	private CharsetCache(IContentTypeManager contentTypes) {
+		this.contentTypes = contentTypes;
+	}
+
+	/**
+	 * Create a cache and register it to receive resource, preference and content type change events.
+	 */
+	public static CharsetCache start() {
+		CharsetCache cache = new CharsetCache(Platform.getContentTypeManager());
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(cache, IResourceChangeEvent.POST_CHANGE);
+		getWorkspacePreferences().addPreferenceChangeListener(cache);
+		cache.contentTypes.addContentTypeChangeListener(cache);
+		return cache;
+	}
+
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		getWorkspacePreferences().removePreferenceChangeListener(this);
+		contentTypes.removeContentTypeChangeListener(this);
+		clear();
+	}
+
+	private static IEclipsePreferences getWorkspacePreferences() {
+		return InstanceScope.INSTANCE.getNode(ResourcesPlugin.PI_RESOURCES);
+	}
+
+	/**
+	 * Same as {@link IFile#getCharset()}, except that byte order marks aren't looked for.
+	 * Readers should detect them, see {@link org.springsource.ide.eclipse.commons.quicksearch.util.ByteOrderMark}.
+	 */
+	public String getCharset(IFile f) throws CoreException {
+		String explicit = f.getCharset(false);
+		if (explicit!=null) {
+			return explicit;
+		}
+		IContentType type = contentTypes.findContentTypeFor(f.getName());
+		if (type!=null && !isText(type)) {
+			return f.getCharset();
+		}
+		IContainer parent = f.getParent();
+		String key = parent.getFullPath()+"\u0000"+(type==null ? "" : type.getId()); //$NON-NLS-1$ //$NON-NLS-2$
+		String charset = charsets.get(key);
+		if (charset==null) {
+			charset = type==null ? null : type.getDefaultCharset();
+			if (charset==null) {
+				charset = parent.getDefaultCharset();
+			}
+			charsets.put(key, charset);
+		}
+		return charset;
+	}
+
+	/**
+	 * @return Whether files of a content type get their charset from the preferences alone.
+	 */
+	private boolean isText(IContentType type) {
+		IContentType text = contentTypes.getContentType(IContentTypeManager.CT_TEXT);
+		IContentType xml = contentTypes.getContentType(CT_XML);
+		return text!=null && type.isKindOf(text) && (xml==null || !type.isKindOf(xml));
+	}
+
+	public void clear() {
+		charsets.clear();
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta==null || charsets.isEmpty()) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource r = delta.getResource();
+					if ((delta.getFlags() & IResourceDelta.ENCODING)!=0
+							|| (r.getType()!=IResource.FILE && delta.getKind()!=IResourceDelta.CHANGED)) {
+						//Encoding preferences changed, or a folder that may have had its own went away.
+						clear();
+					}
+					return r.getType()!=IResource.FILE && !charsets.isEmpty();
+				}
+			});
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
+	public void preferenceChange(PreferenceChangeEvent event) {
+		if (ResourcesPlugin.PREF_ENCODING.equals(event.getKey())) {
+			clear();
+		}
+	}
+
+	public void contentTypeChanged(ContentTypeChangeEvent event) {
+		clear();
+	}
+
+}
@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ILineReader;
+
+/**
+ * Workspace wide cache of decoded and split up file contents. It allows a new searcher to
+ * go over the lines of a file that was recently searched without reading and decoding it again.
+ * <p>
+ * Entries are keyed by file and only used while the file's modification stamp and charset
+ * are unchanged. Entries are also dropped eagerly when resource change events report the
+ * file as changed or removed. When the total size of the entries exceeds the memory budget,
+ * the least recently used ones are evicted.
+ * <p>
+ * This class is thread safe.
+ */
+public class FileContentCache implements IResourceChangeListener {
+
+	/**
+	 * Rough estimate of the fixed memory cost of an entry (entry object, arrays and map node).
+	 */
+	private static final int ENTRY_OVERHEAD = 128;
+
+	/**
+	 * Single files taking up more than this fraction of the budget are not cached, so that one
+	 * huge file can't flush out everything else.
+	 */
+	private static final int MAX_ENTRY_FRACTION = 8;
+
+	/**
+	 * The lines of a file. Lines are stored back-to-back, without line terminators, in a single
+	 * char[]. For each line three ints are kept: its start in the char[], its length, and its
+	 * offset in the original file.
+	 */
+	private static final class Entry {
+		final long stamp;
+		final String charset;
+		final char[] text;
+		final int[] lines;
+		final int lineCount;
+		Entry(long stamp, String charset, char[] text, int[] lines, int lineCount) {
+			this.stamp = stamp;
+			this.charset = charset;
+			this.text = text;
+			this.lines = lines;
+			this.lineCount = lineCount;
+		}
+		long size() {
+			return 2L*text.length + 4L*lines.length + ENTRY_OVERHEAD;
+		}
+	}
+
+	/**
+	 * Access ordered, so iteration starts at the least recently used entry.
+	 */
+	private final LinkedHashMap<IPath, Entry> entries = new LinkedHashMap<IPath, Entry>(256, 0.75f, true);
+	private long size = 0;
+	private volatile long budget;
+
+	/**
+	 * @param budget Approximate maximum number of bytes used by cached file contents.
+	 */
+	public FileContentCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Create a cache and register it to receive resource change events.
+	 */
+	public static FileContentCache start(long budget) {
+		FileContentCache cache = new FileContentCache(budget);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(cache, IResourceChangeEvent.POST_CHANGE);
+		return cache;
+	}
+
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		clear();
+	}
+
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		evict();
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Get a reader over the cached lines of a file.
+	 *
+	 * @param charset The charset the file would be decoded with now.
+	 * @param maxLineLength The reader throws an IOException at the first line that is this long or longer,
+	 *          just like a LineReader would.
+	 * @return A reader, or null if the file isn't cached or the cached contents are stale.
+	 */
+	public ILineReader get(IFile f, String charset, int maxLineLength) {
+		long stamp = f.getModificationStamp();
+		Entry e;
+		synchronized (this) {
+			e = entries.get(f.getFullPath());
+			if (e==null) {
+				return null;
+			}
+			if (e.stamp!=stamp || !e.charset.equals(charset)) {
+				remove(f.getFullPath());
+				return null;
+			}
+		}
+		return new CachedLineReader(e, maxLineLength);
+	}
+
+	/**
+	 * Wrap a reader so that the lines read from it are recorded. If the reader is read all the
+	 * way to the end the lines are added to the cache.
+	 *
+	 * @param stamp Modification stamp of the file, taken before the reader was opened. If the
+	 *        file changes while it is being opened, the entry is then stale rather than wrong.
+	 * @param charset The charset the reader decodes the file with.
+	 */
+	public ILineReader record(IFile f, long stamp, String charset, ILineReader source) {
+		return new RecordingLineReader(f, stamp, charset, source);
+	}
+
+	private synchronized void put(IPath path, Entry e) {
+		long entrySize = e.size();
+		if (entrySize > budget/MAX_ENTRY_FRACTION) {
+			return;
+		}
+		remove(path);
+		entries.put(path, e);
+		size += entrySize;
+		evict();
+	}
+
+	private synchronized void remove(IPath path) {
+		Entry old = entries.remove(path);
+		if (old!=null) {
+			size -= old.size();
+		}
+	}
+
+	/**
+	 * Remove all entries for files inside a given container.
+	 */
+	private synchronized void removeAll(IPath container) {
+		Iterator<Map.Entry<IPath, Entry>> iter = entries.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<IPath, Entry> e = iter.next();
+			if (container.isPrefixOf(e.getKey())) {
+				size -= e.getValue().size();
+				iter.remove();
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> iter = entries.values().iterator();
+		while (size>budget && iter.hasNext()) {
+			size -= iter.next().size();
+			iter.remove();
+		}
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta==null) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource r = delta.getResource();
+					if (r.getType()==IResource.FILE) {
+						if (delta.getKind()==IResourceDelta.REMOVED
+								|| (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.ENCODING | IResourceDelta.REPLACED))!=0) {
+							remove(r.getFullPath());
+						}
+						return false;
+					}
+					if (delta.getKind()==IResourceDelta.REMOVED || (delta.getFlags() & IResourceDelta.OPEN)!=0) {
+						removeAll(r.getFullPath());
+						return false;
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
+	/**
+	 * Reads lines from a cache entry.
+	 */
+	private static final class CachedLineReader implements ILineReader {
+		private final Entry entry;
+		private final int maxLineLength;
+		private int line = -1;
+
+		CachedLineReader(Entry entry, int maxLineLength) {
+			this.entry = entry;
+			this.maxLineLength = maxLineLength;
+		}
+
+		public boolean nextLine() throws IOException {
+			if (line+1>=entry.lineCount) {
+				return false;
+			}
+			line++;
+			if (getLineLength()>=maxLineLength) {
+				throw new IOException("Very long lines of text. Minified file?");
+			}
+			return true;
+		}
+
+		public char[] getLineBuffer() {
+			return entry.text;
+		}
+
+		public int getLineStart() {
+			return entry.lines[3*line];
+		}
+
+		public int getLineLength() {
+			return entry.lines[3*line+1];
+		}
+
+		public String getLineString() {
+			return new String(entry.text, getLineStart(), getLineLength());
+		}
+
+		public int getLastLineOffset() {
+			return line<0 ? -1 : entry.lines[3*line+2];
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 * Passes lines through from another reader, keeping a copy of each line.
+	 */
+	private final class RecordingLineReader implements ILineReader {
+		private final IFile file;
+		private final long stamp;
+		private final String charset;
+		private final ILineReader source;
+
+		private char[] text = new char[4096];
+		private int textLength = 0;
+		private int[] lines = new int[3*64];
+		private int lineCount = 0;
+
+		/**
+		 * Set when recording is abandoned, because the lines would be too big to cache anyway.
+		 */
+		private boolean abandoned = false;
+
+		RecordingLineReader(IFile file, long stamp, String charset, ILineReader source) {
+			this.file = file;
+			this.stamp = stamp;
+			this.charset = charset;
+			this.source = source;
+		}
+
+		public boolean nextLine() throws IOException {
+			if (source.nextLine()) {
+				if (!abandoned) {
+					recordLine();
+				}
+				return true;
+			}
+			if (!abandoned) {
+				abandoned = true; //Make sure the entry is only put once
+				put(file.getFullPath(), new Entry(stamp, charset,
+						Arrays.copyOf(text, textLength), Arrays.copyOf(lines, 3*lineCount), lineCount));
+			}
+			return false;
+		}
+
+		private void recordLine() {
+			int len = source.getLineLength();
+			if (2L*(textLength+len) > budget/MAX_ENTRY_FRACTION) {
+				abandoned = true;
+				text = null;
+				lines = null;
+				return;
+			}
+			if (textLength+len > text.length) {
+				text = Arrays.copyOf(text, Math.max(2*text.length, textLength+len));
+			}
+			if (3*lineCount+3 > lines.length) {
+				lines = Arrays.copyOf(lines, 2*lines.length);
+			}
+			System.arraycopy(source.getLineBuffer(), source.getLineStart(), text, textLength, len);
+			lines[3*lineCount] = textLength;
+			lines[3*lineCount+1] = len;
+			lines[3*lineCount+2] = source.getLastLineOffset();
+			lineCount++;
+			textLength += len;
+		}
+
+		public char[] getLineBuffer() {
+			return source.getLineBuffer();
+		}
+
+		public int getLineStart() {
+			return source.getLineStart();
+		}
+
+		public int getLineLength() {
+			return source.getLineLength();
+		}
+
+		public String getLineString() {
+			return source.getLineString();
+		}
+
+		public int getLastLineOffset() {
+			return source.getLastLineOffset();
+		}
+
+		public void close() {
+			source.close();
+		}
+	}
+
+}
@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IFile;
+import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
+
+/**
+ * An inverted index from trigrams (sequences of three consecutive characters) to the
+ * files containing them. The index is used to quickly discard files that can not possibly
+ * contain a match for a given {@link QuickTextQuery}.
+ * <p>
+ * The index is case-folded, so it can be used for both case sensitive and case insensitive
+ * queries. Hash collisions between trigrams are allowed; they only produce false positives,
+ * never false negatives.
+ * <p>
+ * Each file indexed is assigned an integer id. When a file is re-indexed or removed its old
+ * id is simply 'retired' and the postings referring to it are left in place until the
+ * next {@link #compact()}.
+ * <p>
+ * The index is only a hint. Files it doesn't know about, or whose modification stamp
+ * differs from the one recorded at indexing time, are always treated as candidates.
+ */
+public class TrigramIndex {
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Files with more characters than this are not indexed (and so will always be searched).
+	 */
+	public static final int MAX_INDEXED_CHARS = 4*1024*1024;
+
+	private static class FileEntry {
+		final int id;
+		final long stamp;
+		FileEntry(int id, long stamp) {
+			this.id = id;
+			this.stamp = stamp;
+		}
+	}
+
+	/**
+	 * A growable, sorted array of file ids. Since ids are handed out in increasing
+	 * order appending to the end keeps the list sorted.
+	 */
+	private static class PostingList {
+		int[] ids = new int[4];
+		int size = 0;
+		void add(int id) {
+			if (size==ids.length) {
+				ids = Arrays.copyOf(ids, size*2);
+			}
+			ids[size++] = id;
+		}
+	}
+
+	/**
+	 * A snapshot of the candidate files for a particular query.
+	 */
+	public class Candidates {
+		private final BitSet ids;
+		private final int limit;
+		private final int generation;
+
+		private Candidates(BitSet ids, int limit) {
+			this.ids = ids;
+			this.limit = limit;
+			this.generation = TrigramIndex.this.generation;
+		}
+
+		/**
+		 * @return false if the index was compacted since this snapshot was taken. A stale
+		 * snapshot treats every file as a candidate, so it should be computed again.
+		 */
+		public boolean isCurrent() {
+			synchronized (TrigramIndex.this) {
+				return generation==TrigramIndex.this.generation;
+			}
+		}
+
+		/**
+		 * @return false only if the index knows for certain that the file can not contain
+		 * a match. True otherwise.
+		 */
+		public boolean mayMatch(IFile f) {
+			FileEntry e;
+			synchronized (TrigramIndex.this) {
+				if (generation!=TrigramIndex.this.generation) {
+					//The ids were renumbered, the bits no longer refer to the same files.
+					return true;
+				}
+				e = entries.get(key(f));
+			}
+			if (e==null || e.id>=limit || e.stamp!=f.getModificationStamp()) {
+				//Unknown or stale: must search the file.
+				return true;
+			}
+			return ids.get(e.id);
+		}
+	}
+
+	private Map<String, FileEntry> entries = new HashMap<String, FileEntry>();
+	private Map<Integer, PostingList> postings = new HashMap<Integer, PostingList>();
+	private int nextId = 0;
+	private int retired = 0;
+
+	/**
+	 * Incremented whenever {@link #compact()} renumbers the ids, which invalidates
+	 * the {@link Candidates} computed before.
+	 */
+	private int generation = 0;
+
+	/**
+	 * Set when the index changed since it was last saved.
+	 */
+	private boolean dirty = false;
+
+	private static String key(IFile f) {
+		return f.getFullPath().toString();
+	}
+
+	/**
+	 * @return true if the index has an up-to-date entry for the given file.
+	 */
+	public synchronized boolean isUpToDate(IFile f) {
+		FileEntry e = entries.get(key(f));
+		return e!=null && e.stamp==f.getModificationStamp();
+	}
+
+	/**
+	 * Add or replace the entry for a file.
+	 *
+	 * @param stamp Modification stamp of the file at the time its contents were read.
+	 * @param trigrams Sorted array of distinct trigram codes found in the file.
+	 */
+	public synchronized void put(IFile f, long stamp, int[] trigrams) {
+		remove(f);
+		int id = nextId++;
+		entries.put(key(f), new FileEntry(id, stamp));
+		for (int t : trigrams) {
+			PostingList list = postings.get(t);
+			if (list==null) {
+				postings.put(t, list = new PostingList());
+			}
+			list.add(id);
+		}
+		dirty = true;
+	}
+
+	public synchronized void remove(IFile f) {
+		if (entries.remove(key(f))!=null) {
+			retired++;
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Remove all entries for files nested under a given path prefix (e.g. when a
+	 * folder or project is deleted).
+	 */
+	public synchronized void removeAll(String pathPrefix) {
+		String folderPrefix = pathPrefix.endsWith("/") ? pathPrefix : pathPrefix + "/";
+		Iterator<String> keys = entries.keySet().iterator();
+		while (keys.hasNext()) {
+			if (keys.next().startsWith(folderPrefix)) {
+				keys.remove();
+				retired++;
+				dirty = true;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Compute the set of candidate files for a query.
+	 *
+	 * @return Candidates or null if the query doesn't contain enough literal text to
+	 * narrow down the search.
+	 */
+	public Candidates getCandidates(QuickTextQuery query) {
+		if (query.isTrivial()) {
+			return null;
+		}
+		int[] required = queryTrigrams(query);
+		if (required.length==0) {
+			return null;
+		}
+		synchronized (this) {
+			List<PostingList> lists = new ArrayList<PostingList>(required.length);
+			for (int t : required) {
+				PostingList list = postings.get(t);
+				if (list==null) {
+					//Some required trigram occurs nowhere: no indexed file can match.
+					return new Candidates(new BitSet(), nextId);
+				}
+				lists.add(list);
+			}
+			//Start from the shortest list so the intersection shrinks as fast as possible.
+			PostingList shortest = lists.get(0);
+			for (PostingList l : lists) {
+				if (l.size<shortest.size) {
+					shortest = l;
+				}
+			}
+			BitSet result = new BitSet(nextId);
+			for (int i = 0; i < shortest.size; i++) {
+				result.set(shortest.ids[i]);
+			}
+			for (PostingList l : lists) {
+				if (l!=shortest) {
+					BitSet other = new BitSet(nextId);
+					for (int i = 0; i < l.size; i++) {
+						other.set(l.ids[i]);
+					}
+					result.and(other);
+					if (result.isEmpty()) {
+						break;
+					}
+				}
+			}
+			return new Candidates(result, nextId);
+		}
+	}
+
+	/**
+	 * Reassigns dense ids to the live entries and drops postings for retired ids.
+	 * Only does something if a substantial fraction of the ids are retired.
+	 */
+	public synchronized void compact() {
+		if (retired < entries.size()) {
+			return;
+		}
+		int[] remap = new int[nextId];
+		Arrays.fill(remap, -1);
+		//Keep the relative order of ids so that posting lists stay sorted.
+		int[] live = new int[entries.size()];
+		int i = 0;
+		for (FileEntry e : entries.values()) {
+			live[i++] = e.id;
+		}
+		Arrays.sort(live);
+		for (int newId = 0; newId < live.length; newId++) {
+			remap[live[newId]] = newId;
+		}
+		for (Entry<String, FileEntry> e : entries.entrySet()) {
+			FileEntry old = e.getValue();
+			e.setValue(new FileEntry(remap[old.id], old.stamp));
+		}
+		Iterator<PostingList> lists = postings.values().iterator();
+		while (lists.hasNext()) {
+			PostingList l = lists.next();
+			int size = 0;
+			for (int j = 0; j < l.size; j++) {
+				int id = remap[l.ids[j]];
+				if (id>=0) {
+					l.ids[size++] = id;
+				}
+			}
+			if (size==0) {
+				lists.remove();
+			} else {
+				l.size = size;
+			}
+		}
+		nextId = live.length;
+		retired = 0;
+		generation++;
+		dirty = true;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////////
+	// Trigram computation
+
+	/**
+	 * Fold a character the same way for content and queries. Folding more than the query
+	 * matcher does is fine as it only makes the index more conservative.
+	 */
+	private static char fold(char c) {
+		return Character.toLowerCase(c);
+	}
+
+	private static int trigram(char c1, char c2, char c3) {
+		return ((c1 & 0x3FF) << 20) | ((c2 & 0x3FF) << 10) | (c3 & 0x3FF);
+	}
+
+	/**
+	 * Compute the trigrams that every file matching the query must contain.
+	 */
+	static int[] queryTrigrams(QuickTextQuery query) {
+		IntCollector trigrams = new IntCollector();
+		for (String segment : query.getLiteralSegments()) {
+			for (int i = 2; i < segment.length(); i++) {
+				trigrams.add(trigram(fold(segment.charAt(i-2)), fold(segment.charAt(i-1)), fold(segment.charAt(i))));
+			}
+		}
+		return trigrams.toSortedSet();
+	}
+
+	/**
+	 * Compute the trigrams contained in some text read from a Reader. Line terminators
+	 * are not part of any trigram, since a query can never match across lines.
+	 *
+	 * @return Sorted array of distinct trigram codes or null if the text is too large to be indexed.
+	 */
+	public static int[] computeTrigrams(Reader reader) throws IOException {
+		IntCollector trigrams = new IntCollector();
+		char[] buf = new char[8192];
+		char c1 = 0, c2 = 0;
+		int window = 0; //number of valid chars in c1, c2
+		int total = 0;
+		int n;
+		while ((n = reader.read(buf))!=-1) {
+			total += n;
+			if (total>MAX_INDEXED_CHARS) {
+				return null;
+			}
+			for (int i = 0; i < n; i++) {
+				char c = buf[i];
+				if (c=='\n' || c=='\r') {
+					window = 0;
+				} else {
+					c = fold(c);
+					if (window>=2) {
+						trigrams.add(trigram(c1, c2, c));
+					} else {
+						window++;
+					}
+					c1 = c2;
+					c2 = c;
+				}
+			}
+		}
+		return trigrams.toSortedSet();
+	}
+
+	/**
+	 * Helper to accumulate ints without boxing them.
+	 */
+	private static class IntCollector {
+		private int[] data = new int[256];
+		private int size = 0;
+
+		void add(int x) {
+			if (size==data.length) {
+				data = Arrays.copyOf(data, size*2);
+			}
+			data[size++] = x;
+		}
+
+		int[] toSortedSet() {
+			Arrays.sort(data, 0, size);
+			int distinct = 0;
+			for (int i = 0; i < size; i++) {
+				if (distinct==0 || data[distinct-1]!=data[i]) {
+					data[distinct++] = data[i];
+				}
+			}
+			return Arrays.copyOf(data, distinct);
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////////////
+	// Persistence
+
+	public synchronized void save(File file) throws IOException {
+		compact();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(nextId);
+			out.writeInt(entries.size());
+			for (Entry<String, FileEntry> e : entries.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().id);
+				out.writeLong(e.getValue().stamp);
+			}
+			out.writeInt(postings.size());
+			for (Entry<Integer, PostingList> e : postings.entrySet()) {
+				PostingList l = e.getValue();
+				out.writeInt(e.getKey());
+				out.writeInt(l.size);
+				for (int i = 0; i < l.size; i++) {
+					out.writeInt(l.ids[i]);
+				}
+			}
+			dirty = false;
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a previously saved index.
+	 *
+	 * @return The loaded index or null if the file doesn't exist or can not be read.
+	 */
+	public static TrigramIndex load(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt()!=FORMAT_VERSION) {
+					return null;
+				}
+				TrigramIndex index = new TrigramIndex();
+				index.nextId = in.readInt();
+				int entryCount = in.readInt();
+				for (int i = 0; i < entryCount; i++) {
+					String path = in.readUTF();
+					int id = in.readInt();
+					long stamp = in.readLong();
+					index.entries.put(path, new FileEntry(id, stamp));
+				}
+				int postingCount = in.readInt();
+				for (int i = 0; i < postingCount; i++) {
+					int trigram = in.readInt();
+					PostingList l = new PostingList();
+					l.size = in.readInt();
+					l.ids = new int[Math.max(l.size, 1)];
+					for (int j = 0; j < l.size; j++) {
+						l.ids[j] = in.readInt();
+					}
+					index.postings.put(trigram, l);
+				}
+				return index;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			//Corrupt or truncated index. Just start over.
+			return null;
+		}
+	}
+
+}
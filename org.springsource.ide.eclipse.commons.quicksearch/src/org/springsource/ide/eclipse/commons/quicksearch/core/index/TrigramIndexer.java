@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.CharsetCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.DefaultPriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+import org.springsource.ide.eclipse.commons.quicksearch.util.ByteOrderMark;
+
+/**
+ * Keeps a {@link TrigramIndex} up-to-date in the background. On startup it reconciles
+ * the index with the workspace, after that it listens to resource change events and
+ * re-indexes files as they change.
+ * <p>
+ * The indexer runs as a low priority Job. Searches never wait for it. Anything that
+ * has not been indexed yet is simply searched the 'old fashioned' way.
+ */
+public class TrigramIndexer extends Job implements IResourceChangeListener {
+
+	private final TrigramIndex index;
+	private final File storage;
+	private final PriorityFunction ignores;
+	private final CharsetCache charsets;
+
+	/**
+	 * Files waiting to be (re)indexed.
+	 */
+	private final LinkedHashSet<IFile> pending = new LinkedHashSet<IFile>();
+
+	/**
+	 * When true the next run of the job will also walk the whole workspace looking for
+	 * files not yet in the index.
+	 */
+	private boolean reconcile = true;
+
+	/**
+	 * Set when the index is thrown away. Nothing is indexed after that.
+	 */
+	private volatile boolean discarded = false;
+
+	private TrigramIndexer(TrigramIndex index, File storage, PriorityFunction ignores, CharsetCache charsets) {
+		super("QuickSearch Indexer");
+		this.index = index;
+		this.storage = storage;
+		this.ignores = ignores;
+		this.charsets = charsets;
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Create and start an indexer. The index is loaded from the given storage file if it exists.
+	 *
+	 * @param charsets Cache of the charsets files are decoded with. May be null.
+	 */
+	public static TrigramIndexer start(File storage, DefaultPriorityFunction ignores, CharsetCache charsets) {
+		TrigramIndex index = TrigramIndex.load(storage);
+		if (index==null) {
+			index = new TrigramIndex();
+		}
+		TrigramIndexer indexer = new TrigramIndexer(index, storage, ignores, charsets);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(indexer, IResourceChangeEvent.POST_CHANGE);
+		indexer.schedule();
+		return indexer;
+	}
+
+	/**
+	 * Stop listening to changes and persist the current state of the index.
+	 */
+	public void stop() {
+		shutdown();
+		if (index.isDirty()) {
+			try {
+				storage.getParentFile().mkdirs();
+				index.save(storage);
+			} catch (IOException e) {
+				QuickSearchActivator.log(e);
+				storage.delete();
+			}
+		}
+	}
+
+	/**
+	 * Stop listening to changes and throw the index away, for when indexing is turned off.
+	 * The storage file is deleted.
+	 */
+	public void discard() {
+		discarded = true;
+		shutdown();
+		storage.delete();
+	}
+
+	private void shutdown() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		cancel();
+		try {
+			join();
+		} catch (InterruptedException e) {
+			//Ignore
+		}
+	}
+
+	public TrigramIndex getIndex() {
+		return index;
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta==null) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource r = delta.getResource();
+					switch (delta.getKind()) {
+					case IResourceDelta.REMOVED:
+						if (r instanceof IFile) {
+							index.remove((IFile) r);
+						} else {
+							index.removeAll(r.getFullPath().toString());
+						}
+						return false;
+					case IResourceDelta.ADDED:
+					case IResourceDelta.CHANGED:
+						if (r instanceof IFile && (delta.getKind()==IResourceDelta.ADDED || (delta.getFlags() & IResourceDelta.CONTENT)!=0)) {
+							enqueue((IFile) r);
+						}
+						return true;
+					default:
+						return true;
+					}
+				}
+			});
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
+	private void enqueue(IFile f) {
+		synchronized (pending) {
+			pending.add(f);
+		}
+		schedule(500);
+	}
+
+	private IFile nextPending() {
+		synchronized (pending) {
+			Iterator<IFile> iter = pending.iterator();
+			if (iter.hasNext()) {
+				IFile f = iter.next();
+				iter.remove();
+				return f;
+			}
+			return null;
+		}
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		if (discarded) {
+			return Status.CANCEL_STATUS;
+		}
+		if (reconcile) {
+			reconcile = false;
+			try {
+				collectUnindexed(ResourcesPlugin.getWorkspace().getRoot(), monitor);
+			} catch (CoreException e) {
+				QuickSearchActivator.log(e);
+			}
+		}
+		IFile f;
+		while (!monitor.isCanceled() && (f = nextPending())!=null) {
+			indexFile(f);
+		}
+		index.compact();
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * Walk the workspace and enqueue any file that the index doesn't know about or
+	 * has an outdated entry for.
+	 */
+	private void collectUnindexed(IContainer container, IProgressMonitor monitor) throws CoreException {
+		if (monitor.isCanceled() || !container.isAccessible()) {
+			return;
+		}
+		for (IResource r : container.members()) {
+			if (ignores.priority(r)!=PriorityFunction.PRIORITY_IGNORE) {
+				if (r instanceof IFile) {
+					IFile f = (IFile) r;
+					if (!index.isUpToDate(f)) {
+						synchronized (pending) {
+							pending.add(f);
+						}
+					}
+				} else if (r instanceof IContainer) {
+					collectUnindexed((IContainer) r, monitor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bring the index entry for a file up to date, unless it already is. Files are normally
+	 * indexed by this job, but this may also be called from other threads to index some
+	 * files sooner.
+	 *
+	 * @return Whether the file had to be read.
+	 */
+	public boolean indexFile(IFile f) {
+		if (discarded) {
+			return false;
+		}
+		if (!f.isAccessible() || ignores.priority(f)==PriorityFunction.PRIORITY_IGNORE) {
+			index.remove(f);
+			return false;
+		}
+		if (index.isUpToDate(f)) {
+			return false;
+		}
+		long stamp = f.getModificationStamp();
+		Reader reader = null;
+		try {
+			String charset = charsets==null ? f.getCharset() : charsets.getCharset(f);
+			//The charset cache doesn't look for byte order marks, the reader does.
+			reader = ByteOrderMark.newReader(f.getContents(true), charset);
+			int[] trigrams = TrigramIndex.computeTrigrams(reader);
+			if (trigrams==null) {
+				//Too big to index. It'll be searched normally.
+				index.remove(f);
+			} else {
+				index.put(f, stamp, trigrams);
+			}
+		} catch (Exception e) {
+			//File can't be read right now. Leave it out of the index, so it will be searched normally.
+			index.remove(f);
+		} finally {
+			if (reader!=null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					//Ignore
+				}
+			}
+		}
+		return true;
+	}
+
+}
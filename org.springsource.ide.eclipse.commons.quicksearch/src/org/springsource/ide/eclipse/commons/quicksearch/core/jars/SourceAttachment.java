@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.jars;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * The source archive attached to a jar on the Java build path.
+ */
+public class SourceAttachment {
+
+	private final IPackageFragmentRoot root;
+	private final File archive;
+	private final String prefix;
+	private final String charset;
+
+	private SourceAttachment(IPackageFragmentRoot root, File archive, String prefix, String charset) {
+		this.root = root;
+		this.archive = archive;
+		this.prefix = prefix;
+		this.charset = charset;
+	}
+
+	/**
+	 * Find the source archives attached to the jars on a project's build path.
+	 *
+	 * @return The source attachments. Empty if the project isn't a Java project.
+	 */
+	public static List<SourceAttachment> findAll(IProject project) {
+		try {
+			if (!project.isAccessible() || !project.hasNature(JavaCore.NATURE_ID)) {
+				return Collections.emptyList();
+			}
+			IJavaProject jp = JavaCore.create(project);
+			List<SourceAttachment> found = new ArrayList<SourceAttachment>();
+			for (IPackageFragmentRoot root : jp.getPackageFragmentRoots()) {
+				if (root.isArchive() && root.getKind()==IPackageFragmentRoot.K_BINARY) {
+					SourceAttachment sa = create(root);
+					if (sa!=null) {
+						found.add(sa);
+					}
+				}
+			}
+			return found;
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+			return Collections.emptyList();
+		}
+	}
+
+	private static SourceAttachment create(IPackageFragmentRoot root) throws CoreException {
+		IPath path = root.getSourceAttachmentPath();
+		if (path==null) {
+			return null;
+		}
+		File archive = null;
+		IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+		if (resource!=null) {
+			IPath location = resource.getLocation();
+			if (location!=null) {
+				archive = location.toFile();
+			}
+		} else {
+			archive = path.toFile();
+		}
+		if (archive==null || !archive.isFile()) {
+			//Missing, or a source folder rather than an archive.
+			return null;
+		}
+		String prefix = "";
+		IPath rootPath = root.getSourceAttachmentRootPath();
+		if (rootPath!=null && !rootPath.isEmpty()) {
+			prefix = rootPath.makeRelative().addTrailingSeparator().toString();
+		}
+		return new SourceAttachment(root, archive, prefix, getCharset(root));
+	}
+
+	private static String getCharset(IPackageFragmentRoot root) throws CoreException {
+		IClasspathEntry entry = root.getResolvedClasspathEntry();
+		if (entry!=null) {
+			for (IClasspathAttribute attribute : entry.getExtraAttributes()) {
+				if (IClasspathAttribute.SOURCE_ATTACHMENT_ENCODING.equals(attribute.getName())) {
+					return attribute.getValue();
+				}
+			}
+		}
+		return ResourcesPlugin.getEncoding();
+	}
+
+	public IPackageFragmentRoot getPackageFragmentRoot() {
+		return root;
+	}
+
+	/**
+	 * @return Location of the source archive in the file system.
+	 */
+	public File getArchive() {
+		return archive;
+	}
+
+	public String getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return The path of a java source file relative to the source root, or null
+	 *     if the entry is not a java source file within the source root.
+	 */
+	public String getSourcePath(String entryName) {
+		if (entryName.endsWith(".java") && entryName.startsWith(prefix)) {
+			return entryName.substring(prefix.length());
+		}
+		return null;
+	}
+
+}
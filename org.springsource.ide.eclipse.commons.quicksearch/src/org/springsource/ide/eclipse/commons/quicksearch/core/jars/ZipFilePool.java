@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.jars;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipFile;
+
+/**
+ * Shares open {@link ZipFile}s between searches. Opening a zip file means reading its central
+ * directory, which is worth avoiding when the same jars are searched over and over again.
+ * <p>
+ * Zip files are opened lazily, the first time they are acquired. Each {@link #acquire(File)} must
+ * be followed by a {@link #release(ZipFile)}. When more than a fixed number of zip files are open,
+ * the least recently used ones that are not currently acquired are closed.
+ * <p>
+ * This class is thread safe.
+ */
+public class ZipFilePool {
+
+	private static final int MAX_OPEN = 16;
+
+	private static final class Entry {
+		final ZipFile zip;
+		final long lastModified;
+		int users = 0;
+		Entry(ZipFile zip, long lastModified) {
+			this.zip = zip;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * Access ordered, so iteration starts at the least recently used zip.
+	 */
+	private final LinkedHashMap<File, Entry> open = new LinkedHashMap<File, Entry>(MAX_OPEN, 0.75f, true);
+
+	/**
+	 * Get an open ZipFile for a file on disk.
+	 */
+	public synchronized ZipFile acquire(File file) throws IOException {
+		Entry e = open.get(file);
+		if (e!=null && e.lastModified!=file.lastModified() && e.users==0) {
+			//File was changed. Reopen it.
+			open.remove(file);
+			close(e);
+			e = null;
+		}
+		if (e==null) {
+			e = new Entry(new ZipFile(file), file.lastModified());
+			open.put(file, e);
+			evict();
+		}
+		e.users++;
+		return e.zip;
+	}
+
+	public synchronized void release(ZipFile zip) {
+		Entry e = open.get(new File(zip.getName()));
+		if (e!=null && e.zip==zip) {
+			e.users--;
+			evict();
+		} else {
+			//Not pooled anymore.
+			try {
+				zip.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * Close all zip files that are not in use.
+	 */
+	public synchronized void dispose() {
+		Iterator<Entry> iter = open.values().iterator();
+		while (iter.hasNext()) {
+			Entry e = iter.next();
+			if (e.users==0) {
+				iter.remove();
+				close(e);
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> iter = open.values().iterator();
+		while (open.size()>MAX_OPEN && iter.hasNext()) {
+			Entry e = iter.next();
+			if (e.users==0) {
+				iter.remove();
+				close(e);
+			}
+		}
+	}
+
+	private void close(Entry e) {
+		try {
+			e.zip.close();
+		} catch (IOException ignore) {
+		}
+	}
+
+}
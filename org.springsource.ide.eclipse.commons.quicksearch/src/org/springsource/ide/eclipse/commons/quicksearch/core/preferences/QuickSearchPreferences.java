@@ -27,7 +27,18 @@ public class QuickSearchPreferences {
 	public static final String IGNORED_EXTENSIONS = "ignored.extensions";
 	public static final String IGNORED_NAMES = "ignored.names";
 	public static final String IGNORED_PREFIXES = "ignored.prefixes";
+	public static final String IGNORED_PATTERNS = "ignored.patterns";
 	public static final String MAX_LINE_LEN = "LineReader.MAX_LINE_LEN";
+	public static final String USE_INDEX = "index.enabled";
+	public static final String WORKERS = "walker.workers";
+	public static final String CACHE_SIZE = "cache.size";
+	public static final String SEARCH_SOURCE_JARS = "sourcejars.enabled";
+	public static final String USE_IGNORE_FILES = "ignorefiles.enabled";
+	public static final String USE_HISTORY = "history.enabled";
+	public static final String PREWARM = "prewarm.enabled";
+
+	public static final int DEFAULT_WORKERS = 1;
+	public static final int DEFAULT_CACHE_SIZE = 32;
 
 	private IEclipsePreferences store;
 
@@ -51,10 +62,71 @@ public class QuickSearchPreferences {
 		return getAndParseStringList(IGNORED_NAMES);
 	}
 
+	/**
+	 * Patterns in .gitignore syntax, matched against project relative paths.
+	 */
+	public String[] getIgnoredPatterns() {
+		return getAndParseStringList(IGNORED_PATTERNS);
+	}
+
 	public int getMaxLineLen() {
 		return store.getInt(MAX_LINE_LEN, LineReader.DEFAULT_MAX_LINE_LENGTH);
 	}
 
+	/**
+	 * Whether a persistent trigram index should be maintained and used to skip files
+	 * that can not contain a match. Off by default since the index takes memory and disk
+	 * space roughly proportional to the amount of text in the workspace.
+	 */
+	public boolean getUseIndex() {
+		return store.getBoolean(USE_INDEX, false);
+	}
+
+	/**
+	 * Number of threads used to read and search files concurrently.
+	 */
+	public int getWorkers() {
+		return Math.max(1, store.getInt(WORKERS, DEFAULT_WORKERS));
+	}
+
+	/**
+	 * Memory budget, in megabytes, for caching the contents of recently searched files.
+	 * Zero disables the cache.
+	 */
+	public int getCacheSize() {
+		return Math.max(0, store.getInt(CACHE_SIZE, DEFAULT_CACHE_SIZE));
+	}
+
+	/**
+	 * Whether the source attachments of jars on the Java build path are searched as well.
+	 */
+	public boolean getSearchSourceJars() {
+		return store.getBoolean(SEARCH_SOURCE_JARS, false);
+	}
+
+	/**
+	 * Whether files and folders excluded by '.gitignore' and '.ignore' files are skipped.
+	 */
+	public boolean getUseIgnoreFiles() {
+		return store.getBoolean(USE_IGNORE_FILES, false);
+	}
+
+	/**
+	 * Whether the files opened from search results are remembered, and searched first in
+	 * later searches.
+	 */
+	public boolean getUseHistory() {
+		return store.getBoolean(USE_HISTORY, true);
+	}
+
+	/**
+	 * Whether the files most likely to be searched are read in the background once Quick Search is first used,
+	 * so that the first search is as fast as later ones.
+	 */
+	public boolean getPrewarm() {
+		return store.getBoolean(PREWARM, false);
+	}
+
 	private String[] getAndParseStringList(String key) {
 		String raw = store.get(key, null);
 		if (raw!=null) {
@@ -10,15 +10,12 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
 
-import java.net.URI;
-import java.util.HashSet;
 import java.util.Set;
 
-import org.eclipse.core.resources.IContainer;
-import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Platform;
 import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
 
 /**
  * Default implementation of PriorityFunction. It doesn't de-emphasize anything but
@@ -27,6 +24,9 @@ import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSe
  * <p>
  * This class can be used as is and customised by changing the lists, or it can be
  * subclassed and inherit some of the default behaviour by calling super.priority()
+ * <p>
+ * The lists are compiled into a form that can be matched quickly the first time they are
+ * used, and compiled again whenever one of the lists is replaced by another array.
  */
 public class DefaultPriorityFunction extends PriorityFunction {
 	
@@ -62,33 +62,39 @@ public class DefaultPriorityFunction extends PriorityFunction {
 	public String[] ignoredNames = {
 		"bin", "target", "build"
 	};
+
+	/**
+	 * The default priority function causes any resources matching one of these patterns to be
+	 * ignored. The patterns use the syntax of .gitignore files (see {@link IgnorePatterns}) and
+	 * are matched against paths relative to the project.
+	 */
+	public String[] ignoredPatterns = {};
 	
 	public Set<IResource> ignoredResources = null;
 
+	/**
+	 * If true, walkers also ignore the resources excluded by '.gitignore' and '.ignore' files.
+	 */
+	public boolean useIgnoreFiles = false;
+
+	private volatile IgnoreRules rules = null;
+
 	@Override
 	public double priority(IResource r) {
 		if (r!=null && r.isAccessible()) {
 			if (ignoreDerived && r.isDerived()) {
 				return PRIORITY_IGNORE;
 			}
-			if (ignoredResources!=null && ignoredResources.contains(r)) {
+			if (ignoredResources!=null && !ignoredResources.isEmpty() && r.getType()!=IResource.FILE && ignoredResources.contains(r)) {
 				return PRIORITY_IGNORE;
 			}
-			String name = r.getName();
-			for (String ext : ignoredExtensions) {
-				if (name.endsWith(ext)) {
-					return PRIORITY_IGNORE;
-				}
-			}
-			for (String pre : ignoredPrefixes) {
-				if (name.startsWith(pre)) {
-					return PRIORITY_IGNORE;
-				}
+			IgnoreRules rules = getRules();
+			if (rules.isIgnoredName(r.getName())) {
+				return PRIORITY_IGNORE;
 			}
-			for (String n : ignoredNames) {
-				if (name.equals(n)) {
-					return PRIORITY_IGNORE;
-				}
+			IgnorePatterns patterns = rules.getPatterns();
+			if (!patterns.isEmpty() && patterns.match(r.getFullPath(), 1, r.getType()!=IResource.FILE)==IgnorePatterns.IGNORED) {
+				return PRIORITY_IGNORE;
 			}
 			return PRIORITY_DEFAULT;
 		}
@@ -111,42 +117,40 @@ public class DefaultPriorityFunction extends PriorityFunction {
 		if (pref!=null) {
 			this.ignoredPrefixes = pref;
 		}
+		pref = preferences.getIgnoredPatterns();
+		if (pref!=null) {
+			this.ignoredPatterns = pref;
+		}
+		this.useIgnoreFiles = preferences.getUseIgnoreFiles();
 		computeIgnoredFolders();
 	}
 
+	@Override
+	public boolean isUsingIgnoreFiles() {
+		return useIgnoreFiles;
+	}
+
+	private IgnoreRules getRules() {
+		IgnoreRules r = rules;
+		if (r==null || !r.isCompiledFrom(ignoredExtensions, ignoredPrefixes, ignoredNames, ignoredPatterns)) {
+			rules = r = new IgnoreRules(ignoredExtensions, ignoredPrefixes, ignoredNames, ignoredPatterns);
+		}
+		return r;
+	}
+
 	/**
 	 * We want to avoid searchin the same files / folders twice in cases where users have 'overlapping projects'.
 	 * I.e a project contains folders that are actually correspond to other projects also imported in the workspace.
 	 * <p>
 	 * See https://issuetracker.springsource.com/browse/STS-3783
 	 * <p>
-	 * This method computes a set of folders to ignore.
+	 * This method fetches the set of folders to ignore. The set is maintained by {@link OverlappingProjects}
+	 * so it doesn't have to be recomputed every time.
 	 */
 	private void computeIgnoredFolders() {
-		//TODO: Hopefully this won't take too long to compute. Otherwise we may need to look at ways of caching it.
-		// it probably doesn't change that often.
-		IProject[] allprojects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
-		for (IProject p : allprojects) {
-			if (p.isAccessible()) {
-				URI location = p.getLocationURI();
-				if (location!=null) {
-					IContainer[] containers = ResourcesPlugin.getWorkspace().getRoot().findContainersForLocationURI(location);
-					if (containers!=null) {
-						for (IContainer folder : containers) {
-							if (!folder.equals(p)) {
-								ignore(folder);
-							}
-						}
-					}
-				}
-			}
-		}
-	}
-
-	private void ignore(IContainer folder) {
-		if (ignoredResources==null) {
-			ignoredResources = new HashSet<IResource>();
-		}
-		ignoredResources.add(folder);
+		//Outside of a running Eclipse (e.g. in the benchmarks) there is no plugin, and no workspace
+		//with overlapping projects. The activator class can't even be loaded there.
+		QuickSearchActivator activator = Platform.isRunning() ? QuickSearchActivator.getDefault() : null;
+		ignoredResources = activator==null ? null : activator.getOverlappingProjects().getFolders();
 	}
 }
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * Reads the '.gitignore' and '.ignore' files in a directory. The patterns of both files apply,
+ * with those in '.ignore' taking precedence.
+ * <p>
+ * Compiled patterns are cached, so that searches that restart over and over don't read and
+ * compile the same files every time. Cache entries are checked against the files' modification
+ * stamps.
+ * <p>
+ * This class is thread safe.
+ */
+public class IgnoreFiles {
+
+	public static final String[] NAMES = { ".gitignore", ".ignore" };
+
+	private static final int MAX_CACHED = 256;
+
+	private static final class Cached {
+		final long[] stamps;
+		final IgnorePatterns patterns;
+		Cached(long[] stamps, IgnorePatterns patterns) {
+			this.stamps = stamps;
+			this.patterns = patterns;
+		}
+	}
+
+	private static final Map<IPath, Cached> cache = new LinkedHashMap<IPath, Cached>(MAX_CACHED, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IPath, Cached> eldest) {
+			return size()>MAX_CACHED;
+		}
+	};
+
+	/**
+	 * @return The patterns of the ignore files directly inside a container, or null if it has none.
+	 */
+	public static IgnorePatterns read(IContainer container) {
+		IFile[] files = new IFile[NAMES.length];
+		long[] stamps = new long[NAMES.length];
+		boolean found = false;
+		for (int i = 0; i < NAMES.length; i++) {
+			IResource r = container.findMember(NAMES[i]);
+			if (r instanceof IFile) {
+				files[i] = (IFile) r;
+				stamps[i] = r.getModificationStamp();
+				found = true;
+			} else {
+				stamps[i] = IResource.NULL_STAMP;
+			}
+		}
+		if (!found) {
+			return null;
+		}
+		IPath key = container.getFullPath();
+		synchronized (cache) {
+			Cached e = cache.get(key);
+			if (e!=null && Arrays.equals(e.stamps, stamps)) {
+				return e.patterns;
+			}
+		}
+		List<String> lines = new ArrayList<String>();
+		for (IFile f : files) {
+			if (f!=null) {
+				readLines(f, lines);
+			}
+		}
+		IgnorePatterns patterns = IgnorePatterns.compile(lines.toArray(new String[lines.size()]));
+		synchronized (cache) {
+			cache.put(key, new Cached(stamps, patterns));
+		}
+		return patterns;
+	}
+
+	private static void readLines(IFile f, List<String> lines) {
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(f.getContents(true), f.getCharset()));
+			try {
+				String line;
+				while ((line = reader.readLine())!=null) {
+					lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (CoreException e) {
+			//File is out of sync or was deleted. Treat it as empty.
+		} catch (IOException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
+}
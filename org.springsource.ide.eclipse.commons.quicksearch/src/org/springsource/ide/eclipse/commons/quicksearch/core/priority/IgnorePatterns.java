@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A list of glob patterns with the syntax and meaning of the lines in a '.gitignore' file:
+ * <ul>
+ *   <li>Blank lines and lines starting with '#' are ignored.</li>
+ *   <li>'*' matches anything except '/', '?' matches one char except '/' and '[...]' matches one
+ *       char in a set or range ('[!...]' one char not in it). A '\' escapes the next char.</li>
+ *   <li>A pattern ending with '/' only matches directories.</li>
+ *   <li>A pattern without a '/' (other than a trailing one) matches a name at any depth. Other
+ *       patterns match paths relative to the directory the patterns belong to.</li>
+ *   <li>'**' matches any number of directories: a leading '**&#47;' matches in all directories,
+ *       a trailing '/**' matches everything inside a directory and 'a/**&#47;b' matches 'a/b',
+ *       'a/x/b', 'a/x/y/b' etc.</li>
+ *   <li>A pattern starting with '!' re-includes paths excluded by earlier patterns.</li>
+ * </ul>
+ * The last pattern that matches a path decides whether it is ignored. Unlike git, a path is not
+ * implicitly ignored when its parent directory is. Walkers never get to such paths because
+ * they don't enter ignored directories.
+ * <p>
+ * Matching creates no garbage. Instances are immutable and can be shared between threads.
+ */
+public final class IgnorePatterns {
+
+	/**
+	 * Result of {@link #match(IPath, int, boolean)}: no pattern matches the path.
+	 */
+	public static final int NO_MATCH = 0;
+
+	/**
+	 * Result of {@link #match(IPath, int, boolean)}: the path is ignored.
+	 */
+	public static final int IGNORED = 1;
+
+	/**
+	 * Result of {@link #match(IPath, int, boolean)}: the path is explicitly re-included by
+	 * a negated pattern.
+	 */
+	public static final int INCLUDED = 2;
+
+	public static final IgnorePatterns EMPTY = new IgnorePatterns(new Pattern[0]);
+
+	/**
+	 * Stands for a '**' segment in a compiled pattern.
+	 */
+	private static final char[] ANY_SEGMENTS = new char[0];
+
+	private static final class Pattern {
+		final char[][] segments;
+		final boolean negated;
+		final boolean directoryOnly;
+		Pattern(char[][] segments, boolean negated, boolean directoryOnly) {
+			this.segments = segments;
+			this.negated = negated;
+			this.directoryOnly = directoryOnly;
+		}
+	}
+
+	private final Pattern[] patterns;
+
+	private IgnorePatterns(Pattern[] patterns) {
+		this.patterns = patterns;
+	}
+
+	/**
+	 * Compile patterns given as the lines of a '.gitignore' file.
+	 */
+	public static IgnorePatterns compile(String[] lines) {
+		List<Pattern> compiled = new ArrayList<Pattern>(lines.length);
+		for (String line : lines) {
+			Pattern p = compile(line);
+			if (p!=null) {
+				compiled.add(p);
+			}
+		}
+		if (compiled.isEmpty()) {
+			return EMPTY;
+		}
+		return new IgnorePatterns(compiled.toArray(new Pattern[compiled.size()]));
+	}
+
+	private static Pattern compile(String line) {
+		line = trimTrailingSpaces(line);
+		if (line.length()==0 || line.charAt(0)=='#') {
+			return null;
+		}
+		boolean negated = false;
+		if (line.charAt(0)=='!') {
+			negated = true;
+			line = line.substring(1);
+		}
+		boolean directoryOnly = false;
+		if (line.endsWith("/")) {
+			directoryOnly = true;
+			line = line.substring(0, line.length()-1);
+		}
+		boolean anchored = line.indexOf('/')>=0;
+		if (line.startsWith("/")) {
+			line = line.substring(1);
+		}
+		if (line.length()==0) {
+			return null;
+		}
+		List<char[]> segments = new ArrayList<char[]>();
+		if (!anchored) {
+			segments.add(ANY_SEGMENTS);
+		}
+		for (String s : line.split("/")) {
+			if (s.equals("**")) {
+				if (segments.isEmpty() || segments.get(segments.size()-1)!=ANY_SEGMENTS) {
+					segments.add(ANY_SEGMENTS);
+				}
+			} else if (s.length()>0) {
+				segments.add(s.toCharArray());
+			}
+		}
+		return new Pattern(segments.toArray(new char[segments.size()][]), negated, directoryOnly);
+	}
+
+	private static String trimTrailingSpaces(String line) {
+		int end = line.length();
+		while (end>0 && Character.isWhitespace(line.charAt(end-1)) && !(end>1 && line.charAt(end-2)=='\\')) {
+			end--;
+		}
+		return line.substring(0, end);
+	}
+
+	public boolean isEmpty() {
+		return patterns.length==0;
+	}
+
+	/**
+	 * Match a path against the patterns.
+	 *
+	 * @param path The path to match.
+	 * @param from Index of the first segment of the path that is relative to the directory the
+	 *     patterns belong to. E.g. 1 to match a workspace path against patterns for its project.
+	 * @param isDirectory Whether the path is a directory (i.e. a container).
+	 * @return {@link #IGNORED}, {@link #INCLUDED} or {@link #NO_MATCH}.
+	 */
+	public int match(IPath path, int from, boolean isDirectory) {
+		int count = path.segmentCount();
+		for (int i = patterns.length-1; i >= 0; i--) {
+			Pattern p = patterns[i];
+			if ((isDirectory || !p.directoryOnly) && matchSegments(p.segments, 0, path, from, count)) {
+				return p.negated ? INCLUDED : IGNORED;
+			}
+		}
+		return NO_MATCH;
+	}
+
+	private static boolean matchSegments(char[][] pattern, int pi, IPath path, int si, int count) {
+		while (pi<pattern.length) {
+			if (pattern[pi]==ANY_SEGMENTS) {
+				if (pi==pattern.length-1) {
+					//Trailing '**' matches everything inside, but not the directory itself.
+					return si<count;
+				}
+				for (int k = si; k < count; k++) {
+					if (matchSegments(pattern, pi+1, path, k, count)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			if (si==count || !matchGlob(pattern[pi], path.segment(si))) {
+				return false;
+			}
+			pi++;
+			si++;
+		}
+		return si==count;
+	}
+
+	/**
+	 * Match a single segment of a pattern against a name.
+	 */
+	static boolean matchGlob(char[] glob, String name) {
+		int g = 0;
+		int n = 0;
+		//Where to resume after the last '*' if the text after it fails to match.
+		int starG = -1;
+		int starN = 0;
+		while (n<name.length()) {
+			if (g<glob.length && glob[g]=='*') {
+				starG = ++g;
+				starN = n;
+			} else if (g<glob.length && matchChar(glob, g, name.charAt(n))) {
+				g = nextElement(glob, g);
+				n++;
+			} else if (starG>=0) {
+				//Let the last '*' absorb one more char and try again.
+				g = starG;
+				n = ++starN;
+			} else {
+				return false;
+			}
+		}
+		while (g<glob.length && glob[g]=='*') {
+			g++;
+		}
+		return g==glob.length;
+	}
+
+	/**
+	 * @return Whether the glob element (a literal char, escaped char, '?' or '[...]') at index g
+	 *     matches a char.
+	 */
+	private static boolean matchChar(char[] glob, int g, char c) {
+		char p = glob[g];
+		if (p=='?') {
+			return true;
+		} else if (p=='\\' && g+1<glob.length) {
+			return glob[g+1]==c;
+		} else if (p=='[') {
+			int end = classEnd(glob, g);
+			if (end<0) {
+				return c=='[';
+			}
+			int i = g+1;
+			boolean negated = glob[i]=='!' || glob[i]=='^';
+			if (negated) {
+				i++;
+			}
+			boolean found = false;
+			while (i<end) {
+				char lo = glob[i];
+				if (i+2<end && glob[i+1]=='-') {
+					found |= lo<=c && c<=glob[i+2];
+					i += 3;
+				} else {
+					found |= lo==c;
+					i++;
+				}
+			}
+			return found!=negated;
+		}
+		return p==c;
+	}
+
+	private static int nextElement(char[] glob, int g) {
+		char p = glob[g];
+		if (p=='\\' && g+1<glob.length) {
+			return g+2;
+		} else if (p=='[') {
+			int end = classEnd(glob, g);
+			return end<0 ? g+1 : end+1;
+		}
+		return g+1;
+	}
+
+	/**
+	 * @return Index of the ']' closing the char class starting at index g, or -1 if it isn't closed.
+	 */
+	private static int classEnd(char[] glob, int g) {
+		int i = g+1;
+		if (i<glob.length && (glob[i]=='!' || glob[i]=='^')) {
+			i++;
+		}
+		if (i<glob.length && glob[i]==']') {
+			//A ']' right at the start is part of the class.
+			i++;
+		}
+		while (i<glob.length) {
+			if (glob[i]==']') {
+				return i;
+			}
+			i++;
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
+
+import java.util.Arrays;
+
+/**
+ * The name based ignore rules of a {@link DefaultPriorityFunction} (ignored extensions, prefixes,
+ * names and patterns), compiled so that testing a name takes a single pass over its chars.
+ * <p>
+ * Extensions and names are kept together in one trie of reversed strings: walking a name backwards
+ * through the trie finds every extension it ends with, and if the whole name is consumed, whether
+ * it is one of the names. Prefixes are kept in a second trie, walked forwards.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+final class IgnoreRules {
+
+	private static final class Node {
+		char[] chars = new char[0];
+		Node[] next = new Node[0];
+		/**
+		 * A rule ends here, and it matches anything that continues beyond it.
+		 */
+		boolean open;
+		/**
+		 * A rule ends here, and it only matches if nothing follows.
+		 */
+		boolean exact;
+
+		Node get(char c) {
+			for (int i = 0; i < chars.length; i++) {
+				if (chars[i]==c) {
+					return next[i];
+				}
+			}
+			return null;
+		}
+
+		Node getOrCreate(char c) {
+			Node n = get(c);
+			if (n==null) {
+				n = new Node();
+				chars = Arrays.copyOf(chars, chars.length+1);
+				next = Arrays.copyOf(next, next.length+1);
+				chars[chars.length-1] = c;
+				next[next.length-1] = n;
+			}
+			return n;
+		}
+	}
+
+	//The rules this was compiled from. Used to detect changes to the rules.
+	private final String[] extensions;
+	private final String[] prefixes;
+	private final String[] names;
+	private final String[] patternLines;
+
+	private final Node suffixes = new Node();
+	private final Node starts = new Node();
+	private final IgnorePatterns patterns;
+
+	IgnoreRules(String[] extensions, String[] prefixes, String[] names, String[] patterns) {
+		this.extensions = extensions;
+		this.prefixes = prefixes;
+		this.names = names;
+		this.patternLines = patterns;
+		for (String ext : extensions) {
+			addReversed(ext).open = true;
+		}
+		for (String name : names) {
+			addReversed(name).exact = true;
+		}
+		for (String pre : prefixes) {
+			Node n = starts;
+			for (int i = 0; i < pre.length(); i++) {
+				n = n.getOrCreate(pre.charAt(i));
+			}
+			n.open = true;
+		}
+		this.patterns = IgnorePatterns.compile(patterns);
+	}
+
+	private Node addReversed(String s) {
+		Node n = suffixes;
+		for (int i = s.length()-1; i >= 0; i--) {
+			n = n.getOrCreate(s.charAt(i));
+		}
+		return n;
+	}
+
+	/**
+	 * @return true if the rules were compiled from exactly these arrays.
+	 */
+	boolean isCompiledFrom(String[] extensions, String[] prefixes, String[] names, String[] patterns) {
+		return this.extensions==extensions && this.prefixes==prefixes && this.names==names && this.patternLines==patterns;
+	}
+
+	/**
+	 * @return true if a name ends with one of the extensions, starts with one of the prefixes
+	 *     or equals one of the names.
+	 */
+	boolean isIgnoredName(String name) {
+		Node n = suffixes;
+		int i = name.length();
+		while (true) {
+			if (n.open || (i==0 && n.exact)) {
+				return true;
+			}
+			if (i==0) {
+				break;
+			}
+			n = n.get(name.charAt(--i));
+			if (n==null) {
+				break;
+			}
+		}
+		n = starts;
+		i = 0;
+		while (true) {
+			if (n.open) {
+				return true;
+			}
+			if (i==name.length()) {
+				return false;
+			}
+			n = n.get(name.charAt(i++));
+			if (n==null) {
+				return false;
+			}
+		}
+	}
+
+	IgnorePatterns getPatterns() {
+		return patterns;
+	}
+
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * Keeps track of the folders that are in the same location as some other project in the workspace.
+ * This happens when users have 'overlapping projects': a project contains folders that
+ * correspond to other projects also imported in the workspace. Searching those folders would
+ * search the same files twice.
+ * <p>
+ * See https://issuetracker.springsource.com/browse/STS-3783
+ * <p>
+ * The folders are computed the first time they are needed, and then kept up to date from resource
+ * change events: added and removed folders are checked individually, and changes to the set
+ * of projects (or their locations) cause the folders to be computed again when next needed.
+ * <p>
+ * This class is thread safe.
+ */
+public class OverlappingProjects implements IResourceChangeListener {
+
+	private static final class State {
+		final Set<URI> projectLocations;
+		final Set<IResource> folders;
+		State(Set<URI> projectLocations, Set<IResource> folders) {
+			this.projectLocations = projectLocations;
+			this.folders = folders;
+		}
+	}
+
+	/**
+	 * Null when it needs to be computed. Never modified, only replaced.
+	 */
+	private volatile State state = null;
+
+	/**
+	 * Create an instance and register it to receive resource change events.
+	 */
+	public static OverlappingProjects start() {
+		OverlappingProjects op = new OverlappingProjects();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(op, IResourceChangeEvent.POST_CHANGE);
+		return op;
+	}
+
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		state = null;
+	}
+
+	/**
+	 * @return The folders that are also another project. The returned set doesn't change.
+	 */
+	public Set<IResource> getFolders() {
+		State s = state;
+		if (s==null) {
+			synchronized (this) {
+				s = state;
+				if (s==null) {
+					state = s = compute();
+				}
+			}
+		}
+		return s.folders;
+	}
+
+	private static State compute() {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Set<URI> locations = new HashSet<URI>();
+		Set<IResource> folders = new HashSet<IResource>();
+		for (IProject p : root.getProjects()) {
+			if (p.isAccessible()) {
+				URI location = p.getLocationURI();
+				if (location!=null) {
+					locations.add(location);
+					IContainer[] containers = root.findContainersForLocationURI(location);
+					if (containers!=null) {
+						for (IContainer folder : containers) {
+							if (!folder.equals(p)) {
+								folders.add(folder);
+							}
+						}
+					}
+				}
+			}
+		}
+		return new State(locations, Collections.unmodifiableSet(folders));
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		final State s = state;
+		IResourceDelta delta = event.getDelta();
+		if (s==null || delta==null) {
+			return;
+		}
+		final Set<IResource> added = new HashSet<IResource>();
+		final Set<IResource> removed = new HashSet<IResource>();
+		final boolean[] projectsChanged = { false };
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta d) throws CoreException {
+					IResource r = d.getResource();
+					switch (r.getType()) {
+					case IResource.ROOT:
+						return true;
+					case IResource.PROJECT:
+						if (d.getKind()!=IResourceDelta.CHANGED
+								|| (d.getFlags() & (IResourceDelta.OPEN|IResourceDelta.DESCRIPTION))!=0) {
+							projectsChanged[0] = true;
+							return false;
+						}
+						return true;
+					case IResource.FOLDER:
+						if (d.getKind()==IResourceDelta.ADDED) {
+							URI location = r.getLocationURI();
+							if (location!=null && s.projectLocations.contains(location)) {
+								added.add(r);
+							}
+						} else if (d.getKind()==IResourceDelta.REMOVED && s.folders.contains(r)) {
+							removed.add(r);
+						}
+						return true;
+					default:
+						return false;
+					}
+				}
+			});
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+			projectsChanged[0] = true;
+		}
+		synchronized (this) {
+			if (state!=s) {
+				//Recomputed or invalidated meanwhile.
+				return;
+			}
+			if (projectsChanged[0]) {
+				state = null;
+			} else if (!added.isEmpty() || !removed.isEmpty()) {
+				Set<IResource> folders = new HashSet<IResource>(s.folders);
+				folders.addAll(added);
+				folders.removeAll(removed);
+				state = new State(s.projectLocations, Collections.unmodifiableSet(folders));
+			}
+		}
+	}
+
+}
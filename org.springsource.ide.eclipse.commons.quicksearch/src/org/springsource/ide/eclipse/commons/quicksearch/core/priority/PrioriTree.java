@@ -10,14 +10,12 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
 
 /**
  * A PrioriTree is an implementation of PriorityFunction that is based on assigning specific priorities
@@ -27,24 +25,35 @@ import org.eclipse.core.runtime.Path;
  * 
  * TODO: The priority function produced by this tree would probably be better if it also raised/affected
  * the priority of nodes in a subtree of a node, but not by as much as the node itself.
+ * <p>
+ * Lookups happen for every resource the walker meets, so the tree is kept compact: path segments are
+ * interned, chains of nodes that differ only in their segment are collapsed into a single node, and
+ * nodes that no longer affect any priority are removed. A lookup walks the segments of a path by index
+ * and creates no garbage.
  * 
  * @author Kris De Volder
  */
 public class PrioriTree extends DefaultPriorityFunction {
 	
 	private static final boolean DEBUG =  false; //(""+Platform.getLocation()).contains("kdvolder");
+
+	/**
+	 * Nodes with more children than this also keep a hash index of their children. Nodes with
+	 * fewer children are searched linearly.
+	 */
+	private static final int MAX_LINEAR_CHILDREN = 8;
+
+	private static final String[] NO_SEGMENTS = new String[0];
 	
 	/**
 	 * Creates an empty PrioriTree. This tree assigns provided default priority to any path.
 	 */
 	public static PrioriTree create() {
-		return new PrioriTree(0, PRIORITY_DEFAULT);
+		return new PrioriTree();
 	}
 
-	private PrioriTree(int level, double defaultPriority) {
-		this.level = level;
-		this.priority = defaultPriority;
-		this.childPriority = defaultPriority;
+	private PrioriTree() {
+		root = new Node(NO_SEGMENTS, PRIORITY_DEFAULT, PRIORITY_DEFAULT);
 	}
 
 	private static void debug(String string) {
@@ -52,34 +61,134 @@ public class PrioriTree extends DefaultPriorityFunction {
 			System.out.println(string);
 		}
 	}
-	
-	/**
-	 * Level of this node in the tree. This corresponds to the length of path ending in this node. I.e. 0 for the root node,
-	 * 1 for children of root, 2 for children of level 1 nodes etc.
-	 * <p>
-	 * Level is used to easily check whether a node lookup returned an exact matching node or an ancestor.
-	 */
-	private int level;
+
+	private final Node root;
 
 	/**
-	 * Priority assigned to any path lookup that ends here.
-	 */
-	private double priority = PRIORITY_IGNORE; 
-		//Must start out as low as possible because putting stuff into the tree will raise the priorities monotonically.
-		//Note that normally we will not create a PrioriTree node unless there is some reason to
-	    // assign a priority. So this value is expected to be always overwritten shortly after
-	    // a node is created.
-	
-	/**
-	 * Default priority assigned to all children of this node
+	 * Interned path segments. Many paths in the tree share segments like 'src' or 'main'.
 	 */
-	private double childPriority = PRIORITY_IGNORE;
-	
+	private final Map<String, String> segments = new HashMap<String, String>();
+
 	/**
-	 * Children indexed by first segment in the path. This is only initialised if there's at least one
-	 * child.
+	 * A node in the tree. A node represents a path, and is reached from its parent by the one or
+	 * more segments in its 'label'. A label with more than one segment is a chain of nodes
+	 * collapsed into one. The collapsed nodes along the chain implicitly have the priority of
+	 * this node and the child priority of the parent.
 	 */
-	private Map<String, PrioriTree> children = null;
+	private static final class Node {
+
+		String[] label;
+
+		/**
+		 * Priority assigned to any path lookup that ends here.
+		 */
+		double priority;
+
+		/**
+		 * Default priority assigned to all children of this node
+		 */
+		double childPriority;
+
+		int childCount = 0;
+
+		/**
+		 * First label segment of each child, at the same index as the child in 'children'.
+		 */
+		String[] keys = NO_SEGMENTS;
+		Node[] children = null;
+
+		/**
+		 * Children indexed by first label segment. Only initialised for nodes with many children.
+		 */
+		Map<String, Node> index = null;
+
+		Node(String[] label, double priority, double childPriority) {
+			this.label = label;
+			this.priority = priority;
+			this.childPriority = childPriority;
+		}
+
+		/**
+		 * @return The child whose label starts with a given segment, or null.
+		 */
+		Node getChild(String segment) {
+			if (index!=null) {
+				return index.get(segment);
+			}
+			for (int i = 0; i < childCount; i++) {
+				if (keys[i].equals(segment)) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		void addChild(Node child) {
+			if (children==null) {
+				keys = new String[2];
+				children = new Node[2];
+			} else if (childCount==children.length) {
+				keys = Arrays.copyOf(keys, childCount*2);
+				children = Arrays.copyOf(children, childCount*2);
+			}
+			keys[childCount] = child.label[0];
+			children[childCount++] = child;
+			if (index!=null) {
+				index.put(child.label[0], child);
+			} else if (childCount>MAX_LINEAR_CHILDREN) {
+				index = new HashMap<String, Node>();
+				for (int i = 0; i < childCount; i++) {
+					index.put(keys[i], children[i]);
+				}
+			}
+		}
+
+		/**
+		 * Replace the child at index i with another node whose label starts with the same segment.
+		 */
+		void setChild(int i, Node child) {
+			children[i] = child;
+			if (index!=null) {
+				index.put(keys[i], child);
+			}
+		}
+
+		void removeChild(int i) {
+			if (index!=null) {
+				index.remove(keys[i]);
+			}
+			childCount--;
+			keys[i] = keys[childCount];
+			children[i] = children[childCount];
+			keys[childCount] = null;
+			children[childCount] = null;
+		}
+
+		int indexOf(Node child) {
+			for (int i = 0; i < childCount; i++) {
+				if (children[i]==child) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * A node is redundant if looking up its path, or any path below it, gives the same
+		 * result with and without the node.
+		 */
+		boolean isRedundant(Node parent) {
+			return childCount==0 && priority==parent.childPriority && childPriority==parent.childPriority;
+		}
+
+		/**
+		 * A node can be collapsed into its only child if, with the node treated as one of the
+		 * implicit nodes on the child's label, lookups give the same results.
+		 */
+		boolean isCollapsible(Node parent) {
+			return childCount==1 && priority==children[0].priority && childPriority==parent.childPriority;
+		}
+	}
 
 	/**
 	 * Set the priority for a given path. Also forces an update of all 'ancestor' nodes in the
@@ -107,50 +216,108 @@ public class PrioriTree extends DefaultPriorityFunction {
 	 * be retained in the tree node for that path.
 	 */
 	public void setPriority(IPath path, double priority) {
-		this.priority = Math.max(this.priority, priority); //Use Math.max, never reduce priorities!
-		if (path.segmentCount()>0) {
+		int count = path.segmentCount();
+		Node parent = null;
+		Node node = root;
+		int i = 0;
+		while (true) {
+			node.priority = Math.max(node.priority, priority); //Use Math.max, never reduce priorities!
+			if (i==count) {
+				// path ends here
+				setChildPriority(node, priority);
+				if (parent!=null) {
+					tidy(parent, parent.indexOf(node));
+				}
+				return;
+			}
 			// path leads to a child node
-			PrioriTree child = ensureChild(path.segment(0));
-			child.setPriority(path.removeFirstSegments(1), priority);
-		} else {
-			// path ends here
-			setChildPriority(priority);
+			Node child = node.getChild(path.segment(i));
+			if (child==null) {
+				//None of the rest of the path is in the tree yet. It becomes a single chain.
+				child = new Node(intern(path, i), node.childPriority, node.childPriority);
+				node.addChild(child);
+			} else {
+				int matched = match(child.label, path, i);
+				if (matched<child.label.length) {
+					child = split(node, child, matched);
+				}
+			}
+			i += child.label.length;
+			parent = node;
+			node = child;
 		}
 	}
 
-	private void setChildPriority(double priority) {
-		double newChildPriority = Math.max(priority, childPriority);
-		if (newChildPriority!=childPriority) {
+	private void setChildPriority(Node node, double priority) {
+		double newChildPriority = Math.max(priority, node.childPriority);
+		if (newChildPriority!=node.childPriority) {
 			//Must update default child priority as well check if already created children priorities need
 			// to be raised.
-			this.childPriority = newChildPriority;
-			if (children!=null) {
-				for (PrioriTree child : children.values()) {
-					//TODO: remove children that became redundant because the increase of childPriority in parent
-					// makes them have no observable effect.
-					//Currently this cleanup is not happening. This is inefficient but not incorrect.
-					child.priority = Math.max(child.priority, newChildPriority);
-					child.setChildPriority(newChildPriority);
-				}
+			node.childPriority = newChildPriority;
+			for (int i = node.childCount-1; i >= 0; i--) {
+				Node child = node.children[i];
+				child.priority = Math.max(child.priority, newChildPriority);
+				setChildPriority(child, newChildPriority);
+				//Children may have become redundant because of the increase of childPriority.
+				tidy(node, i);
 			}
 		}
 	}
-	
+
+	/**
+	 * Remove or collapse the child at index i if it has become redundant.
+	 */
+	private void tidy(Node parent, int i) {
+		Node node = parent.children[i];
+		if (node.isRedundant(parent)) {
+			parent.removeChild(i);
+		} else if (node.isCollapsible(parent)) {
+			Node child = node.children[0];
+			String[] label = Arrays.copyOf(node.label, node.label.length+child.label.length);
+			System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+			child.label = label;
+			parent.setChild(i, child);
+		}
+	}
+
+	/**
+	 * Split a child's label after a given number of segments, making the implicit node
+	 * at that point explicit.
+	 * @return The new node, which is the parent's child in place of the old child.
+	 */
+	private Node split(Node parent, Node child, int at) {
+		Node middle = new Node(Arrays.copyOf(child.label, at), child.priority, parent.childPriority);
+		child.label = Arrays.copyOfRange(child.label, at, child.label.length);
+		parent.setChild(parent.indexOf(child), middle);
+		middle.addChild(child);
+		return middle;
+	}
+
 	/**
-	 * Ensure that this node has a child for a given segment string. If no node exists yet, create it.
-	 * @param segment
-	 * @return {@link PrioriTree} the existing or newly created child, never null.
+	 * @return How many segments of the label match the path, starting at segment i of the path.
+	 *      This is at least 1, because children are only found by a matching first segment.
 	 */
-	private PrioriTree ensureChild(String segment) {
-		if (children==null) {
-			children = new HashMap<String, PrioriTree>();
+	private static int match(String[] label, IPath path, int i) {
+		int count = path.segmentCount();
+		int matched = 1;
+		while (matched<label.length && i+matched<count && label[matched].equals(path.segment(i+matched))) {
+			matched++;
 		}
-		PrioriTree child = children.get(segment);
-		if (child==null) {
-			child = new PrioriTree(level+1, childPriority);
-			children.put(segment, child);
+		return matched;
+	}
+
+	private String[] intern(IPath path, int from) {
+		String[] label = new String[path.segmentCount()-from];
+		for (int i = 0; i < label.length; i++) {
+			String segment = path.segment(from+i);
+			String interned = segments.get(segment);
+			if (interned==null) {
+				segments.put(segment, segment);
+				interned = segment;
+			}
+			label[i] = interned;
 		}
-		return child;
+		return label;
 	}
 
 	@Override
@@ -161,61 +328,59 @@ public class PrioriTree extends DefaultPriorityFunction {
 			return PRIORITY_IGNORE;
 		}
 		IPath path = r.getFullPath();
-		PrioriTree node = this.lookup(path);
-		if (node.level == path.segmentCount()) {
-			//exact node found
-			result = node.priority;
-		} else {
-			//ancestor node found
-			result = node.childPriority;
-		}
-		debug("Priority for "+r.getFullPath() + " = " + result);
+		result = lookup(path);
+		if (DEBUG) {
+			debug("Priority for "+r.getFullPath() + " = " + result);
+		}
 		return result;
 	}
 
-
 	/**
-	 * Locate tree node corresponding to a given path.
-	 * @param fullPath
-	 * @return The node or null if no corresponding node exists in the tree.
+	 * Find the priority of a path: the priority of its node if it has one, otherwise the child
+	 * priority of the nearest ancestor that has a node.
 	 */
-	private PrioriTree lookup(IPath path) {
-		PrioriTree found = null;
-		if (path.segmentCount()>0) {
-			PrioriTree child = getChild(path.segment(0));
-			if (child!=null) {
-				found = child.lookup(path.removeFirstSegments(1));
+	private double lookup(IPath path) {
+		int count = path.segmentCount();
+		Node node = root;
+		int i = 0;
+		while (i<count) {
+			Node child = node.getChild(path.segment(i));
+			if (child==null) {
+				//ancestor node found
+				return node.childPriority;
 			}
+			int matched = match(child.label, path, i);
+			if (matched<child.label.length) {
+				//Path ends at, or leaves the chain after, one of the implicit nodes in the label.
+				return i+matched==count ? child.priority : node.childPriority;
+			}
+			i += matched;
+			node = child;
 		}
-		return found==null?this:found;
-	}
-
-	/**
-	 * Fetch the child for the corresponding segment String.
-	 * @param segment
-	 * @return The child or null if there is no such child.
-	 */
-	private PrioriTree getChild(String segment) {
-		if (children!=null) {
-			return children.get(segment);
-		}
-		return null;
+		//exact node found
+		return node.priority;
 	}
 
 	/**
 	 * For debugging purposes. Dumps tree data onto System.out
 	 */
 	public void dump() {
-		dump("/", 0);
+		dump(root, "/", 0);
 	}
 
-	private void dump(String name, int indent) {
+	private void dump(Node node, String name, int indent) {
 		indent(indent);
-		System.out.println(name + " : " +priority);
-		if (children!=null) {
-			for (Entry<String, PrioriTree> c : children.entrySet()) {
-				c.getValue().dump(c.getKey(), indent+1);
+		System.out.println(name + " : " + node.priority + " (children: " + node.childPriority + ")");
+		for (int i = 0; i < node.childCount; i++) {
+			Node c = node.children[i];
+			StringBuilder label = new StringBuilder();
+			for (String segment : c.label) {
+				if (label.length()>0) {
+					label.append('/');
+				}
+				label.append(segment);
 			}
+			dump(c, label.toString(), indent+1);
 		}
 	}
 
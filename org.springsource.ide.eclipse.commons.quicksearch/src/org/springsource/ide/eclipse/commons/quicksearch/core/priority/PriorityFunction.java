@@ -52,4 +52,12 @@ public abstract class PriorityFunction {
 	
 	
 	public abstract double priority(IResource r);
+
+	/**
+	 * Whether resources excluded by the '.gitignore' and '.ignore' files found while walking
+	 * should also be ignored. The default implementation returns false.
+	 */
+	public boolean isUsingIgnoreFiles() {
+		return false;
+	}
 }
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.priority;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.springsource.ide.eclipse.commons.quicksearch.ui.QuickSearchActivator;
+
+/**
+ * Remembers which files users open from QuickSearch results, and the folders containing them.
+ * Each path has a score that goes up by one every time it is opened and decays exponentially
+ * over time, so that paths opened often and recently score highest.
+ * <p>
+ * The history is used to raise the priority of the likely hits in a {@link PrioriTree}, so
+ * the walker gets to them first.
+ * <p>
+ * The history is kept in a small text file, which is read the first time the history is
+ * needed. It is written by a background Job shortly after something is recorded, and by
+ * {@link #flush()}. Only the {@link #MAX_ENTRIES} highest scoring paths are kept.
+ * <p>
+ * This class is thread safe.
+ */
+public class UsageHistory {
+
+	/**
+	 * Time in milliseconds for a score to decay to half its value: two weeks.
+	 */
+	public static final long HALF_LIFE = 14L * 24 * 60 * 60 * 1000;
+
+	public static final int MAX_ENTRIES = 500;
+
+	/**
+	 * Scores below this are forgotten. Roughly one open, 10 half lives ago.
+	 */
+	private static final double MIN_SCORE = 0.001;
+
+	/**
+	 * The priority a file gets tends to this as its score grows. Less than the files
+	 * open in editors, which are certainly interesting right now.
+	 */
+	private static final double MAX_FILE_PRIORITY = 0.9 * PriorityFunction.PRIORITY_INTERESTING;
+
+	/**
+	 * The priority a folder gets tends to this as its score grows. It applies to everything
+	 * inside the folder, so it is less than that of the files.
+	 */
+	private static final double MAX_FOLDER_PRIORITY = 0.5 * PriorityFunction.PRIORITY_INTERESTING;
+
+	private static final String FORMAT_VERSION = "1";
+
+	/**
+	 * Milliseconds between recording something and writing the file, so that files opened
+	 * together are written once.
+	 */
+	private static final long SAVE_DELAY = 5000;
+
+	private static final class Entry {
+		final IPath path;
+		final boolean isFile;
+		/**
+		 * The score at 'time'.
+		 */
+		double score;
+		long time;
+
+		Entry(IPath path, boolean isFile, double score, long time) {
+			this.path = path;
+			this.isFile = isFile;
+			this.score = score;
+			this.time = time;
+		}
+
+		double scoreAt(long now) {
+			return decay(score, time, now);
+		}
+	}
+
+	/**
+	 * The file the history is stored in, or null if it is only kept in memory.
+	 */
+	private final File file;
+
+	/**
+	 * Null until loaded from the file.
+	 */
+	private Map<IPath, Entry> entries = null;
+
+	/**
+	 * Whether something was recorded since the file was last written, and when.
+	 */
+	private boolean dirty = false;
+	private long recordedAt;
+
+	/**
+	 * Writes the file. Null if the history is only kept in memory.
+	 */
+	private final Job saveJob;
+
+	/**
+	 * Held while writing the file, so that the Job and {@link #flush()} don't write at the same time.
+	 */
+	private final Object writeLock = new Object();
+
+	public UsageHistory(File file) {
+		this.file = file;
+		if (file==null) {
+			saveJob = null;
+		} else {
+			saveJob = new Job("Save QuickSearch history") {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					save();
+					return Status.OK_STATUS;
+				}
+			};
+			saveJob.setSystem(true);
+		}
+	}
+
+	/**
+	 * Record that a file was opened from the search results, at the current time.
+	 */
+	public void record(IPath filePath) {
+		record(filePath, System.currentTimeMillis());
+	}
+
+	/**
+	 * Record that a file was opened from the search results at a given time.
+	 */
+	public synchronized void record(IPath filePath, long now) {
+		Map<IPath, Entry> entries = getEntries();
+		increment(entries, filePath, true, now);
+		if (filePath.segmentCount()>1) {
+			increment(entries, filePath.removeLastSegments(1), false, now);
+		}
+		if (entries.size()>MAX_ENTRIES) {
+			List<Entry> sorted = sortedEntries(now);
+			for (Entry e : sorted.subList(MAX_ENTRIES, sorted.size())) {
+				entries.remove(e.path);
+			}
+		}
+		dirty = true;
+		recordedAt = Math.max(recordedAt, now);
+		if (saveJob!=null) {
+			saveJob.schedule(SAVE_DELAY);
+		}
+	}
+
+	private static void increment(Map<IPath, Entry> entries, IPath path, boolean isFile, long now) {
+		Entry e = entries.get(path);
+		if (e==null) {
+			entries.put(path, new Entry(path, isFile, 1, now));
+		} else {
+			e.score = e.scoreAt(now) + 1;
+			e.time = Math.max(e.time, now);
+		}
+	}
+
+	/**
+	 * @return The score of a path at a given time, or 0 if it isn't in the history.
+	 */
+	public synchronized double getScore(IPath path, long now) {
+		Entry e = getEntries().get(path);
+		return e==null ? 0 : e.scoreAt(now);
+	}
+
+	/**
+	 * Raise the priorities of the files and folders in the history in a PrioriTree, the
+	 * more the higher their scores.
+	 */
+	public void applyTo(PrioriTree priorities) {
+		applyTo(priorities, System.currentTimeMillis());
+	}
+
+	public synchronized void applyTo(PrioriTree priorities, long now) {
+		for (Entry e : getEntries().values()) {
+			double score = e.scoreAt(now);
+			if (score>=MIN_SCORE) {
+				double max = e.isFile ? MAX_FILE_PRIORITY : MAX_FOLDER_PRIORITY;
+				priorities.setPriority(e.path, max * score / (score + 1));
+			}
+		}
+	}
+
+	static double decay(double score, long time, long now) {
+		if (now<=time) {
+			return score;
+		}
+		return score * Math.pow(0.5, (double)(now - time) / HALF_LIFE);
+	}
+
+	/**
+	 * @return The entries, highest scoring first.
+	 */
+	private List<Entry> sortedEntries(final long now) {
+		List<Entry> sorted = new ArrayList<Entry>(getEntries().values());
+		Collections.sort(sorted, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b) {
+				return Double.compare(b.scoreAt(now), a.scoreAt(now));
+			}
+		});
+		return sorted;
+	}
+
+	private Map<IPath, Entry> getEntries() {
+		if (entries==null) {
+			entries = new HashMap<IPath, Entry>();
+			if (file!=null && file.isFile()) {
+				try {
+					load();
+				} catch (Exception e) {
+					//Corrupt or from a newer version. Start over.
+					QuickSearchActivator.log(e);
+					entries.clear();
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Lines of the file are: 'F' or 'D' for file or folder, score, time and path, separated by tabs.
+	 * The first line is the format version.
+	 */
+	private void load() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			if (!FORMAT_VERSION.equals(in.readLine())) {
+				return;
+			}
+			String line;
+			while ((line = in.readLine())!=null) {
+				String[] fields = line.split("\t", 4);
+				if (fields.length==4) {
+					IPath path = Path.fromPortableString(fields[3]);
+					entries.put(path, new Entry(path, fields[0].equals("F"),
+							Double.parseDouble(fields[1]), Long.parseLong(fields[2])));
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Write the history to its file now, if anything was recorded since it was last written.
+	 * Call this when the history is no longer used, e.g. on shutdown.
+	 */
+	public void flush() {
+		if (saveJob!=null) {
+			saveJob.cancel();
+		}
+		save();
+	}
+
+	/**
+	 * Write the file, if it is out of date. The lines are put together under the lock, but
+	 * written outside it, so recording never waits for the disk.
+	 */
+	private void save() {
+		if (file==null) {
+			return;
+		}
+		synchronized (writeLock) {
+			List<String> lines = new ArrayList<String>();
+			synchronized (this) {
+				if (!dirty) {
+					return;
+				}
+				dirty = false;
+				long now = recordedAt;
+				for (Entry e : sortedEntries(now)) {
+					if (e.scoreAt(now)>=MIN_SCORE) {
+						lines.add((e.isFile ? "F" : "D") + "\t" + e.score + "\t" + e.time + "\t" + e.path.toPortableString());
+					}
+				}
+			}
+			write(lines);
+		}
+	}
+
+	private void write(List<String> lines) {
+		File tmp = new File(file.getPath()+".tmp");
+		try {
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+			try {
+				out.write(FORMAT_VERSION);
+				out.newLine();
+				for (String line : lines) {
+					out.write(line);
+					out.newLine();
+				}
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				//Windows won't rename over an existing file.
+				file.delete();
+				tmp.renameTo(file);
+			}
+		} catch (IOException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
+}
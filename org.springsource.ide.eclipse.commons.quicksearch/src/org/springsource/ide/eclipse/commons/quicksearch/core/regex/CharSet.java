@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.regex;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of chars, kept as a sorted array of disjoint, non-adjacent ranges.
+ */
+final class CharSet {
+
+	private static final int MAX_CHAR = 0xFFFF;
+
+	/**
+	 * Start and end (inclusive) of each range, back-to-back.
+	 */
+	final int[] ranges;
+
+	static final CharSet EMPTY = new CharSet(new int[0]);
+
+	/**
+	 * What '.' matches: anything but a line terminator.
+	 */
+	static final CharSet DOT = of('\n').union(of('\r')).union(of('\u0085')).union(range('\u2028', '\u2029')).negate();
+
+	static final CharSet DIGIT = range('0', '9');
+	static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(of('_')).union(DIGIT);
+	static final CharSet SPACE = of(' ').union(range('\t', '\r'));
+
+	private CharSet(int[] ranges) {
+		this.ranges = ranges;
+	}
+
+	static CharSet of(char c) {
+		return new CharSet(new int[] { c, c });
+	}
+
+	static CharSet range(char lo, char hi) {
+		return lo<=hi ? new CharSet(new int[] { lo, hi }) : EMPTY;
+	}
+
+	boolean contains(char c) {
+		//Find the last range starting at or before c.
+		int lo = 0;
+		int hi = ranges.length/2 - 1;
+		while (lo<=hi) {
+			int mid = (lo+hi) >>> 1;
+			if (ranges[2*mid]<=c) {
+				if (c<=ranges[2*mid+1]) {
+					return true;
+				}
+				lo = mid+1;
+			} else {
+				hi = mid-1;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The only char in this set, or -1 if it has more or fewer.
+	 */
+	int singleChar() {
+		return ranges.length==2 && ranges[0]==ranges[1] ? ranges[0] : -1;
+	}
+
+	CharSet union(CharSet other) {
+		int[] all = new int[ranges.length + other.ranges.length];
+		//Merge by range start, then coalesce overlapping and adjacent ranges.
+		int i = 0, j = 0, k = 0;
+		while (i<ranges.length || j<other.ranges.length) {
+			if (j>=other.ranges.length || (i<ranges.length && ranges[i]<=other.ranges[j])) {
+				all[k++] = ranges[i++];
+				all[k++] = ranges[i++];
+			} else {
+				all[k++] = other.ranges[j++];
+				all[k++] = other.ranges[j++];
+			}
+		}
+		int n = 0;
+		for (int r = 0; r < k; r += 2) {
+			if (n>0 && all[r]<=all[n-1]+1) {
+				all[n-1] = Math.max(all[n-1], all[r+1]);
+			} else {
+				all[n++] = all[r];
+				all[n++] = all[r+1];
+			}
+		}
+		return new CharSet(Arrays.copyOf(all, n));
+	}
+
+	CharSet negate() {
+		int[] result = new int[ranges.length+2];
+		int n = 0;
+		int next = 0; //First char not yet covered by a range or the result.
+		for (int r = 0; r < ranges.length; r += 2) {
+			if (ranges[r]>next) {
+				result[n++] = next;
+				result[n++] = ranges[r]-1;
+			}
+			next = ranges[r+1]+1;
+		}
+		if (next<=MAX_CHAR) {
+			result[n++] = next;
+			result[n++] = MAX_CHAR;
+		}
+		return new CharSet(Arrays.copyOf(result, n));
+	}
+
+	/**
+	 * @return This set plus the other case of the US-ASCII letters in it, like
+	 *     {@link java.util.regex.Pattern#CASE_INSENSITIVE} matching.
+	 */
+	CharSet foldCase() {
+		CharSet result = this;
+		for (int r = 0; r < ranges.length; r += 2) {
+			result = result.union(shifted(ranges[r], ranges[r+1], 'A', 'Z', 'a'-'A'));
+			result = result.union(shifted(ranges[r], ranges[r+1], 'a', 'z', 'A'-'a'));
+		}
+		return result;
+	}
+
+	/**
+	 * @return The part of the range lo..hi that is also in from..to, shifted by delta.
+	 */
+	private static CharSet shifted(int lo, int hi, char from, char to, int delta) {
+		lo = Math.max(lo, from);
+		hi = Math.min(hi, to);
+		return lo<=hi ? range((char)(lo+delta), (char)(hi+delta)) : EMPTY;
+	}
+
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.regex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides whether a {@link Program} matches anywhere in a piece of text, by running the
+ * deterministic automaton equivalent to the program. The automaton's states are built lazily,
+ * the first time the text leads to them, so only the states some text actually needs are built.
+ * Each char of the text then costs one array lookup, and the time taken is linear in the
+ * length of the text, whatever the pattern.
+ * <p>
+ * Chars are grouped into classes that no instruction of the program can tell apart, so the
+ * transition tables stay small. When the program has word assertions, whether a char is a word
+ * char is part of its class.
+ * <p>
+ * This class is thread safe. Following known transitions takes no locks and creates no garbage.
+ */
+final class LazyDfa {
+
+	/**
+	 * When there are more states than this, they are all thrown away and built again as needed.
+	 */
+	private static final int MAX_STATES = 4096;
+
+	private static final class State {
+		/**
+		 * Instructions the threads of the program are at, before following the jumps and assertions
+		 * from there, which depend on the next char. Sorted.
+		 */
+		final int[] pcs;
+		final boolean prevWord;
+		final boolean atStart;
+		final int hash;
+		/**
+		 * Next state for each char class, or null if not yet known.
+		 */
+		final State[] next;
+		/**
+		 * Whether the text matches if it ends in this state: 0 if not yet known, 1 yes, 2 no.
+		 */
+		int acceptsAtEnd = 0;
+
+		State(int[] pcs, boolean prevWord, boolean atStart, int classes) {
+			this.pcs = pcs;
+			this.prevWord = prevWord;
+			this.atStart = atStart;
+			this.hash = Arrays.hashCode(pcs)*4 + (prevWord?2:0) + (atStart?1:0);
+			this.next = classes>0 ? new State[classes] : null;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof State)) {
+				return false;
+			}
+			State other = (State) obj;
+			return hash==other.hash && prevWord==other.prevWord && atStart==other.atStart
+					&& Arrays.equals(pcs, other.pcs);
+		}
+	}
+
+	/**
+	 * Where the search ends as soon as a match is found.
+	 */
+	private static final State MATCHED = new State(new int[0], false, false, 0);
+
+	private final Program prog;
+
+	/**
+	 * Start of each interval of chars that are in the same sets. The first is 0.
+	 */
+	private final int[] intervals;
+
+	/**
+	 * Interval of each US-ASCII char, to skip the binary search.
+	 */
+	private final int[] asciiIntervals = new int[128];
+
+	private final int classCount;
+
+	private volatile State start;
+
+	//Guarded by 'this'.
+	private Map<State, State> states = new HashMap<State, State>();
+	private final int[] stack;
+	private final boolean[] onStack;
+	private final int[] reached;
+
+	LazyDfa(Program prog) {
+		this.prog = prog;
+		this.intervals = intervals(prog);
+		for (char c = 0; c < 128; c++) {
+			asciiIntervals[c] = findInterval(c);
+		}
+		this.classCount = prog.usesWords ? intervals.length*2 : intervals.length;
+		this.stack = new int[prog.size];
+		this.onStack = new boolean[prog.size];
+		this.reached = new int[prog.size];
+		this.start = intern(new State(new int[0], false, true, classCount));
+	}
+
+	private static int[] intervals(Program prog) {
+		int[] bounds = new int[8];
+		int n = 0;
+		bounds[n++] = 0;
+		for (int pc = 0; pc < prog.size; pc++) {
+			if (prog.op[pc]==Program.CHAR) {
+				int[] ranges = prog.sets[pc].ranges;
+				if (n+ranges.length>bounds.length) {
+					bounds = Arrays.copyOf(bounds, Math.max(bounds.length*2, n+ranges.length));
+				}
+				for (int r = 0; r < ranges.length; r += 2) {
+					bounds[n++] = ranges[r];
+					bounds[n++] = ranges[r+1]+1;
+				}
+			}
+		}
+		Arrays.sort(bounds, 0, n);
+		int unique = 0;
+		for (int i = 0; i < n; i++) {
+			if (bounds[i]<=Character.MAX_VALUE && (unique==0 || bounds[i]!=bounds[unique-1])) {
+				bounds[unique++] = bounds[i];
+			}
+		}
+		return Arrays.copyOf(bounds, unique);
+	}
+
+	private int findInterval(char c) {
+		int lo = 0;
+		int hi = intervals.length-1;
+		while (lo<hi) {
+			int mid = (lo+hi+1) >>> 1;
+			if (intervals[mid]<=c) {
+				lo = mid;
+			} else {
+				hi = mid-1;
+			}
+		}
+		return lo;
+	}
+
+	private int classOf(char c) {
+		int interval = c<128 ? asciiIntervals[c] : findInterval(c);
+		if (prog.usesWords) {
+			return interval*2 + (Program.isWord(c)?1:0);
+		}
+		return interval;
+	}
+
+	/**
+	 * @param start Start of the text in the buffer (inclusive).
+	 * @param end End of the text in the buffer (exclusive).
+	 * @return Whether the program matches anywhere in the text.
+	 */
+	boolean find(char[] buf, int start, int end) {
+		State s = this.start;
+		for (int i = start; i < end; i++) {
+			int cls = classOf(buf[i]);
+			State next = s.next[cls];
+			if (next==null) {
+				next = computeNext(s, cls);
+			}
+			if (next==MATCHED) {
+				return true;
+			}
+			s = next;
+		}
+		int accepts = s.acceptsAtEnd;
+		if (accepts==0) {
+			accepts = computeAcceptsAtEnd(s);
+		}
+		return accepts==1;
+	}
+
+	private synchronized State computeNext(State s, int cls) {
+		State next = s.next[cls];
+		if (next!=null) {
+			return next;
+		}
+		boolean word = prog.usesWords && (cls&1)==1;
+		char c = (char) intervals[prog.usesWords ? cls/2 : cls];
+		int n = closure(s, false, word);
+		if (n<0) {
+			next = MATCHED;
+		} else {
+			//Step the threads waiting for a char over c. Any char of the class would do the same.
+			int[] pcs = new int[n];
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				int pc = reached[i];
+				if (prog.op[pc]==Program.CHAR && prog.sets[pc].contains(c)) {
+					pcs[count++] = pc+1;
+				}
+			}
+			pcs = Arrays.copyOf(pcs, count);
+			Arrays.sort(pcs);
+			if (states.size()>=MAX_STATES) {
+				//Start over. Searches still running on the old states carry on with those.
+				states = new HashMap<State, State>();
+				start = intern(new State(new int[0], false, true, classCount));
+			}
+			next = intern(new State(pcs, word, false, classCount));
+		}
+		s.next[cls] = next;
+		return next;
+	}
+
+	private synchronized int computeAcceptsAtEnd(State s) {
+		if (s.acceptsAtEnd==0) {
+			s.acceptsAtEnd = closure(s, true, false)<0 ? 1 : 2;
+		}
+		return s.acceptsAtEnd;
+	}
+
+	private State intern(State s) {
+		State existing = states.get(s);
+		if (existing!=null) {
+			return existing;
+		}
+		states.put(s, s);
+		return s;
+	}
+
+	/**
+	 * Follow the jumps, splits and assertions from the threads of a state, plus a new thread
+	 * starting at the current position, and collect the instructions reached in 'reached'.
+	 *
+	 * @return The number of instructions reached, or -1 if a match is reached.
+	 */
+	private int closure(State s, boolean atEnd, boolean nextWord) {
+		Arrays.fill(onStack, false);
+		int sp = 0;
+		for (int pc : s.pcs) {
+			onStack[pc] = true;
+			stack[sp++] = pc;
+		}
+		if (!onStack[0]) {
+			onStack[0] = true;
+			stack[sp++] = 0;
+		}
+		int n = 0;
+		while (sp>0) {
+			int pc = stack[--sp];
+			int target1 = -1, target2 = -1;
+			switch (prog.op[pc]) {
+			case Program.MATCH:
+				return -1;
+			case Program.CHAR:
+				reached[n++] = pc;
+				break;
+			case Program.SPLIT:
+				target1 = prog.arg1[pc];
+				target2 = prog.arg2[pc];
+				break;
+			case Program.JUMP:
+				target1 = prog.arg1[pc];
+				break;
+			case Program.ASSERT:
+				if (Program.check(prog.arg1[pc], s.atStart, atEnd, s.prevWord, nextWord)) {
+					target1 = pc+1;
+				}
+				break;
+			}
+			if (target1>=0 && !onStack[target1]) {
+				onStack[target1] = true;
+				stack[sp++] = target1;
+			}
+			if (target2>=0 && !onStack[target2]) {
+				onStack[target2] = true;
+				stack[sp++] = target2;
+			}
+		}
+		return n;
+	}
+
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.regex;
+
+import java.util.Arrays;
+
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Alt;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Assertion;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.CharNode;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Concat;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Node;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Repeat;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.UnsupportedException;
+
+/**
+ * A syntax tree compiled into the instructions of a nondeterministic automaton, in the style of
+ * Thompson's construction. Execution starts at instruction 0. The instructions are:
+ * <ul>
+ *   <li>{@link #CHAR}: consume a char in the instruction's set, then continue with the next instruction.</li>
+ *   <li>{@link #SPLIT}: continue with both 'arg1' and 'arg2', preferring 'arg1'.</li>
+ *   <li>{@link #JUMP}: continue with 'arg1'.</li>
+ *   <li>{@link #ASSERT}: continue with the next instruction if assertion 'arg1' holds.</li>
+ *   <li>{@link #MATCH}: a match ends here.</li>
+ * </ul>
+ * Programs are not modified after they are compiled.
+ */
+final class Program {
+
+	static final int CHAR = 0;
+	static final int SPLIT = 1;
+	static final int JUMP = 2;
+	static final int ASSERT = 3;
+	static final int MATCH = 4;
+
+	/**
+	 * Patterns with large repetition counts compile to many instructions. Larger programs
+	 * are rejected.
+	 */
+	static final int MAX_SIZE = 10000;
+
+	int[] op = new int[16];
+	int[] arg1 = new int[16];
+	int[] arg2 = new int[16];
+	CharSet[] sets = new CharSet[16];
+	int size = 0;
+
+	/**
+	 * Whether the program uses assertions about word chars.
+	 */
+	boolean usesWords = false;
+
+	private final boolean caseSensitive;
+
+	private Program(boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+	}
+
+	static Program compile(Node n, boolean caseSensitive) throws UnsupportedException {
+		Program p = new Program(caseSensitive);
+		p.emit(n);
+		p.add(MATCH, 0, 0);
+		return p;
+	}
+
+	private int add(int op, int arg1, int arg2) throws UnsupportedException {
+		if (size==MAX_SIZE) {
+			throw new UnsupportedException("Pattern too large");
+		}
+		if (size==this.op.length) {
+			int n = size*2;
+			this.op = Arrays.copyOf(this.op, n);
+			this.arg1 = Arrays.copyOf(this.arg1, n);
+			this.arg2 = Arrays.copyOf(this.arg2, n);
+			this.sets = Arrays.copyOf(this.sets, n);
+		}
+		this.op[size] = op;
+		this.arg1[size] = arg1;
+		this.arg2[size] = arg2;
+		return size++;
+	}
+
+	private void emit(Node n) throws UnsupportedException {
+		if (n instanceof CharNode) {
+			CharSet set = ((CharNode) n).set;
+			int pc = add(CHAR, 0, 0);
+			sets[pc] = caseSensitive ? set : set.foldCase();
+		} else if (n instanceof Concat) {
+			for (Node item : ((Concat) n).items) {
+				emit(item);
+			}
+		} else if (n instanceof Alt) {
+			Node[] choices = ((Alt) n).choices;
+			int[] jumps = new int[choices.length-1];
+			for (int i = 0; i < choices.length-1; i++) {
+				int split = add(SPLIT, size+1, 0);
+				emit(choices[i]);
+				jumps[i] = add(JUMP, 0, 0);
+				arg2[split] = size;
+			}
+			emit(choices[choices.length-1]);
+			for (int j : jumps) {
+				arg1[j] = size;
+			}
+		} else if (n instanceof Repeat) {
+			Repeat r = (Repeat) n;
+			if (r.min>MAX_SIZE || r.max-r.min>MAX_SIZE) {
+				throw new UnsupportedException("Pattern too large");
+			}
+			for (int i = 0; i < r.min; i++) {
+				emit(r.item);
+			}
+			if (r.max<0) {
+				int split = add(SPLIT, 0, 0);
+				emit(r.item);
+				add(JUMP, split, 0);
+				prefer(split, split+1, size, r.greedy);
+			} else {
+				//x{0,3} is (x(x(x)?)?)?
+				int[] splits = new int[r.max-r.min];
+				for (int i = 0; i < splits.length; i++) {
+					splits[i] = add(SPLIT, 0, 0);
+					emit(r.item);
+				}
+				for (int split : splits) {
+					prefer(split, split+1, size, r.greedy);
+				}
+			}
+		} else if (n instanceof Assertion) {
+			int kind = ((Assertion) n).kind;
+			usesWords |= kind!=RegexParser.BEGIN_LINE && kind!=RegexParser.END_LINE;
+			add(ASSERT, kind, 0);
+		}
+	}
+
+	/**
+	 * Set the targets of a split instruction for an optional or repeated part.
+	 */
+	private void prefer(int split, int body, int exit, boolean greedy) {
+		arg1[split] = greedy ? body : exit;
+		arg2[split] = greedy ? exit : body;
+	}
+
+	/**
+	 * Check an assertion at some position in the text.
+	 *
+	 * @param atStart Whether the position is at the start of the text.
+	 * @param atEnd Whether the position is at the end of the text.
+	 * @param wordBefore Whether the char before the position is a word char.
+	 * @param wordAfter Whether the char after the position is a word char.
+	 */
+	static boolean check(int kind, boolean atStart, boolean atEnd, boolean wordBefore, boolean wordAfter) {
+		switch (kind) {
+		case RegexParser.BEGIN_LINE: return atStart;
+		case RegexParser.END_LINE: return atEnd;
+		case RegexParser.WORD_BOUNDARY: return wordBefore!=wordAfter;
+		case RegexParser.NOT_WORD_BOUNDARY: return wordBefore==wordAfter;
+		case RegexParser.NO_WORD_BEFORE: return !wordBefore;
+		case RegexParser.NO_WORD_AFTER: return !wordAfter;
+		default: return false;
+		}
+	}
+
+	/**
+	 * Word chars, for the purpose of word boundaries. Same as {@link java.util.regex.Pattern}'s '\b'.
+	 */
+	static boolean isWord(char c) {
+		return c=='_' || Character.isLetterOrDigit(c);
+	}
+
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.regex;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Assertion;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Concat;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Literals;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.Node;
+import org.springsource.ide.eclipse.commons.quicksearch.core.regex.RegexParser.UnsupportedException;
+
+/**
+ * A regular expression compiled into an automaton, so that matching takes time linear in the
+ * length of the text, whatever the pattern. Deciding whether a line matches uses a lazily built
+ * deterministic automaton. Finding where the matches are, which is only needed for the lines
+ * that match, simulates the nondeterministic one.
+ * <p>
+ * Only the regular part of the {@link Pattern} syntax is supported, see {@link RegexParser}.
+ * Matches are the same as those of the equivalent {@link Pattern}, where case insensitive
+ * matching folds the case of US-ASCII letters only.
+ * <p>
+ * This class is thread safe.
+ */
+public final class Regex {
+
+	private final Program prog;
+	private final LazyDfa dfa;
+	private final String prefix;
+	private final List<String> segments;
+
+	private Regex(Node ast, boolean caseSensitive) throws UnsupportedException {
+		this.prog = Program.compile(ast, caseSensitive);
+		this.dfa = new LazyDfa(prog);
+		Literals lits = RegexParser.literals(ast);
+		this.prefix = lits.prefix.toString();
+		this.segments = Collections.unmodifiableList(lits.segments);
+	}
+
+	/**
+	 * @return The compiled regex, or null if the regex is valid but uses features that can
+	 *     not be matched by an automaton, such as back references or look-around.
+	 * @throws PatternSyntaxException if the regex is not valid.
+	 */
+	public static Regex compile(String regex, boolean caseSensitive) throws PatternSyntaxException {
+		Pattern.compile(regex);
+		try {
+			return new Regex(RegexParser.parse(regex, caseSensitive), caseSensitive);
+		} catch (UnsupportedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Compile a QuickSearch wildcard pattern that only matches whole words: the text it
+	 * matches must not be preceded or followed by a word char.
+	 *
+	 * @return The compiled pattern, or null if it is too large.
+	 */
+	public static Regex wholeWord(String wildcard, boolean caseSensitive) {
+		Node ast = new Concat(new Node[] {
+				new Assertion(RegexParser.NO_WORD_BEFORE),
+				RegexParser.wildcard(wildcard),
+				new Assertion(RegexParser.NO_WORD_AFTER)
+		});
+		try {
+			return new Regex(ast, caseSensitive);
+		} catch (UnsupportedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param start Start of the text in the buffer (inclusive).
+	 * @param end End of the text in the buffer (exclusive).
+	 * @return Whether there is a match anywhere in the text. Creates no garbage once the
+	 *     automaton has seen similar text.
+	 */
+	public boolean find(char[] buf, int start, int end) {
+		return dfa.find(buf, start, end);
+	}
+
+	public boolean find(String text) {
+		return dfa.find(text.toCharArray(), 0, text.length());
+	}
+
+	/**
+	 * Find the first match starting at or after a given position, the same one
+	 * {@link java.util.regex.Matcher#find(int)} would.
+	 *
+	 * @return Start and end of the match, or null if there is none.
+	 */
+	public int[] find(CharSequence text, int from) {
+		int len = text.length();
+		int size = prog.size;
+		Threads current = new Threads(size);
+		Threads next = new Threads(size);
+		//For each instruction, 1 + the position of the list it was last added to.
+		int[] added = new int[size];
+		int[] stack = new int[2*size+2];
+		int matchStart = -1, matchEnd = -1;
+		for (int i = from; i <= len; i++) {
+			if (matchStart<0) {
+				//Lowest priority: a match starting here only counts if none starts earlier.
+				addThread(current, 0, i, text, i, added, stack);
+			}
+			if (current.count==0 && matchStart>=0) {
+				break;
+			}
+			next.count = 0;
+			for (int t = 0; t < current.count; t++) {
+				int pc = current.pcs[t];
+				if (prog.op[pc]==Program.MATCH) {
+					matchStart = current.starts[t];
+					matchEnd = i;
+					//Threads after this one have lower priority.
+					break;
+				}
+				if (i<len && prog.sets[pc].contains(text.charAt(i))) {
+					addThread(next, pc+1, current.starts[t], text, i+1, added, stack);
+				}
+			}
+			Threads swap = current;
+			current = next;
+			next = swap;
+		}
+		return matchStart<0 ? null : new int[] { matchStart, matchEnd };
+	}
+
+	private static final class Threads {
+		final int[] pcs;
+		final int[] starts;
+		int count = 0;
+
+		Threads(int size) {
+			pcs = new int[size];
+			starts = new int[size];
+		}
+	}
+
+	/**
+	 * Add the threads reached from an instruction at a given position to a list, in priority order.
+	 * Only threads waiting for a char or at a match are added.
+	 */
+	private void addThread(Threads list, int pc0, int start, CharSequence text, int pos, int[] added, int[] stack) {
+		boolean atStart = pos==0;
+		boolean atEnd = pos==text.length();
+		boolean wordBefore = pos>0 && Program.isWord(text.charAt(pos-1));
+		boolean wordAfter = !atEnd && Program.isWord(text.charAt(pos));
+		int sp = 0;
+		stack[sp++] = pc0;
+		while (sp>0) {
+			int pc = stack[--sp];
+			if (added[pc]==pos+1) {
+				continue;
+			}
+			added[pc] = pos+1;
+			switch (prog.op[pc]) {
+			case Program.CHAR:
+			case Program.MATCH:
+				list.pcs[list.count] = pc;
+				list.starts[list.count] = start;
+				list.count++;
+				break;
+			case Program.SPLIT:
+				//Pushed last, popped first.
+				stack[sp++] = prog.arg2[pc];
+				stack[sp++] = prog.arg1[pc];
+				break;
+			case Program.JUMP:
+				stack[sp++] = prog.arg1[pc];
+				break;
+			case Program.ASSERT:
+				if (Program.check(prog.arg1[pc], atStart, atEnd, wordBefore, wordAfter)) {
+					stack[sp++] = pc+1;
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return The text every match starts with. May be empty.
+	 */
+	public String getLiteralPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * @return Pieces of text every match contains, as written in the pattern. Case insensitive
+	 *     regexes match them modulo case.
+	 */
+	public List<String> getLiteralSegments() {
+		return segments;
+	}
+
+}
@@ -0,0 +1,493 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.core.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the part of the {@link java.util.regex.Pattern} syntax that describes regular languages
+ * into a syntax tree: literals, '.', character classes (without nesting or intersection), the
+ * predefined classes '\d', '\w', '\s' and their negations, groups, alternation, the greedy and
+ * reluctant quantifiers and the anchors '^', '$', '\b' and '\B'.
+ * <p>
+ * Anything else, like back references, lookaround, possessive quantifiers and embedded flags,
+ * is reported as unsupported. The parser assumes it is given a pattern that
+ * {@link java.util.regex.Pattern} accepts.
+ */
+final class RegexParser {
+
+	static final class UnsupportedException extends Exception {
+		private static final long serialVersionUID = 1L;
+		UnsupportedException(String what) {
+			super(what);
+		}
+	}
+
+	/**
+	 * Zero-width assertions.
+	 */
+	static final int BEGIN_LINE = 0;
+	static final int END_LINE = 1;
+	static final int WORD_BOUNDARY = 2;
+	static final int NOT_WORD_BOUNDARY = 3;
+	static final int NO_WORD_BEFORE = 4;
+	static final int NO_WORD_AFTER = 5;
+
+	static abstract class Node {
+	}
+
+	static final class CharNode extends Node {
+		final CharSet set;
+		CharNode(CharSet set) {
+			this.set = set;
+		}
+	}
+
+	static final class Concat extends Node {
+		final Node[] items;
+		Concat(Node[] items) {
+			this.items = items;
+		}
+	}
+
+	static final class Alt extends Node {
+		final Node[] choices;
+		Alt(Node[] choices) {
+			this.choices = choices;
+		}
+	}
+
+	static final class Repeat extends Node {
+		final Node item;
+		final int min;
+		/**
+		 * -1 for no maximum.
+		 */
+		final int max;
+		final boolean greedy;
+		Repeat(Node item, int min, int max, boolean greedy) {
+			this.item = item;
+			this.min = min;
+			this.max = max;
+			this.greedy = greedy;
+		}
+	}
+
+	static final class Assertion extends Node {
+		final int kind;
+		Assertion(int kind) {
+			this.kind = kind;
+		}
+	}
+
+	private final String s;
+	private final boolean caseSensitive;
+	private int pos = 0;
+
+	private RegexParser(String s, boolean caseSensitive) {
+		this.s = s;
+		this.caseSensitive = caseSensitive;
+	}
+
+	/**
+	 * @param caseSensitive Case insensitive patterns negate character classes after folding
+	 *     their case, so that '[^a]' matches neither 'a' nor 'A'. The case of everything else
+	 *     is folded when the tree is compiled.
+	 */
+	static Node parse(String regex, boolean caseSensitive) throws UnsupportedException {
+		RegexParser p = new RegexParser(regex, caseSensitive);
+		Node n = p.parseAlt();
+		if (p.pos<regex.length()) {
+			throw new UnsupportedException("Unbalanced ')'");
+		}
+		return n;
+	}
+
+	/**
+	 * Build the tree for a QuickSearch wildcard pattern, where '?' matches any char and '*'
+	 * any string.
+	 */
+	static Node wildcard(String pattern) {
+		List<Node> items = new ArrayList<Node>();
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c=='?') {
+				items.add(new CharNode(CharSet.DOT));
+			} else if (c=='*') {
+				items.add(new Repeat(new CharNode(CharSet.DOT), 0, -1, true));
+			} else {
+				items.add(new CharNode(CharSet.of(c)));
+			}
+		}
+		return new Concat(items.toArray(new Node[items.size()]));
+	}
+
+	private boolean more() {
+		return pos<s.length();
+	}
+
+	private char peek() {
+		return s.charAt(pos);
+	}
+
+	private Node parseAlt() throws UnsupportedException {
+		List<Node> choices = new ArrayList<Node>();
+		choices.add(parseConcat());
+		while (more() && peek()=='|') {
+			pos++;
+			choices.add(parseConcat());
+		}
+		return choices.size()==1 ? choices.get(0) : new Alt(choices.toArray(new Node[choices.size()]));
+	}
+
+	private Node parseConcat() throws UnsupportedException {
+		List<Node> items = new ArrayList<Node>();
+		while (more() && peek()!='|' && peek()!=')') {
+			Node n = parseRepeat();
+			if (n instanceof Concat) {
+				//Flatten groups, so literal runs across them can be found.
+				for (Node item : ((Concat) n).items) {
+					items.add(item);
+				}
+			} else {
+				items.add(n);
+			}
+		}
+		return items.size()==1 ? items.get(0) : new Concat(items.toArray(new Node[items.size()]));
+	}
+
+	private Node parseRepeat() throws UnsupportedException {
+		Node n = parseAtom();
+		while (more()) {
+			int min, max;
+			char c = peek();
+			if (c=='*') {
+				min = 0;
+				max = -1;
+				pos++;
+			} else if (c=='+') {
+				min = 1;
+				max = -1;
+				pos++;
+			} else if (c=='?') {
+				min = 0;
+				max = 1;
+				pos++;
+			} else if (c=='{') {
+				pos++;
+				min = parseInt();
+				max = min;
+				if (more() && peek()==',') {
+					pos++;
+					max = more() && peek()=='}' ? -1 : parseInt();
+				}
+				expect('}');
+			} else {
+				return n;
+			}
+			if (n instanceof Assertion) {
+				throw new UnsupportedException("Quantified assertion");
+			}
+			boolean greedy = true;
+			if (more() && peek()=='?') {
+				greedy = false;
+				pos++;
+			} else if (more() && peek()=='+') {
+				throw new UnsupportedException("Possessive quantifier");
+			}
+			n = new Repeat(n, min, max, greedy);
+		}
+		return n;
+	}
+
+	private int parseInt() throws UnsupportedException {
+		int start = pos;
+		while (more() && peek()>='0' && peek()<='9') {
+			pos++;
+		}
+		if (start==pos || pos-start>6) {
+			throw new UnsupportedException("Bad repetition count");
+		}
+		return Integer.parseInt(s.substring(start, pos));
+	}
+
+	private void expect(char c) throws UnsupportedException {
+		if (!more() || peek()!=c) {
+			throw new UnsupportedException("Expected '"+c+"'");
+		}
+		pos++;
+	}
+
+	private Node parseAtom() throws UnsupportedException {
+		char c = s.charAt(pos++);
+		switch (c) {
+		case '(':
+			if (more() && peek()=='?') {
+				pos++;
+				if (more() && peek()==':') {
+					pos++;
+				} else if (pos+1<s.length() && peek()=='<' && Character.isLetter(s.charAt(pos+1))) {
+					//Named group. The name doesn't matter here.
+					while (more() && peek()!='>') {
+						pos++;
+					}
+					expect('>');
+				} else {
+					throw new UnsupportedException("Special group");
+				}
+			}
+			Node n = parseAlt();
+			expect(')');
+			return n;
+		case '.':
+			return new CharNode(CharSet.DOT);
+		case '^':
+			return new Assertion(BEGIN_LINE);
+		case '$':
+			return new Assertion(END_LINE);
+		case '[':
+			return new CharNode(parseClass());
+		case '\\':
+			return parseEscape();
+		case '*': case '+': case '?': case '{':
+			throw new UnsupportedException("Dangling quantifier");
+		default:
+			return new CharNode(CharSet.of(c));
+		}
+	}
+
+	/**
+	 * Parse an escape outside of a character class. The '\' is already consumed.
+	 */
+	private Node parseEscape() throws UnsupportedException {
+		if (!more()) {
+			throw new UnsupportedException("Trailing '\\'");
+		}
+		char c = peek();
+		switch (c) {
+		case 'b':
+			pos++;
+			return new Assertion(WORD_BOUNDARY);
+		case 'B':
+			pos++;
+			return new Assertion(NOT_WORD_BOUNDARY);
+		case 'A':
+			pos++;
+			return new Assertion(BEGIN_LINE);
+		case 'z': case 'Z':
+			pos++;
+			return new Assertion(END_LINE);
+		case 'Q':
+			pos++;
+			int end = s.indexOf("\\E", pos);
+			if (end<0) {
+				end = s.length();
+			}
+			Node[] quoted = new Node[end-pos];
+			for (int i = 0; i < quoted.length; i++) {
+				quoted[i] = new CharNode(CharSet.of(s.charAt(pos+i)));
+			}
+			pos = Math.min(end+2, s.length());
+			return new Concat(quoted);
+		default:
+			return new CharNode(parseEscapedSet());
+		}
+	}
+
+	/**
+	 * Parse an escape that stands for a char or a predefined class. The '\' is already consumed.
+	 */
+	private CharSet parseEscapedSet() throws UnsupportedException {
+		char c = s.charAt(pos++);
+		switch (c) {
+		case 'd': return CharSet.DIGIT;
+		case 'D': return CharSet.DIGIT.negate();
+		case 'w': return CharSet.WORD;
+		case 'W': return CharSet.WORD.negate();
+		case 's': return CharSet.SPACE;
+		case 'S': return CharSet.SPACE.negate();
+		case 't': return CharSet.of('\t');
+		case 'n': return CharSet.of('\n');
+		case 'r': return CharSet.of('\r');
+		case 'f': return CharSet.of('\f');
+		case 'a': return CharSet.of('\u0007');
+		case 'e': return CharSet.of('\u001B');
+		case '0': {
+			int value = 0;
+			int start = pos;
+			while (more() && pos-start<3 && peek()>='0' && peek()<='7' && value*8+(peek()-'0')<=0377) {
+				value = value*8 + (s.charAt(pos++)-'0');
+			}
+			return CharSet.of((char) value);
+		}
+		case 'x':
+			if (more() && peek()=='{') {
+				pos++;
+				int end = s.indexOf('}', pos);
+				int value = hex(pos, end);
+				pos = end+1;
+				if (value>0xFFFF) {
+					throw new UnsupportedException("Supplementary character");
+				}
+				return CharSet.of((char) value);
+			}
+			pos += 2;
+			return CharSet.of((char) hex(pos-2, pos));
+		case 'u':
+			pos += 4;
+			return CharSet.of((char) hex(pos-4, pos));
+		case 'c':
+			return CharSet.of((char) (s.charAt(pos++) ^ 64));
+		default:
+			if (Character.isLetterOrDigit(c)) {
+				throw new UnsupportedException("\\"+c);
+			}
+			return CharSet.of(c);
+		}
+	}
+
+	private int hex(int from, int to) throws UnsupportedException {
+		try {
+			return Integer.parseInt(s.substring(from, to), 16);
+		} catch (RuntimeException e) {
+			throw new UnsupportedException("Bad hex escape");
+		}
+	}
+
+	/**
+	 * Parse a character class. The '[' is already consumed.
+	 */
+	private CharSet parseClass() throws UnsupportedException {
+		boolean negated = false;
+		if (more() && peek()=='^') {
+			negated = true;
+			pos++;
+		}
+		if (more() && peek()==']') {
+			throw new UnsupportedException("Leading ']' in class");
+		}
+		CharSet set = CharSet.EMPTY;
+		while (true) {
+			if (!more()) {
+				throw new UnsupportedException("Unclosed class");
+			}
+			char c = s.charAt(pos++);
+			if (c==']') {
+				break;
+			} else if (c=='[' || (c=='&' && more() && peek()=='&')) {
+				throw new UnsupportedException("Nested class");
+			}
+			CharSet item;
+			if (c=='\\') {
+				if (more() && (peek()=='Q' || peek()=='b' || peek()=='B')) {
+					throw new UnsupportedException("\\"+peek()+" in class");
+				}
+				item = parseEscapedSet();
+			} else {
+				item = CharSet.of(c);
+			}
+			int lo = item.singleChar();
+			if (lo>=0 && pos+1<s.length() && peek()=='-' && s.charAt(pos+1)!=']') {
+				pos++;
+				char h = s.charAt(pos++);
+				CharSet hiItem;
+				if (h=='\\') {
+					hiItem = parseEscapedSet();
+				} else if (h=='[') {
+					throw new UnsupportedException("Nested class");
+				} else {
+					hiItem = CharSet.of(h);
+				}
+				int hi = hiItem.singleChar();
+				if (hi<0) {
+					throw new UnsupportedException("Bad range");
+				}
+				item = CharSet.range((char) lo, (char) hi);
+			}
+			set = set.union(item);
+		}
+		if (negated) {
+			return (caseSensitive ? set : set.foldCase()).negate();
+		}
+		return set;
+	}
+
+	/**
+	 * The literal text found in the matches of a pattern.
+	 */
+	static final class Literals {
+		/**
+		 * Text every match starts with. May be empty.
+		 */
+		final StringBuilder prefix = new StringBuilder();
+		/**
+		 * Pieces of text every match contains.
+		 */
+		final List<String> segments = new ArrayList<String>();
+
+		private final StringBuilder run = new StringBuilder();
+		private boolean inPrefix = true;
+
+		void append(char c) {
+			run.append(c);
+			if (inPrefix) {
+				prefix.append(c);
+			}
+		}
+
+		/**
+		 * Something that isn't a known literal follows.
+		 */
+		void breakRun() {
+			if (run.length()>0) {
+				segments.add(run.toString());
+				run.setLength(0);
+			}
+			inPrefix = false;
+		}
+	}
+
+	static Literals literals(Node n) {
+		Literals lits = new Literals();
+		collectLiterals(n, lits);
+		lits.breakRun();
+		return lits;
+	}
+
+	private static void collectLiterals(Node n, Literals lits) {
+		if (n instanceof Concat) {
+			for (Node item : ((Concat) n).items) {
+				collectLiterals(item, lits);
+			}
+		} else if (n instanceof CharNode && ((CharNode) n).set.singleChar()>=0) {
+			lits.append((char) ((CharNode) n).set.singleChar());
+		} else if (n instanceof Assertion) {
+			//Zero-width, so the text on either side is adjacent.
+		} else if (n instanceof Repeat && ((Repeat) n).min>0) {
+			Repeat r = (Repeat) n;
+			if (r.item instanceof CharNode && ((CharNode) r.item).set.singleChar()>=0) {
+				//E.g. 'xa+b': matches contain 'xa' and 'ab'.
+				char c = (char) ((CharNode) r.item).set.singleChar();
+				lits.append(c);
+				lits.breakRun();
+				lits.append(c);
+			} else {
+				lits.breakRun();
+				Literals inner = literals(r.item);
+				lits.segments.addAll(inner.segments);
+			}
+		} else {
+			lits.breakRun();
+		}
+	}
+
+}
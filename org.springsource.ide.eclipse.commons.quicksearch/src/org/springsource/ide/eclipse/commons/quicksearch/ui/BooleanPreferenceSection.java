@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.ui;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.osgi.service.prefs.BackingStoreException;
+import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
+import org.springsource.ide.eclipse.commons.livexp.core.ValidationResult;
+import org.springsource.ide.eclipse.commons.livexp.ui.IPageWithSections;
+import org.springsource.ide.eclipse.commons.livexp.ui.PrefsPageSection;
+
+/**
+ * A checkbox bound to a boolean QuickSearch preference.
+ */
+public class BooleanPreferenceSection extends PrefsPageSection {
+
+	private final String label;
+	private final String prefsKey;
+	private final boolean defaultValue;
+	private String tooltip;
+
+	private IEclipsePreferences store = QuickSearchActivator.getDefault().getPreferences().getStore();
+	private Button checkbox;
+
+	public BooleanPreferenceSection(IPageWithSections owner, String label, String prefsKey, boolean defaultValue) {
+		super(owner);
+		this.label = label;
+		this.prefsKey = prefsKey;
+		this.defaultValue = defaultValue;
+	}
+
+	public BooleanPreferenceSection tooltip(String tooltip) {
+		this.tooltip = tooltip;
+		return this;
+	}
+
+	@Override
+	public boolean performOK() {
+		if (checkbox!=null && !checkbox.isDisposed()) {
+			store.putBoolean(prefsKey, checkbox.getSelection());
+			try {
+				store.flush();
+			} catch (BackingStoreException e) {
+				QuickSearchActivator.log(e);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void performDefaults() {
+		if (checkbox!=null && !checkbox.isDisposed()) {
+			checkbox.setSelection(defaultValue);
+		}
+	}
+
+	@Override
+	public LiveExpression<ValidationResult> getValidator() {
+		return OK_VALIDATOR;
+	}
+
+	@Override
+	public void createContents(Composite page) {
+		checkbox = new Button(page, SWT.CHECK);
+		checkbox.setText(label);
+		checkbox.setSelection(store.getBoolean(prefsKey, defaultValue));
+		if (tooltip!=null) {
+			checkbox.setToolTipText(tooltip);
+		}
+		GridDataFactory.fillDefaults().grab(true, false).applyTo(checkbox);
+	}
+
+}
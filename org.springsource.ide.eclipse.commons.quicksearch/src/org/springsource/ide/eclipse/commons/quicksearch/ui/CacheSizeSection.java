@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.ui;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.swt.widgets.Composite;
+import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
+import org.springsource.ide.eclipse.commons.livexp.core.StringFieldModel;
+import org.springsource.ide.eclipse.commons.livexp.core.ValidationResult;
+import org.springsource.ide.eclipse.commons.livexp.core.Validator;
+import org.springsource.ide.eclipse.commons.livexp.ui.IPageWithSections;
+import org.springsource.ide.eclipse.commons.livexp.ui.PrefsPageSection;
+import org.springsource.ide.eclipse.commons.livexp.ui.StringFieldSection;
+import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences;
+
+public class CacheSizeSection extends PrefsPageSection {
+
+	private StringFieldSection input;
+	private StringFieldModel model;
+
+	private QuickSearchPreferences prefs = QuickSearchActivator.getDefault().getPreferences();
+
+	public CacheSizeSection(IPageWithSections owner) {
+		super(owner);
+		model = new StringFieldModel("Content Cache Size (MB)", ""+prefs.getCacheSize());
+		model.validator(new Validator() {
+			{
+				dependsOn(model.getVariable());
+			}
+			protected ValidationResult compute() {
+				String str = model.getValue();
+				if (str!=null) {
+					try {
+						int val = Integer.parseInt(str);
+						if (val<0) {
+							return ValidationResult.error("Content Cache Size can't be negative");
+						} else if (val*1024L*1024L > Runtime.getRuntime().maxMemory()/4) {
+							return ValidationResult.warning("Content Cache Size is large compared to "
+									+ "the available memory");
+						}
+					} catch (NumberFormatException e) {
+						return ValidationResult.error("Content Cache Size can't be parsed as an integer");
+					}
+				}
+				return ValidationResult.OK;
+			}
+		});
+		input = new StringFieldSection(owner, model);
+		input.tooltip("Memory, in megabytes, used to keep the text of recently searched files. Searching "
+				+ "these files again, while they are unchanged, doesn't need to read them from disk. Use 0 to disable."
+		);
+	}
+
+	@Override
+	public boolean performOK() {
+		try {
+			IEclipsePreferences store = prefs.getStore();
+			store.putInt(QuickSearchPreferences.CACHE_SIZE, Integer.parseInt(model.getValue()));
+			store.flush();
+			return true;
+		} catch (Exception e) {
+			//bad data do not put.
+		}
+		return false;
+	}
+
+	@Override
+	public void performDefaults() {
+		model.setValue(""+QuickSearchPreferences.DEFAULT_CACHE_SIZE);
+	}
+
+	@Override
+	public LiveExpression<ValidationResult> getValidator() {
+		return input.getValidator();
+	}
+
+	@Override
+	public void createContents(Composite page) {
+		input.createContents(page);
+	}
+
+}
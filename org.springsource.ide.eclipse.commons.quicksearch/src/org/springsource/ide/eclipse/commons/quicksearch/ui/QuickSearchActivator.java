@@ -1,12 +1,25 @@
 package org.springsource.ide.eclipse.commons.quicksearch.ui;
 
+import java.io.File;
+
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
+import org.springsource.ide.eclipse.commons.quicksearch.core.Prewarmer;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.CharsetCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.cache.FileContentCache;
+import org.springsource.ide.eclipse.commons.quicksearch.core.index.TrigramIndex;
+import org.springsource.ide.eclipse.commons.quicksearch.core.index.TrigramIndexer;
+import org.springsource.ide.eclipse.commons.quicksearch.core.jars.ZipFilePool;
 import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.DefaultPriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.OverlappingProjects;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.UsageHistory;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -20,6 +33,45 @@ public class QuickSearchActivator extends AbstractUIPlugin {
 	private static QuickSearchActivator plugin;
 
 	private QuickSearchPreferences prefs = null; //Lazy initialized
+
+	private TrigramIndexer indexer = null; //Lazy initialized, only if enabled in preferences
+
+	private FileContentCache contentCache = null; //Lazy initialized
+
+	private CharsetCache charsetCache = null; //Lazy initialized
+
+	private ZipFilePool zipFilePool = null; //Lazy initialized
+
+	private OverlappingProjects overlappingProjects = null; //Lazy initialized
+
+	private UsageHistory usageHistory = null; //Lazy initialized
+
+	private Prewarmer prewarmer = null; //Only if enabled in preferences
+
+	/**
+	 * Milliseconds to wait before prewarming, so that whatever activated the plugin (typically
+	 * a first search) goes first.
+	 */
+	private static final long PREWARM_DELAY = 30000;
+
+	/**
+	 * Starts or stops the background work that depends on preferences when they change.
+	 */
+	private final IPreferenceChangeListener prefsListener = new IPreferenceChangeListener() {
+		public void preferenceChange(PreferenceChangeEvent event) {
+			if (QuickSearchPreferences.PREWARM.equals(event.getKey())) {
+				if (getPreferences().getPrewarm()) {
+					startPrewarming(PREWARM_DELAY);
+				} else {
+					stopPrewarming();
+				}
+			} else if (QuickSearchPreferences.USE_INDEX.equals(event.getKey())) {
+				if (!getPreferences().getUseIndex()) {
+					discardIndex();
+				}
+			}
+		}
+	};
 	
 	/**
 	 * The constructor
@@ -34,6 +86,8 @@ public class QuickSearchActivator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		getPreferences().getStore().addPreferenceChangeListener(prefsListener);
+		startPrewarming(PREWARM_DELAY);
 	}
 
 	/*
@@ -41,6 +95,37 @@ public class QuickSearchActivator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		getPreferences().getStore().removePreferenceChangeListener(prefsListener);
+		synchronized (this) {
+			if (prewarmer!=null) {
+				prewarmer.cancel();
+				prewarmer = null;
+			}
+			if (indexer!=null) {
+				indexer.stop();
+				indexer = null;
+			}
+			if (contentCache!=null) {
+				contentCache.stop();
+				contentCache = null;
+			}
+			if (charsetCache!=null) {
+				charsetCache.stop();
+				charsetCache = null;
+			}
+			if (zipFilePool!=null) {
+				zipFilePool.dispose();
+				zipFilePool = null;
+			}
+			if (overlappingProjects!=null) {
+				overlappingProjects.stop();
+				overlappingProjects = null;
+			}
+			if (usageHistory!=null) {
+				usageHistory.flush();
+				usageHistory = null;
+			}
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -88,5 +173,146 @@ public class QuickSearchActivator extends AbstractUIPlugin {
 		}
 		return prefs;
 	}
+
+	/**
+	 * Get the trigram index used to speed up searches. The index is created (and starts
+	 * updating itself in the background) the first time this method is called.
+	 *
+	 * @return The index, or null if the index is disabled in the preferences.
+	 */
+	public synchronized TrigramIndex getIndex() {
+		if (!getPreferences().getUseIndex()) {
+			return null;
+		}
+		if (indexer==null) {
+			DefaultPriorityFunction ignores = new DefaultPriorityFunction();
+			ignores.configure(getPreferences());
+			indexer = TrigramIndexer.start(getIndexFile(), ignores, getCharsetCache());
+		}
+		return indexer.getIndex();
+	}
+
+	private File getIndexFile() {
+		return getStateLocation().append("trigram.idx").toFile();
+	}
+
+	/**
+	 * Stop the indexer, if it is running, and delete the index. Searches that already
+	 * have the index keep using it. A new index is built if indexing is turned on again.
+	 */
+	public synchronized void discardIndex() {
+		if (indexer!=null) {
+			indexer.discard();
+			indexer = null;
+		} else {
+			getIndexFile().delete();
+		}
+	}
+
+	/**
+	 * Get the cache of recently searched file contents, shared by all searches.
+	 *
+	 * @return The cache, or null if caching is disabled in the preferences.
+	 */
+	public synchronized FileContentCache getContentCache() {
+		long budget = getPreferences().getCacheSize() * 1024L * 1024L;
+		if (budget==0) {
+			if (contentCache!=null) {
+				contentCache.stop();
+				contentCache = null;
+			}
+		} else if (contentCache==null) {
+			contentCache = FileContentCache.start(budget);
+		} else {
+			contentCache.setBudget(budget);
+		}
+		return contentCache;
+	}
+
+	/**
+	 * Get the cache of the charsets workspace files are decoded with, shared by all searches.
+	 */
+	public synchronized CharsetCache getCharsetCache() {
+		if (charsetCache==null) {
+			charsetCache = CharsetCache.start();
+		}
+		return charsetCache;
+	}
+
+	/**
+	 * Get the pool of open zip files used to search source attachments.
+	 *
+	 * @return The pool, or null if searching source attachments is disabled in the preferences.
+	 */
+	public synchronized ZipFilePool getZipFilePool() {
+		if (!getPreferences().getSearchSourceJars()) {
+			if (zipFilePool!=null) {
+				zipFilePool.dispose();
+				zipFilePool = null;
+			}
+			return null;
+		}
+		if (zipFilePool==null) {
+			zipFilePool = new ZipFilePool();
+		}
+		return zipFilePool;
+	}
+
+	/**
+	 * Get the folders that should be ignored because they are also other projects.
+	 */
+	public synchronized OverlappingProjects getOverlappingProjects() {
+		if (overlappingProjects==null) {
+			overlappingProjects = OverlappingProjects.start();
+		}
+		return overlappingProjects;
+	}
+
+	/**
+	 * Get the history of files opened from search results.
+	 *
+	 * @return The history, or null if it is disabled in the preferences.
+	 */
+	public synchronized UsageHistory getUsageHistory() {
+		if (!getPreferences().getUseHistory()) {
+			return null;
+		}
+		if (usageHistory==null) {
+			usageHistory = new UsageHistory(getStateLocation().append("usage.history").toFile());
+		}
+		return usageHistory;
+	}
+
+	/**
+	 * Start reading the files most likely to be searched in the background, if enabled in
+	 * the preferences. Does nothing if already started.
+	 *
+	 * @param delay Milliseconds to wait before starting.
+	 */
+	public synchronized void startPrewarming(long delay) {
+		if (prewarmer!=null || !getPreferences().getPrewarm()) {
+			return;
+		}
+		getIndex(); //Starts the indexer, if enabled.
+		FileContentCache cache = getContentCache();
+		long budget = Prewarmer.DEFAULT_BUDGET;
+		if (cache!=null) {
+			//Reading more than fits in the cache would evict what was read first.
+			budget = Math.min(budget, getPreferences().getCacheSize() * 1024L * 1024L / 2);
+		}
+		prewarmer = new Prewarmer(QuickSearchContext.createBasePriorityFun(), cache, getCharsetCache(), indexer,
+				getPreferences().getMaxLineLen(), budget, Prewarmer.DEFAULT_RATE);
+		prewarmer.schedule(delay);
+	}
+
+	/**
+	 * Stop reading files in the background, if it was started.
+	 */
+	public synchronized void stopPrewarming() {
+		if (prewarmer!=null) {
+			prewarmer.cancel();
+			prewarmer = null;
+		}
+	}
 	
 }
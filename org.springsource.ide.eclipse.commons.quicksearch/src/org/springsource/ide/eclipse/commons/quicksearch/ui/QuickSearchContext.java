@@ -14,9 +14,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.jface.viewers.ISelection;
@@ -26,10 +29,14 @@ import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IEditorReference;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkingSet;
 import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
+import org.springsource.ide.eclipse.commons.quicksearch.core.SearchScope;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.DefaultPriorityFunction;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PrioriTree;
 import org.springsource.ide.eclipse.commons.quicksearch.core.priority.PriorityFunction;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.UsageHistory;
 
 /**
  * An instance of this class groups together some logic to inform the 
@@ -61,9 +68,8 @@ public class QuickSearchContext {
 	 * Create a walker priority function based on the current 'context'.
 	 */
 	public PriorityFunction createPriorityFun() {
-		PrioriTree priorities = PrioriTree.create();
-		priorities.configure(QuickSearchActivator.getDefault().getPreferences());
 		try {
+			PrioriTree priorities = createBasePriorityFun();
 // TODO: This is not working correctly right now, if the selected resources are containers / folders. 
 // The PrioriTree only assigns a priority to the folder itself, but not to its children.
 // So open editors will automatically take priority over the children of selected projects.
@@ -92,6 +98,78 @@ public class QuickSearchContext {
 		return new DefaultPriorityFunction();
 	}
 
+	/**
+	 * Create a priority function based on the preferences and the usage history only, i.e. without
+	 * the context of a workbench window.
+	 */
+	public static PrioriTree createBasePriorityFun() {
+		PrioriTree priorities = PrioriTree.create();
+		priorities.configure(QuickSearchActivator.getDefault().getPreferences());
+		//Files and folders users often opened from earlier searches. Less interesting than open files.
+		UsageHistory history = QuickSearchActivator.getDefault().getUsageHistory();
+		if (history!=null) {
+			history.applyTo(priorities);
+		}
+		return priorities;
+	}
+
+	/**
+	 * Create a search scope of the selected projects.
+	 *
+	 * @param required Whether to include the projects the selected ones require.
+	 * @return The scope, or null if no projects are selected.
+	 */
+	public SearchScope createProjectsScope(boolean required) {
+		Set<IProject> projects = getSelectedProjects();
+		if (projects.isEmpty()) {
+			return null;
+		}
+		if (required) {
+			return SearchScope.requiredProjects("Selected Projects and Required Projects", projects);
+		}
+		return SearchScope.projects(projects.size()==1 ? projects.iterator().next().getName() : "Selected Projects", projects);
+	}
+
+	/**
+	 * Create a search scope of the resources in a working set.
+	 *
+	 * @return The scope, or null if there is no working set with that name.
+	 */
+	public static SearchScope createWorkingSetScope(String name) {
+		IWorkingSet ws = PlatformUI.getWorkbench().getWorkingSetManager().getWorkingSet(name);
+		if (ws==null) {
+			return null;
+		}
+		List<IResource> resources = new ArrayList<IResource>();
+		for (IAdaptable e : ws.getElements()) {
+			IResource r = (IResource) e.getAdapter(IResource.class);
+			if (r!=null) {
+				resources.add(r);
+			}
+		}
+		return new SearchScope("Working Set '"+ws.getLabel()+"'", resources.toArray(new IResource[resources.size()]));
+	}
+
+	/**
+	 * The projects of the selected resources or, if nothing is selected, the project of the
+	 * active editor's file.
+	 */
+	private Set<IProject> getSelectedProjects() {
+		Set<IProject> projects = new LinkedHashSet<IProject>();
+		for (IResource r : getSelectedResources()) {
+			if (r.getProject()!=null) {
+				projects.add(r.getProject());
+			}
+		}
+		if (projects.isEmpty()) {
+			IFile file = getActiveFile();
+			if (file!=null) {
+				projects.add(file.getProject());
+			}
+		}
+		return projects;
+	}
+
 	private Collection<IFile> getOpenFiles() {
 		try {
 			IWorkbenchPage page = window.getActivePage();
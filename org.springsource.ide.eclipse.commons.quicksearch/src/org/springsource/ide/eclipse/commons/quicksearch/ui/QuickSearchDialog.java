@@ -100,7 +100,9 @@ import org.eclipse.swt.widgets.ToolItem;
 import org.eclipse.ui.ActiveShellExpression;
 import org.eclipse.ui.IWorkbenchCommandConstants;
 import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.IWorkingSet;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.dialogs.IWorkingSetSelectionDialog;
 import org.eclipse.ui.dialogs.SelectionStatusDialog;
 import org.eclipse.ui.handlers.IHandlerActivation;
 import org.eclipse.ui.handlers.IHandlerService;
@@ -114,6 +116,8 @@ import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
 import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery.TextRange;
 import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextSearchRequestor;
 import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextSearcher;
+import org.springsource.ide.eclipse.commons.quicksearch.core.ResultBatcher;
+import org.springsource.ide.eclipse.commons.quicksearch.core.SearchScope;
 import org.springsource.ide.eclipse.commons.quicksearch.util.DocumentFetcher;
 import org.springsource.ide.eclipse.commons.quicksearch.util.TableResizeHelper;
 
@@ -175,14 +179,53 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 //		}
 //	}
 
+	/**
+	 * Minimum time between refreshes of the list, in milliseconds.
+	 */
+	private static final long FRAME_MILLIS = 33;
+
+	/**
+	 * Maximum number of results taken from the searcher per refresh.
+	 */
+	private static final int MAX_RESULTS_PER_FRAME = 1000;
+
+	/**
+	 * Pulls the results the searcher found since the last refresh and shows them.
+	 */
 	private UIJob refreshJob = new UIJob("Refresh") {
 		@Override
 		public IStatus runInUIThread(IProgressMonitor monitor) {
+			ResultBatcher batcher = results;
+			boolean more = batcher!=null && batcher.flush(contentUpdater, MAX_RESULTS_PER_FRAME);
+			lastRefresh = System.currentTimeMillis();
 			refresh();
+			if (more) {
+				schedule(FRAME_MILLIS);
+			}
 			return Status.OK_STATUS;
 		}
 	};
 
+	private volatile long lastRefresh = 0;
+
+	/**
+	 * Applies the results handed on by the {@link ResultBatcher} to the list's contents.
+	 */
+	private final QuickTextSearchRequestor contentUpdater = new QuickTextSearchRequestor() {
+		@Override
+		public void add(LineItem match) {
+			contentProvider.add(match);
+		}
+		@Override
+		public void clear() {
+			contentProvider.reset();
+		}
+		@Override
+		public void revoke(LineItem match) {
+			contentProvider.remove(match);
+		}
+	};
+
 	/**
 	 * Job that shows a simple busy indicator while a search is active.
 	 * The job must be scheduled when a search starts/resumes. It periodically checks the
@@ -241,7 +284,7 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		public void update(ViewerCell cell) {
 			LineItem item = (LineItem) cell.getElement();
 			if (item!=null) {
-				StyledString text = highlightMatches(item.getText());
+				StyledString text = highlightMatches(item.getText(), item.getHighlights(getQuery()));
 				cell.setText(text.getString());
 				cell.setStyleRanges(text.getStyleRanges());
 			} else {
@@ -257,8 +300,8 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		@Override
 		public void update(ViewerCell cell) {
 			LineItem item = (LineItem) cell.getElement();
-			if (item!=null) {
-				IPath path = item.getFile().getFullPath();
+			IPath path = item==null ? null : item.getPath();
+			if (path!=null) {
 				String name = path.lastSegment();
 				String dir = path.removeLastSegments(1).toString();
 				cell.setText(name + " - "+dir);
@@ -302,6 +345,31 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	private static final String DIALOG_LAST_QUERY = "LAST_QUERY";
 	private static final String CASE_SENSITIVE = "CASE_SENSITIVE";
 	private static final boolean CASE_SENSITIVE_DEFAULT = true;
+	private static final String REGEX = "REGEX";
+	private static final String WHOLE_WORD = "WHOLE_WORD";
+
+	/**
+	 * Kinds of search scopes users can choose from.
+	 */
+	private static enum ScopeKind {
+		WORKSPACE("Workspace"),
+		PROJECTS("Selected Projects"),
+		REQUIRED_PROJECTS("Selected Projects and Required Projects"),
+		WORKING_SET("Working Set...");
+
+		final String label;
+
+		ScopeKind(String label) {
+			this.label = label;
+		}
+	}
+
+	/**
+	 * The scope last chosen, kept for the rest of the workbench session. The projects are those
+	 * selected when the dialog opens, so the same kind of scope follows the selection around.
+	 */
+	private static ScopeKind lastScopeKind = ScopeKind.WORKSPACE;
+	private static String lastWorkingSet = null;
 
 	/**
 	 * Represents an empty selection in the pattern input field (used only for
@@ -349,19 +417,31 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 
 	private final int MAX_LINE_LEN;
 
+	private final int WORKERS;
+
 	private IHandlerActivation showViewHandler;
 
 	private QuickTextSearcher searcher;
 
+	/**
+	 * Collects the searcher's results until the next refresh.
+	 */
+	private ResultBatcher results;
+
 	private StyledText details;
 
 	private DocumentFetcher documents;
 
 
 	private ToggleCaseSensitiveAction toggleCaseSensitiveAction;
+	private ToggleModeAction toggleRegexAction;
+	private ToggleModeAction toggleWholeWordAction;
 
 	private QuickSearchContext context;
 
+	private SearchScope scope = SearchScope.WORKSPACE;
+	private List<ScopeAction> scopeActions = new ArrayList<ScopeAction>();
+
 
 	private SashForm sashForm;
 
@@ -380,10 +460,12 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		super(window.getShell());
 		this.setTitle("Quick Text Search");
 		this.context = new QuickSearchContext(window);
+		this.scope = createScope(lastScopeKind, lastWorkingSet);
 		this.multi = false;
 		contentProvider = new ContentProvider();
 		selectionMode = NONE;
 		MAX_LINE_LEN = QuickSearchActivator.getDefault().getPreferences().getMaxLineLen();
+		WORKERS = QuickSearchActivator.getDefault().getPreferences().getWorkers();
 	}
 
 //	/**
@@ -498,6 +580,115 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		}
 	}
 
+	/**
+	 * Switches between the wildcard mode and another query mode. At most one of these
+	 * actions is checked at a time.
+	 */
+	private class ToggleModeAction extends Action {
+
+		private final String settingsKey;
+
+		public ToggleModeAction(String label, String settingsKey, IDialogSettings settings) {
+			super(label, IAction.AS_CHECK_BOX);
+			this.settingsKey = settingsKey;
+			setChecked(settings.getBoolean(settingsKey));
+		}
+
+		public void run() {
+			if (isChecked()) {
+				for (ToggleModeAction other : new ToggleModeAction[] { toggleRegexAction, toggleWholeWordAction }) {
+					if (other!=this) {
+						other.setChecked(false);
+					}
+				}
+			}
+			refreshHeaderLabel();
+			applyFilter();
+		}
+
+		void store(IDialogSettings settings) {
+			settings.put(settingsKey, isChecked());
+		}
+	}
+
+	private class ScopeAction extends Action {
+
+		private final ScopeKind kind;
+
+		public ScopeAction(ScopeKind kind) {
+			super(kind.label, IAction.AS_RADIO_BUTTON);
+			this.kind = kind;
+			setChecked(kind==lastScopeKind);
+		}
+
+		public void run() {
+			if (isChecked()) {
+				setScope(kind);
+			}
+		}
+	}
+
+	/**
+	 * Switch to a kind of scope, restarting the search in the new scope. Falls back to the workspace
+	 * if there is nothing to scope to, e.g. no selected projects.
+	 */
+	private void setScope(ScopeKind kind) {
+		String workingSet = lastWorkingSet;
+		if (kind==ScopeKind.WORKING_SET) {
+			IWorkingSetSelectionDialog dialog = PlatformUI.getWorkbench().getWorkingSetManager()
+					.createWorkingSetSelectionDialog(getShell(), false);
+			if (dialog.open()!=OK || dialog.getSelection().length==0) {
+				//Canceled: keep the scope as it was.
+				for (ScopeAction a : scopeActions) {
+					a.setChecked(a.kind==lastScopeKind);
+				}
+				return;
+			}
+			IWorkingSet selected = dialog.getSelection()[0];
+			workingSet = selected.getName();
+		}
+		lastScopeKind = kind;
+		lastWorkingSet = workingSet;
+		scope = createScope(kind, workingSet);
+		if (searcher!=null) {
+			searcher.cancel();
+			searcher = null;
+			results.dispose();
+			results = null;
+			contentProvider.reset();
+			contentProvider.refresh();
+		}
+		refreshHeaderLabel();
+		applyFilter();
+	}
+
+	private SearchScope createScope(ScopeKind kind, String workingSet) {
+		SearchScope result = null;
+		switch (kind) {
+		case PROJECTS:
+			result = context.createProjectsScope(false);
+			break;
+		case REQUIRED_PROJECTS:
+			result = context.createProjectsScope(true);
+			break;
+		case WORKING_SET:
+			result = workingSet==null ? null : QuickSearchContext.createWorkingSetScope(workingSet);
+			break;
+		default:
+			break;
+		}
+		return result==null ? SearchScope.WORKSPACE : result;
+	}
+
+	private QuickTextQuery.Mode getMode() {
+		if (toggleRegexAction.isChecked()) {
+			return QuickTextQuery.Mode.REGEX;
+		} else if (toggleWholeWordAction.isChecked()) {
+			return QuickTextQuery.Mode.WHOLE_WORD;
+		}
+		return QuickTextQuery.Mode.WILDCARD;
+	}
+
 
 	/*
 	 * (non-Javadoc)
@@ -523,6 +714,14 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		if (searcher!=null) {
 			searcher.cancel();
 		}
+		if (results!=null) {
+			//Releases walker threads waiting for the results to be shown.
+			results.dispose();
+		}
+		if (documents!=null) {
+			documents.dispose();
+			documents = null;
+		}
 		return super.close();
 	}
 
@@ -538,6 +737,10 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		if (toggleCaseSensitiveAction!=null) {
 			settings.put(CASE_SENSITIVE, toggleCaseSensitiveAction.isChecked());
 		}
+		if (toggleRegexAction!=null) {
+			toggleRegexAction.store(settings);
+			toggleWholeWordAction.store(settings);
+		}
 		Table table = list.getTable();
 		if (table.getColumnCount()>0) {
 			String[] columnWidths = new String[table.getColumnCount()];
@@ -593,7 +796,20 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 
 	private void refreshHeaderLabel() {
 		String msg = toggleCaseSensitiveAction.isChecked() ? "Case SENSITIVE" : "Case INSENSITIVE";
-		msg += " Pattern (? = any character, * = any string)";
+		switch (getMode()) {
+		case REGEX:
+			msg += " Regular Expression";
+			break;
+		case WHOLE_WORD:
+			msg += " Whole Word Pattern (? = any character, * = any string)";
+			break;
+		default:
+			msg += " Pattern (? = any character, * = any string)";
+			break;
+		}
+		if (!scope.isWorkspace()) {
+			msg += " in "+scope.getName();
+		}
 		headerLabel.setText(msg);
 	}
 
@@ -685,6 +901,20 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	protected void fillViewMenu(IMenuManager menuManager) {
 		toggleCaseSensitiveAction = new ToggleCaseSensitiveAction(getDialogSettings());
 		menuManager.add(toggleCaseSensitiveAction);
+		toggleRegexAction = new ToggleModeAction("Regular Expression", REGEX, getDialogSettings());
+		menuManager.add(toggleRegexAction);
+		toggleWholeWordAction = new ToggleModeAction("Whole Word", WHOLE_WORD, getDialogSettings());
+		if (toggleRegexAction.isChecked()) {
+			toggleWholeWordAction.setChecked(false);
+		}
+		menuManager.add(toggleWholeWordAction);
+		MenuManager scopeMenu = new MenuManager("Scope");
+		for (ScopeKind kind : ScopeKind.values()) {
+			ScopeAction action = new ScopeAction(kind);
+			scopeActions.add(action);
+			scopeMenu.add(action);
+		}
+		menuManager.add(scopeMenu);
 	}
 
 	private void showViewMenu() {
@@ -968,24 +1198,33 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 				int numLines = computeLines();
 				if (numLines > 0) {
 					LineItem item = (LineItem) sel.getFirstElement();
-					IDocument document = documents.getDocument(item.getFile());
-					try {
-						int line = item.getLineNumber()-1; //in document lines are 0 based. In search 1 based.
-						int start = document.getLineOffset(Math.max(line-(numLines-1)/2, 0));
-						int end = document.getLength();
-						try {
-							end = document.getLineOffset(start+numLines);
-						} catch (BadLocationException e) {
-							//Presumably line number is past the end of document.
-							//ignore.
-						}
-
-						StyledString styledString = highlightMatches(document.get(start, end-start));
+					String text = getContextText(item, numLines);
+					if (text!=null) {
+						StyledString styledString = highlightMatches(text);
 						details.setText(styledString.getString());
 						details.setStyleRanges(styledString.getStyleRanges());
-
 						return;
-					} catch (BadLocationException e) {
+					}
+					IDocument document = item.getFile()==null ? null : documents.getDocument(item.getFile());
+					if (document!=null) {
+						try {
+							int line = item.getLineNumber()-1; //in document lines are 0 based. In search 1 based.
+							int start = document.getLineOffset(Math.max(line-(numLines-1)/2, 0));
+							int end = document.getLength();
+							try {
+								end = document.getLineOffset(start+numLines);
+							} catch (BadLocationException e) {
+								//Presumably line number is past the end of document.
+								//ignore.
+							}
+
+							StyledString styledString = highlightMatches(document.get(start, end-start));
+							details.setText(styledString.getString());
+							details.setStyleRanges(styledString.getStyleRanges());
+
+							return;
+						} catch (BadLocationException e) {
+						}
 					}
 				}
 			}
@@ -994,6 +1233,36 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 		}
 	}
 
+	/**
+	 * Get the text to show in the details section from the context lines the searcher
+	 * collected around the item.
+	 *
+	 * @return The text or null if the item's context can't be used, in which case the
+	 *     text should be read from the document.
+	 */
+	private String getContextText(LineItem item, int numLines) {
+		LineItem.Context context = item.getContext();
+		if (context==null) {
+			return null;
+		}
+		IFile file = item.getFile();
+		if (file!=null && (documents.isDirty(file) || context.getStamp()!=file.getModificationStamp())) {
+			return null;
+		}
+		String[] lines = context.getLines();
+		int from = Math.max(item.getLineNumber()-(numLines-1)/2, 1) - context.getFirstLine();
+		int to = from + numLines;
+		if (from<0 || (to>lines.length && !context.isEndOfFile())) {
+			return null;
+		}
+		StringBuilder text = new StringBuilder();
+		for (int i = from; i < Math.min(to, lines.length); i++) {
+			text.append(lines[i]);
+			text.append('\n');
+		}
+		return text.toString();
+	}
+
 	/**
 	 * Computes how much lines of text can be displayed in the details section based on
 	 * its current height and font metrics.
@@ -1020,8 +1289,14 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	 * @return StyledString instance.
 	 */
 	private StyledString highlightMatches(String visibleText) {
+		return highlightMatches(visibleText, getQuery().findAll(visibleText));
+	}
+
+	/**
+	 * Helper function to highlight already computed matches in a given piece of text.
+	 */
+	private StyledString highlightMatches(String visibleText, List<TextRange> matches) {
 		StyledString styledText = new StyledString(visibleText);
-		List<TextRange> matches = getQuery().findAll(visibleText);
 		for (TextRange m : matches) {
 			styledText.setStyle(m.getOffset(), m.getLength(), HIGHLIGHT_STYLE);
 		}
@@ -1174,7 +1449,9 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	 * Schedule refresh job.
 	 */
 	public void scheduleRefresh() {
-		refreshJob.schedule();
+		//At most one refresh per frame.
+		long delay = lastRefresh + FRAME_MILLIS - System.currentTimeMillis();
+		refreshJob.schedule(Math.max(0, delay));
 //		list.re
 //		refreshCacheJob.cancelAll();
 //		refreshCacheJob.schedule();
@@ -1289,7 +1566,7 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	 *        the list.
 	 */
 	protected QuickTextQuery createFilter() {
-		return new QuickTextQuery(pattern.getText(), toggleCaseSensitiveAction.isChecked());
+		return new QuickTextQuery(pattern.getText(), toggleCaseSensitiveAction.isChecked(), getMode());
 	}
 
 	/**
@@ -1299,30 +1576,24 @@ public class QuickSearchDialog extends SelectionStatusDialog {
 	 */
 	protected void applyFilter() {
 		QuickTextQuery newFilter = createFilter();
+		if (newFilter.getError()!=null) {
+			updateStatus(new Status(IStatus.ERROR, QuickSearchActivator.PLUGIN_ID, "Invalid regular expression: "+newFilter.getError()));
+		} else if (status!=null && status.getSeverity()==IStatus.ERROR) {
+			updateStatus(new Status(IStatus.OK, QuickSearchActivator.PLUGIN_ID, EMPTY_STRING));
+		}
 		if (this.searcher==null) {
 			if (!newFilter.isTrivial()) {
 				//Create the QuickTextSearcher with the inital query.
-				this.searcher = new QuickTextSearcher(newFilter, context.createPriorityFun(), MAX_LINE_LEN, new QuickTextSearchRequestor() {
-					@Override
-					public void add(LineItem match) {
-						contentProvider.add(match);
-						contentProvider.refresh();
-					}
-					@Override
-					public void clear() {
-						contentProvider.reset();
-						contentProvider.refresh();
-					}
-					@Override
-					public void revoke(LineItem match) {
-						contentProvider.remove(match);
-						contentProvider.refresh();
-					}
-					@Override
-					public void update(LineItem match) {
-						contentProvider.refresh();
+				this.results = new ResultBatcher(ResultBatcher.DEFAULT_CAPACITY, new Runnable() {
+					public void run() {
+						scheduleRefresh();
 					}
 				});
+				this.searcher = new QuickTextSearcher(newFilter, scope, context.createPriorityFun(), MAX_LINE_LEN,
+						QuickSearchActivator.getDefault().getIndex(),
+						QuickSearchActivator.getDefault().getContentCache(),
+						QuickSearchActivator.getDefault().getCharsetCache(),
+						QuickSearchActivator.getDefault().getZipFilePool(), WORKERS, results);
 				refresh();
 			}
 //			this.list.setInput(input)
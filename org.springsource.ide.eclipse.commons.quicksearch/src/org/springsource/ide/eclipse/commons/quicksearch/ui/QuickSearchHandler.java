@@ -13,17 +13,23 @@ package org.springsource.ide.eclipse.commons.quicksearch.ui;
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.search.internal.ui.text.EditorOpener;
+import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.ISelectionService;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.handlers.HandlerUtil;
+import org.eclipse.ui.texteditor.ITextEditor;
 import org.springsource.ide.eclipse.commons.quicksearch.core.LineItem;
 import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery;
 import org.springsource.ide.eclipse.commons.quicksearch.core.QuickTextQuery.TextRange;
+import org.springsource.ide.eclipse.commons.quicksearch.core.SourceJarLineItem;
+import org.springsource.ide.eclipse.commons.quicksearch.core.priority.UsageHistory;
 
 /**
  * Our sample handler extends AbstractHandler, an IHandler base class.
@@ -58,11 +64,23 @@ public class QuickSearchHandler extends AbstractHandler {
 				if (item!=null) {
 					QuickTextQuery q = dialog.getQuery();
 					TextRange range = q.findFirst(item.getText());
-					EditorOpener opener = new EditorOpener();
+					if (range==null) {
+						//E.g. a regex that only matched with the whole line's context. Just go to the line.
+						range = q.new TextRange(0, 0);
+					}
 					IWorkbenchPage page = window.getActivePage();
 					if (page!=null) {
-						opener.openAndSelect(page, item.getFile(), range.getOffset()+item.getOffset(), 
-							range.getLength(), true);
+						if (item instanceof SourceJarLineItem) {
+							openSourceAttachment((SourceJarLineItem) item, range.getOffset()+item.getOffset(), range.getLength());
+						} else {
+							EditorOpener opener = new EditorOpener();
+							opener.openAndSelect(page, item.getFile(), range.getOffset()+item.getOffset(), 
+								range.getLength(), true);
+							UsageHistory history = QuickSearchActivator.getDefault().getUsageHistory();
+							if (history!=null) {
+								history.record(item.getFile().getFullPath());
+							}
+						}
 					}
 				}
 			}
@@ -71,6 +89,20 @@ public class QuickSearchHandler extends AbstractHandler {
 		}
 	}
 
+	/**
+	 * Open the class file editor, which shows the attached source, for a line found in a source attachment.
+	 */
+	private static void openSourceAttachment(SourceJarLineItem item, int offset, int length) {
+		try {
+			IEditorPart editor = JavaUI.openInEditor(item.getClassFile());
+			if (editor instanceof ITextEditor) {
+				((ITextEditor) editor).selectAndReveal(offset, length);
+			}
+		} catch (CoreException e) {
+			QuickSearchActivator.log(e);
+		}
+	}
+
 	/**
 	 * Based on the current active selection initialize the priority function and/or
 	 * the initial contents of the search box.
@@ -12,6 +12,7 @@ package org.springsource.ide.eclipse.commons.quicksearch.ui;
 
 import static org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences.IGNORED_EXTENSIONS;
 import static org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences.IGNORED_NAMES;
+import static org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences.IGNORED_PATTERNS;
 import static org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences.IGNORED_PREFIXES;
 
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
@@ -38,11 +39,11 @@ import org.springsource.ide.eclipse.commons.quicksearch.core.priority.DefaultPri
 public class QuickSearchIgnoreSection extends PrefsPageSection {
 
 	private static final String[] prefsKeys = {
-		IGNORED_EXTENSIONS, IGNORED_PREFIXES, IGNORED_NAMES
+		IGNORED_EXTENSIONS, IGNORED_PREFIXES, IGNORED_NAMES, IGNORED_PATTERNS
 	};
 
 	private static final String[] fieldNames = {
-		"Extensions", "Prefixes", "Names"
+		"Extensions", "Prefixes", "Names", "Patterns"
 	};
 
 	private static final String[] toolTips = {
@@ -51,7 +52,10 @@ public class QuickSearchIgnoreSection extends PrefsPageSection {
 		"Enter a list of file prefixes. Elements in the list can be separated by commas or newlines." +
 		"Any file or folder who's name begins with one of the extensions will be ignored.",
 		"Enter a list of file names. Elements in the list can be separated by commas or newlines." +
-		"Any file or folder who's name equals one of the extensions will be ignored."
+		"Any file or folder who's name equals one of the extensions will be ignored.",
+		"Enter a list of patterns, using the same syntax as a .gitignore file (e.g. 'node_modules/', '*.min.js', " +
+		"'/docs/**/generated'). Elements in the list can be separated by commas or newlines. " +
+		"Any file or folder who's project relative path matches one of the patterns will be ignored."
 	};
 
 	private QuickSearchPreferences prefs;
@@ -67,7 +71,8 @@ public class QuickSearchIgnoreSection extends PrefsPageSection {
 		String[] defaultIgnores = {
 				withSeparator(", ", defaultPriorityFun.ignoredExtensions),
 				withSeparator(", ", defaultPriorityFun.ignoredPrefixes),
-				withSeparator(", ", defaultPriorityFun.ignoredNames)
+				withSeparator(", ", defaultPriorityFun.ignoredNames),
+				withSeparator(", ", defaultPriorityFun.ignoredPatterns)
 		};
 
         IgnoreListField[] fields = new IgnoreListField[prefsKeys.length];
@@ -15,6 +15,7 @@ import java.util.List;
 
 import org.springsource.ide.eclipse.commons.livexp.ui.PreferencePageWithSections;
 import org.springsource.ide.eclipse.commons.livexp.ui.PrefsPageSection;
+import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences;
 
 public class QuickSearchPreferencesPage extends PreferencePageWithSections {
 
@@ -22,7 +23,31 @@ public class QuickSearchPreferencesPage extends PreferencePageWithSections {
 	protected List<PrefsPageSection> createSections() {
 		List<PrefsPageSection> sections = new ArrayList<PrefsPageSection>();
 		sections.add(new QuickSearchIgnoreSection(this));
+		sections.add(new BooleanPreferenceSection(this, "Skip files and folders excluded by .gitignore and .ignore files",
+				QuickSearchPreferences.USE_IGNORE_FILES, false)
+			.tooltip("The patterns in .gitignore and .ignore files found while searching apply to the folder "
+					+ "containing the file and everything below it, as they do for git."));
+		sections.add(new BooleanPreferenceSection(this, "Search files opened from earlier searches first",
+				QuickSearchPreferences.USE_HISTORY, true)
+			.tooltip("Remembers which files are opened from the search results, and searches those files and "
+					+ "their folders first, the more so the more often and recently they were opened."));
+		sections.add(new BooleanPreferenceSection(this, "Read the files most likely to be searched ahead of time",
+				QuickSearchPreferences.PREWARM, false)
+			.tooltip("Shortly after Quick Search is first used, or when this is turned on, reads the files a search would visit first in the background, "
+					+ "so that the first search is as fast as later ones. Reading pauses while searching, and "
+					+ "reads at most half as much as fits in the content cache."));
 		sections.add(new MaxLineLengthSection(this));
+		sections.add(new WorkerCountSection(this));
+		sections.add(new CacheSizeSection(this));
+		sections.add(new BooleanPreferenceSection(this, "Use a trigram index to speed up searches",
+				QuickSearchPreferences.USE_INDEX, false)
+			.tooltip("Maintains an index of the text in the workspace (stored in the plugin's state location) "
+					+ "and uses it to skip files that can not contain a match. The index is built in the background "
+					+ "and takes memory and disk space roughly proportional to the size of the workspace."));
+		sections.add(new BooleanPreferenceSection(this, "Search source attachments of jars on the Java build path",
+				QuickSearchPreferences.SEARCH_SOURCE_JARS, false)
+			.tooltip("Also searches the java sources attached to libraries, after the files in the workspace. "
+					+ "Matches are opened in the class file editor."));
 		return sections;
 	}
 
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.ui;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.swt.widgets.Composite;
+import org.springsource.ide.eclipse.commons.livexp.core.LiveExpression;
+import org.springsource.ide.eclipse.commons.livexp.core.StringFieldModel;
+import org.springsource.ide.eclipse.commons.livexp.core.ValidationResult;
+import org.springsource.ide.eclipse.commons.livexp.core.Validator;
+import org.springsource.ide.eclipse.commons.livexp.ui.IPageWithSections;
+import org.springsource.ide.eclipse.commons.livexp.ui.PrefsPageSection;
+import org.springsource.ide.eclipse.commons.livexp.ui.StringFieldSection;
+import org.springsource.ide.eclipse.commons.quicksearch.core.preferences.QuickSearchPreferences;
+
+public class WorkerCountSection extends PrefsPageSection {
+
+	private StringFieldSection input;
+	private StringFieldModel model;
+
+	private QuickSearchPreferences prefs = QuickSearchActivator.getDefault().getPreferences();
+
+	public WorkerCountSection(IPageWithSections owner) {
+		super(owner);
+		model = new StringFieldModel("Search Threads", ""+prefs.getWorkers());
+		model.validator(new Validator() {
+			{
+				dependsOn(model.getVariable());
+			}
+			protected ValidationResult compute() {
+				String str = model.getValue();
+				if (str!=null) {
+					try {
+						int val = Integer.parseInt(str);
+						if (val<=0) {
+							return ValidationResult.error("Search Threads must be a positive integer");
+						} else if (val > Runtime.getRuntime().availableProcessors()) {
+							return ValidationResult.warning("More Search Threads than available processors "
+									+ "is unlikely to make searches faster");
+						}
+					} catch (NumberFormatException e) {
+						return ValidationResult.error("Search Threads can't be parsed as an integer");
+					}
+				}
+				return ValidationResult.OK;
+			}
+		});
+		input = new StringFieldSection(owner, model);
+		input.tooltip("Number of files QuickSearch reads and searches at the same time. Files are still "
+				+ "picked in priority order, but with more than one thread results may arrive slightly out of order."
+		);
+	}
+
+	@Override
+	public boolean performOK() {
+		try {
+			IEclipsePreferences store = prefs.getStore();
+			store.putInt(QuickSearchPreferences.WORKERS, Integer.parseInt(model.getValue()));
+			store.flush();
+			return true;
+		} catch (Exception e) {
+			//bad data do not put.
+		}
+		return false;
+	}
+
+	@Override
+	public void performDefaults() {
+		model.setValue(""+QuickSearchPreferences.DEFAULT_WORKERS);
+	}
+
+	@Override
+	public LiveExpression<ValidationResult> getValidator() {
+		return input.getValidator();
+	}
+
+	@Override
+	public void createContents(Composite page) {
+		input.createContents(page);
+	}
+
+}
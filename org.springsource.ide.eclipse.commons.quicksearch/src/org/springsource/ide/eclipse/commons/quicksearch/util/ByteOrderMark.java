@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Detects the charset indicated by a byte order mark at the start of a file. This is what
+ * {@link org.eclipse.core.resources.IFile#getCharset()} does, for callers that look up the
+ * charset without it. The mark itself is decoded as part of the text, like InputStreamReader does.
+ */
+public class ByteOrderMark {
+
+	/**
+	 * @param b0 First byte of the file, or -1 if there is none. Likewise for the others.
+	 * @return The charset indicated by the byte order mark, or null if the bytes aren't one.
+	 */
+	public static String getCharset(int b0, int b1, int b2) {
+		if (b0==0xEF && b1==0xBB && b2==0xBF) {
+			return "UTF-8"; //$NON-NLS-1$
+		} else if (b0==0xFE && b1==0xFF) {
+			return "UTF-16BE"; //$NON-NLS-1$
+		} else if (b0==0xFF && b1==0xFE) {
+			return "UTF-16LE"; //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	/**
+	 * Create a reader decoding a stream with the charset indicated by its byte order mark,
+	 * if it has one, or else with the given charset.
+	 */
+	public static Reader newReader(InputStream in, String charset) throws IOException {
+		InputStream buffered = new BufferedInputStream(in);
+		buffered.mark(3);
+		int b0 = buffered.read();
+		int b1 = b0<0 ? -1 : buffered.read();
+		int b2 = b1<0 ? -1 : buffered.read();
+		buffered.reset();
+		String bom = getCharset(b0, b1, b2);
+		return new InputStreamReader(buffered, bom==null ? charset : bom);
+	}
+
+}
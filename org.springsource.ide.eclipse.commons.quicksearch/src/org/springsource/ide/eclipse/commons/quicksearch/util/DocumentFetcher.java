@@ -10,9 +10,13 @@
  *******************************************************************************/
 package org.springsource.ide.eclipse.commons.quicksearch.util;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -52,9 +56,13 @@ public class DocumentFetcher {
 
 	private Map<IFile, IDocument> dirtyEditors;
 	
-	//Simple cache remembers the last fetched file and document. 
-	private IFile lastFile = null;
-	private IDocument lastDocument = null;
+	/**
+	 * Remembers recently fetched documents, most recently used last. Documents for files that are
+	 * not open in an editor are kept connected to a file buffer while they are in here.
+	 */
+	private final LinkedHashMap<IFile, IDocument> recent = new LinkedHashMap<IFile, IDocument>(16, 0.75f, true);
+	private final Set<IFile> connected = new HashSet<IFile>();
+	private static final int MAX_RECENT = 8;
 	
 	IDocumentProvider provider = new TextFileDocumentProvider();
 
@@ -67,18 +75,52 @@ public class DocumentFetcher {
 	}
 	
 	public IDocument getDocument(IFile file) {
-		if (file==lastFile) {
-			return lastDocument;
+		IDocument document = recent.get(file);
+		if (document!=null) {
+			return document;
+		}
+		document = dirtyEditors.get(file);
+		if (document==null) {
+			document = getOpenDocument(file);
+			if (document==null) {
+				document = getClosedDocument(file);
+			}
+		}
+		if (document!=null) {
+			recent.put(file, document);
+			if (recent.size()>MAX_RECENT) {
+				IFile eldest = recent.keySet().iterator().next();
+				recent.remove(eldest);
+				disconnect(eldest);
+			}
+		}
+		return document;
+	}
+
+	/**
+	 * @return true if the file is open in an editor with unsaved changes.
+	 */
+	public boolean isDirty(IFile file) {
+		return dirtyEditors.containsKey(file);
+	}
+
+	/**
+	 * Release the file buffers held on to by this fetcher.
+	 */
+	public void dispose() {
+		for (IFile file : new ArrayList<IFile>(connected)) {
+			disconnect(file);
 		}
-		lastFile = file;
-		lastDocument = dirtyEditors.get(file);
-		if (lastDocument==null) {
-			lastDocument = getOpenDocument(file);
-			if (lastDocument==null) {
-				lastDocument = getClosedDocument(file);
+		recent.clear();
+	}
+
+	private void disconnect(IFile file) {
+		if (connected.remove(file)) {
+			try {
+				FileBuffers.getTextFileBufferManager().disconnect(file.getFullPath(), LocationKind.IFILE, new NullProgressMonitor());
+			} catch (CoreException e) {
 			}
 		}
-		return lastDocument;
 	}
 	
 	private IDocument getOpenDocument(IFile file) {
@@ -91,24 +133,22 @@ public class DocumentFetcher {
 	}
 
 	private IDocument getClosedDocument(IFile file) {
-		//No  in the manager yet. Try to create a temporary buffer then remove it again.
+		//No  in the manager yet. Try to create a buffer. It stays connected until the
+		// document drops out of the 'recent' cache, or the fetcher is disposed.
 		ITextFileBufferManager bufferManager = FileBuffers.getTextFileBufferManager();
 		IPath location = file.getFullPath(); //Must use workspace location, not fs location for API below.
 		ITextFileBuffer buffer = null;
 		try {
 			bufferManager.connect(location, LocationKind.IFILE, new NullProgressMonitor());
+			connected.add(file);
 			buffer = bufferManager.getTextFileBuffer(location, LocationKind.IFILE);
 			if (buffer!=null) {
 				return buffer.getDocument();
 			}
 		} catch (Throwable e) {
 			QuickSearchActivator.log(e);
-		} finally {
-			try {
-				bufferManager.disconnect(location, LocationKind.IFILE, new NullProgressMonitor());
-			} catch (CoreException e) {
-			}
 		}
+		disconnect(file);
 		return null;
 	}
 	
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.util;
+
+import java.io.IOException;
+
+/**
+ * Splits text into lines while keeping track of the offset of each line in the text.
+ * <p>
+ * Lines are terminated by CR, LF or CR LF. The chars of the current line are exposed as
+ * a region of a char buffer, so that callers can inspect a line without turning it into a String.
+ */
+public interface ILineReader {
+
+	/**
+	 * Advance to the next line.
+	 *
+	 * @return false if there are no more lines.
+	 * @throws IOException if the text can't be read, or if a line is longer than the
+	 *     maximum line length the reader was created with.
+	 */
+	boolean nextLine() throws IOException;
+
+	/**
+	 * @return The buffer containing the chars of the current line. Only valid until the
+	 * next call to {@link #nextLine()}.
+	 */
+	char[] getLineBuffer();
+
+	/**
+	 * @return Index in the line buffer of the first char of the current line.
+	 */
+	int getLineStart();
+
+	/**
+	 * @return The number of chars in the current line, excluding the line terminator.
+	 */
+	int getLineLength();
+
+	/**
+	 * @return The current line as a String.
+	 */
+	String getLineString();
+
+	/**
+	 * @return The offset of the start of the current line relative to beginning of the text; or -1 if
+	 * no line has been read yet.
+	 */
+	int getLastLineOffset();
+
+	/**
+	 * Release any resources held by the reader. Does nothing if already closed.
+	 */
+	void close();
+
+}
@@ -13,6 +13,7 @@ package org.springsource.ide.eclipse.commons.quicksearch.util;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 
 /**
  * Provides a helper to efficiently split a file into
@@ -23,15 +24,14 @@ import java.io.Reader;
  *
  * @author Kris De Volder
  */
-public class LineReader {
+public class LineReader implements ILineReader {
 
 	private static final int EXPECTED_LINE_LENGTH = 160;
 	public static final int DEFAULT_MAX_LINE_LENGTH = 1000;
 
 	private BufferedReader input;
 
-	//This simple implementation just wraps a BufferedReader and StringBuilder
-	//to do the buffering and String building.
+	//This simple implementation just wraps a BufferedReader to do the buffering.
 	//It may be more efficient to implement our own buffering like BufferedReader
 	//does.
 
@@ -45,7 +45,12 @@ public class LineReader {
 	}
 
 
-	private StringBuilder line = new StringBuilder(EXPECTED_LINE_LENGTH);
+	/**
+	 * Chars of the last line read. Reused for every line so that reading lines doesn't
+	 * create garbage unless the caller asks for the line as a String.
+	 */
+	private char[] line = new char[EXPECTED_LINE_LENGTH];
+	private int lineLength = 0;
 
 	private final int MAX_LINE_LENGTH;
 	private int lineOffset = -1; //Start pos of last line read.
@@ -65,14 +70,14 @@ public class LineReader {
 	 * Close the underlying stream. Does nothing if already closed.
 	 */
 	public void close() {
-		BufferedReader toClose = null;
-		synchronized (input) {
-			if (input==null) {
-				return;
-			}
+		BufferedReader toClose;
+		synchronized (this) {
 			toClose = input;
 			input = null;
 		}
+		if (toClose==null) {
+			return;
+		}
 		try {
 			toClose.close();
 		} catch (IOException e) {
@@ -81,16 +86,34 @@ public class LineReader {
 	}
 
 	public String readLine() throws IOException {
+		if (nextLine()) {
+			return getLineString();
+		}
+		return null;
+	}
+
+	/**
+	 * Read the next line into the internal line buffer. Unlike readLine this does not
+	 * create a String for the line. The line can be accessed using {@link #getLineBuffer()}
+	 * and {@link #getLineLength()}, until the next call to this method.
+	 *
+	 * @return false if there are no more lines.
+	 */
+	public boolean nextLine() throws IOException {
 		lineOffset = offset; //remember start of line
+		lineLength = 0;
 		int maxOffset = offset + MAX_LINE_LENGTH;
 		//Read text until we see either a CR, CR LF or LF.
 		int c = read();
 		if (c==-1) {
-			return null;
+			return false;
 		}
 		//read until newline
 		while (c!='\r' && c!='\n' && c!=-1) {
-			line.append((char)c);
+			if (lineLength==line.length) {
+				line = Arrays.copyOf(line, lineLength*2);
+			}
+			line[lineLength++] = (char)c;
 			c = read();
 			if (offset>maxOffset) {
 				throw new IOException("Very long lines of text. Minified file?");
@@ -106,11 +129,36 @@ public class LineReader {
 				unread();
 			}
 		}
-		try {
-			return line.toString();
-		} finally {
-			line.setLength(0);
-		}
+		return true;
+	}
+
+	/**
+	 * @return The buffer containing the chars of the last line read by {@link #nextLine()},
+	 * starting at index 0. The buffer is reused and overwritten by the next line.
+	 */
+	public char[] getLineBuffer() {
+		return line;
+	}
+
+	/**
+	 * @return Always 0, this reader copies each line to the start of its line buffer.
+	 */
+	public int getLineStart() {
+		return 0;
+	}
+
+	/**
+	 * @return The number of chars in the last line read by {@link #nextLine()}.
+	 */
+	public int getLineLength() {
+		return lineLength;
+	}
+
+	/**
+	 * @return The last line read by {@link #nextLine()} as a String.
+	 */
+	public String getLineString() {
+		return new String(line, 0, lineLength);
 	}
 
 	private void unread() throws IOException {
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.quicksearch.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A line reader for files on the local file system. Rather than reading one char at a time
+ * from a stream, the file's bytes are read in bulk through a FileChannel, into a window of
+ * bounded size, and decoded in large chunks into a char buffer. Line boundaries are found by
+ * scanning that buffer directly.
+ * <p>
+ * The file is kept open until it is read to the end or the reader is closed. Files are not
+ * memory mapped, since a mapping keeps the file locked on some platforms until it is garbage
+ * collected.
+ * <p>
+ * Line offsets and the treatment of line terminators and overly long lines are the same as
+ * in {@link LineReader}.
+ * <p>
+ * A few things are looked at before decoding:
+ * <ul>
+ *   <li>A byte order mark overrides the given charset, as it would in {@link org.eclipse.core.resources.IFile#getCharset()}.</li>
+ *   <li>Files with a NUL byte near the start are taken to be binary and read as having no lines at all.</li>
+ *   <li>For charsets that encode US-ASCII as is, runs of US-ASCII bytes are copied straight into
+ *     the char buffer and only the other bytes go through the decoder.</li>
+ * </ul>
+ */
+public class MappedFileLineReader implements ILineReader {
+
+	/**
+	 * Maximum number of bytes read at once. Smaller files are read in one go.
+	 */
+	private static final int BYTE_WINDOW_SIZE = 64*1024;
+
+	/**
+	 * More bytes are read when fewer than this are left, so that the bytes of the next char
+	 * are always there, unless the end of the file is reached.
+	 */
+	private static final int REFILL_THRESHOLD = 16;
+
+	private static final int MIN_WINDOW_SIZE = 64*1024;
+
+	/**
+	 * How many bytes at the start of a file are looked at to decide whether it is binary.
+	 */
+	private static final int BINARY_CHECK_LENGTH = 8*1024;
+
+	/**
+	 * Charsets in which a US-ASCII byte always stands for itself and is never part of the
+	 * encoding of another char.
+	 */
+	private static final Set<String> ASCII_COMPATIBLE = new HashSet<String>(Arrays.asList(
+			"UTF-8", "US-ASCII", "ISO-8859-1", "windows-1252" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	));
+
+	private final int MAX_LINE_LENGTH;
+
+	private FileInputStream in;
+	private FileChannel channel;
+	private boolean eof = false;
+
+	/**
+	 * A window of bytes read from the file. In 'read' mode: from position to limit are the
+	 * bytes still to be decoded.
+	 */
+	private ByteBuffer bytes;
+	private final CharsetDecoder decoder;
+	private final boolean asciiFastPath;
+	private final boolean latin1; //every byte stands for the char with the same value
+	private final boolean binary;
+	private boolean inputDone = false;
+
+	/**
+	 * A window of decoded chars. When we run out of chars the part of the window still
+	 * needed is shifted to the front and the rest is refilled from the bytes.
+	 */
+	private char[] buf;
+	private int limit = 0; //number of valid chars in buf
+	private int pos = 0; //start of the next line in buf
+	private int base = 0; //offset in the text of buf[0]
+
+	private int lineStart = 0;
+	private int lineLength = 0;
+	private int lineOffset = -1;
+
+	public MappedFileLineReader(File file, String charset, int maxLineLength) throws IOException {
+		MAX_LINE_LENGTH = maxLineLength;
+		in = new FileInputStream(file);
+		try {
+			channel = in.getChannel();
+			//One more than the size, so that the end of a small file is seen by the first read.
+			long size = channel.size();
+			bytes = ByteBuffer.allocate((int) Math.max(2*REFILL_THRESHOLD, Math.min(size+1, BYTE_WINDOW_SIZE)));
+			bytes.flip();
+			readBytes();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		Charset cs = Charset.forName(bomCharset(charset));
+		//Same error handling as InputStreamReader, which is what LineReader gets its chars from.
+		decoder = cs.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		asciiFastPath = ASCII_COMPATIBLE.contains(cs.name());
+		latin1 = cs.name().equals("ISO-8859-1"); //$NON-NLS-1$
+		binary = !cs.name().startsWith("UTF-16") && !cs.name().startsWith("UTF-32") && hasNul(); //$NON-NLS-1$ //$NON-NLS-2$
+		if (binary) {
+			close();
+			bytes = null;
+		}
+		//Window must comfortably fit the longest allowed line, since we never split lines.
+		buf = new char[Math.max(MIN_WINDOW_SIZE, 2*maxLineLength+2)];
+	}
+
+	/**
+	 * @return The charset indicated by the byte order mark the file starts with, if any.
+	 *     The mark itself is decoded as part of the text, like InputStreamReader does.
+	 */
+	private String bomCharset(String charset) {
+		int n = bytes.remaining();
+		int b0 = n>0 ? bytes.get(0) & 0xff : -1;
+		int b1 = n>1 ? bytes.get(1) & 0xff : -1;
+		int b2 = n>2 ? bytes.get(2) & 0xff : -1;
+		String bom = ByteOrderMark.getCharset(b0, b1, b2);
+		return bom==null ? charset : bom;
+	}
+
+	private boolean hasNul() {
+		int n = Math.min(bytes.remaining(), BINARY_CHECK_LENGTH);
+		for (int i = 0; i < n; i++) {
+			if (bytes.get(i)==0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Whether the file looks binary. Binary files have no lines.
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+
+	public boolean nextLine() throws IOException {
+		if (pos>=limit && !fill()) {
+			return false;
+		}
+		lineStart = pos;
+		lineOffset = base + pos;
+		int i = pos;
+		while (true) {
+			while (i<limit) {
+				char c = buf[i];
+				if (c=='\r' || c=='\n') {
+					lineLength = i - lineStart;
+					if (c=='\r') {
+						if (i+1>=limit) {
+							i -= fillKeepingLine();
+						}
+						if (i+1<limit && buf[i+1]=='\n') {
+							i++;
+						}
+					}
+					pos = i+1;
+					return true;
+				}
+				i++;
+				if (i-lineStart >= MAX_LINE_LENGTH) {
+					throw new IOException("Very long lines of text. Minified file?");
+				}
+			}
+			int shift = fillKeepingLine();
+			i -= shift;
+			if (i>=limit) {
+				//End of text reached and the last line has no terminator.
+				lineLength = i - lineStart;
+				pos = i;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Decode more chars, discarding everything before the current line.
+	 * @return by how much the current line was shifted towards the start of the buffer.
+	 */
+	private int fillKeepingLine() throws IOException {
+		int shift = lineStart;
+		compact(shift);
+		lineStart = 0;
+		decode();
+		return shift;
+	}
+
+	/**
+	 * Decode more chars, discarding everything already returned.
+	 * @return false if there is nothing more to read.
+	 */
+	private boolean fill() throws IOException {
+		compact(pos);
+		decode();
+		return pos<limit;
+	}
+
+	private void compact(int from) {
+		if (from>0) {
+			System.arraycopy(buf, from, buf, 0, limit-from);
+			limit -= from;
+			pos -= from;
+			base += from;
+		}
+	}
+
+	/**
+	 * Keep the bytes not decoded yet, and read more after them, until the window is full or
+	 * the end of the file is reached.
+	 */
+	private void readBytes() throws IOException {
+		bytes.compact();
+		try {
+			while (bytes.hasRemaining()) {
+				if (channel==null || channel.read(bytes)<0) {
+					eof = true;
+					break;
+				}
+			}
+		} finally {
+			bytes.flip();
+		}
+		if (eof) {
+			close();
+		}
+	}
+
+	private void decode() throws IOException {
+		if (bytes==null || inputDone) {
+			return;
+		}
+		CharBuffer out = CharBuffer.wrap(buf, limit, buf.length-limit);
+		while (out.hasRemaining()) {
+			if (!eof && bytes.remaining()<REFILL_THRESHOLD) {
+				readBytes();
+			}
+			if (!bytes.hasRemaining()) {
+				//End of the file. Decoders may still hold on to an incomplete char.
+				decoder.decode(bytes, out, true);
+				decoder.flush(out);
+				inputDone = true;
+				break;
+			}
+			int before = bytes.position();
+			if (asciiFastPath) {
+				copyAscii(out);
+				if (out.hasRemaining() && bytes.hasRemaining()) {
+					decodeNonAscii(out);
+				}
+			} else {
+				//At the end of the file, an incomplete char is decoded as a replacement char.
+				decoder.decode(bytes, out, eof);
+			}
+			if (bytes.position()==before) {
+				//Next char doesn't fit.
+				break;
+			}
+		}
+		limit = out.position();
+	}
+
+	/**
+	 * Copy bytes to chars, up to the first byte that isn't US-ASCII.
+	 */
+	private void copyAscii(CharBuffer out) {
+		int from = bytes.position();
+		int n = Math.min(bytes.remaining(), out.remaining());
+		int to = out.position();
+		int i = 0;
+		if (bytes.hasArray()) {
+			byte[] a = bytes.array();
+			int offset = bytes.arrayOffset()+from;
+			while (i<n) {
+				byte b = a[offset+i];
+				if (b<0 && !latin1) {
+					break;
+				}
+				buf[to+i] = (char) (b & 0xff);
+				i++;
+			}
+		} else {
+			while (i<n) {
+				byte b = bytes.get(from+i);
+				if (b<0 && !latin1) {
+					break;
+				}
+				buf[to+i] = (char) (b & 0xff);
+				i++;
+			}
+		}
+		bytes.position(from+i);
+		out.position(to+i);
+	}
+
+	/**
+	 * Decode the run of non US-ASCII bytes at the current position.
+	 */
+	private void decodeNonAscii(CharBuffer out) {
+		int end = bytes.position();
+		int max = bytes.limit();
+		while (end<max && bytes.get(end)<0) {
+			end++;
+		}
+		//If the run is followed by a US-ASCII byte or the end of the file, no char continues
+		//past it and it can be decoded as if it were all the input. Otherwise the last char
+		//may continue in the next window of bytes.
+		boolean endOfInput = end<max || eof;
+		bytes.limit(end);
+		decoder.decode(bytes, out, endOfInput);
+		bytes.limit(max);
+		if (endOfInput) {
+			decoder.reset();
+		}
+	}
+
+	public char[] getLineBuffer() {
+		return buf;
+	}
+
+	public int getLineStart() {
+		return lineStart;
+	}
+
+	public int getLineLength() {
+		return lineLength;
+	}
+
+	public String getLineString() {
+		return new String(buf, lineStart, lineLength);
+	}
+
+	public int getLastLineOffset() {
+		return lineOffset;
+	}
+
+	/**
+	 * Close the file. Lines already read into the buffers can still be returned. Does
+	 * nothing if already closed.
+	 */
+	public void close() {
+		FileInputStream toClose = in;
+		in = null;
+		channel = null;
+		eof = true;
+		if (toClose!=null) {
+			try {
+				toClose.close();
+			} catch (IOException e) {
+				//Ignore.
+			}
+		}
+	}
+
+}
@@ -42,7 +42,8 @@ import org.springsource.ide.eclipse.commons.internal.ui.editors.UpdateNotificati
 		CommandHistoryTest.class, //
 		UpdateNotificationTest.class, //
 		TipOfTheDayTests.class, //
-		DownloadManagerTests.class //
+		DownloadManagerTests.class, //
+		WizardPageWithSectionsTests.class //
 })
 public class AllIdeTests {
 
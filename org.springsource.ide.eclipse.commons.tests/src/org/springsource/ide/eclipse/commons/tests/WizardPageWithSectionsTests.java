@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ *******************************************************************************/
+package org.springsource.ide.eclipse.commons.tests;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.wizard.Wizard;
+import org.eclipse.jface.wizard.WizardDialog;
+import org.eclipse.swt.widgets.Display;
+import org.springsource.ide.eclipse.commons.frameworks.core.util.FileUtil;
+import org.springsource.ide.eclipse.commons.livexp.core.LiveVariable;
+import org.springsource.ide.eclipse.commons.livexp.core.validators.NewProjectLocationValidator;
+import org.springsource.ide.eclipse.commons.livexp.ui.ValidatorSection;
+import org.springsource.ide.eclipse.commons.livexp.ui.WizardPageSection;
+import org.springsource.ide.eclipse.commons.livexp.ui.WizardPageWithSections;
+
+/**
+ * Tests for wizard pages whose validators change outside the UI thread.
+ */
+public class WizardPageWithSectionsTests extends TestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private File tempDir;
+
+	private WizardDialog dialog;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (dialog!=null) {
+			dialog.close();
+		}
+		if (tempDir!=null) {
+			delete(tempDir);
+		}
+		super.tearDown();
+	}
+
+	public void testLocationChangedOutsideUIThread() throws Exception {
+		tempDir = FileUtil.createTempDirectory("location");
+		final File location = new File(tempDir, "foo");
+		location.mkdirs();
+		new File(location, "bar.txt").createNewFile();
+
+		final LiveVariable<String> path = new LiveVariable<String>("");
+		LiveVariable<String> projectName = new LiveVariable<String>("foo");
+		final NewProjectLocationValidator validator = new NewProjectLocationValidator("Location", path, projectName);
+		final WizardPageWithSections page = new WizardPageWithSections("location", "Location", null) {
+			@Override
+			protected List<WizardPageSection> createSections() {
+				return Arrays.<WizardPageSection>asList(new ValidatorSection(validator, this));
+			}
+		};
+		Wizard wizard = new Wizard() {
+			@Override
+			public void addPages() {
+				addPage(page);
+			}
+
+			@Override
+			public boolean performFinish() {
+				return true;
+			}
+		};
+		dialog = new WizardDialog(null, wizard);
+		dialog.create();
+
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread("Change location") {
+			@Override
+			public void run() {
+				try {
+					path.setValue(location.getAbsolutePath());
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		if (error[0]!=null) {
+			throw new Exception(error[0]);
+		}
+
+		//The directory is checked on a Job, which then updates the page.
+		Display display = Display.getCurrent();
+		long endTime = System.currentTimeMillis()+TIMEOUT;
+		while (!isNotEmptyError(page.getErrorMessage()) && System.currentTimeMillis()<endTime) {
+			if (!display.readAndDispatch()) {
+				Thread.sleep(10);
+			}
+		}
+		assertTrue("Unexpected message: "+page.getErrorMessage(), isNotEmptyError(page.getErrorMessage()));
+		assertFalse(page.isPageComplete());
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children!=null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private boolean isNotEmptyError(String message) {
+		return message!=null && message.contains("is not empty");
+	}
+
+}